@@ -0,0 +1,64 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures getting data into a figure and finding its bounds
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DataBenchmark {
+
+    @Param({"1000", "100000", "10000000"})
+    int points;
+
+    @Param({"1", "12"})
+    int series;
+
+    private double[] x;
+    private double[] y;
+
+    private Figure figure;
+    private List<SeriesSnapshot> list;
+
+    @Setup
+    public void setup() {
+        x = Signals.time(points);
+        y = Signals.encoder(points);
+
+        figure = new Figure("Benchmark");
+
+        list = new ArrayList<>();
+        for(int i = 0; i < series; i++) {
+            DataSeries s = new DataSeries(points, true);
+            s.appendBatch(x, y, 0, points);
+            list.add(s.snapshot());
+        }
+    }
+
+    /**
+     * Copying arrays into a new series with addData
+     */
+    @Benchmark
+    public Figure addData() {
+        Figure f = new Figure("Benchmark");
+        for(int i = 0; i < series; i++)
+            f.addData(x, y, Color.BLUE, null);
+        return f;
+    }
+
+    /**
+     * Merging the bounds of every series, as done each paint
+     */
+    @Benchmark
+    public Figure getMinMax() {
+        figure.getMinMax(list);
+        return figure;
+    }
+}
@@ -0,0 +1,51 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures appending to a live series with and without {@link DerivedSeries} following it
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DerivedBenchmark {
+
+    private static final int CAPACITY = 100000;
+
+    @Param({"false", "true"})
+    boolean derived;
+
+    @Param({"10", "1000"})
+    int window;
+
+    private DataSeries setpoint;
+    private DataSeries measured;
+    private double[] y;
+    private int next;
+
+    @Setup
+    public void setup() {
+        y = Signals.encoder(CAPACITY);
+        setpoint = new DataSeries(CAPACITY, SeriesStorage.DOUBLE, 0, 0.02);
+        measured = new DataSeries(CAPACITY, SeriesStorage.DOUBLE, 0, 0.02);
+        if(derived) {
+            DerivedSeries.movingAverage(measured, window);
+            DerivedSeries.rollingRms(measured, window);
+            DerivedSeries.derivative(measured);
+            DerivedSeries.difference(setpoint, measured);
+        }
+    }
+
+    /**
+     * One control loop's samples, the setpoint and the measurement
+     */
+    @Benchmark
+    public DataSeries append() {
+        int i = next++ % CAPACITY;
+        setpoint.append(y[i]);
+        measured.append(y[(i + 1) % CAPACITY]);
+        return measured;
+    }
+}
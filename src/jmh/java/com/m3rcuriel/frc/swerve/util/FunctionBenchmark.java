@@ -0,0 +1,60 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures drawing an analytic curve with {@link FunctionSeries}, repainting the same view and sampling a new one
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FunctionBenchmark {
+
+    static final int WIDTH = 800; // size of the rendered figure
+    static final int HEIGHT = 600;
+
+    private Figure figure;
+    private BufferedImage image;
+    private Graphics2D g2;
+    private int next;
+
+    @Setup
+    public void setup() {
+        figure = new Figure("Benchmark");
+        figure.setRendering(Figure.Rendering.RASTER);
+        figure.addFunction(x -> Math.sin(x * x / 20), 0, 100, Color.BLUE);
+
+        image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        g2 = image.createGraphics();
+        figure.render(g2, WIDTH, HEIGHT);
+    }
+
+    @TearDown
+    public void tearDown() {
+        g2.dispose();
+    }
+
+    /**
+     * Repainting without the view changing, which reuses the sampled points
+     */
+    @Benchmark
+    public BufferedImage repaint() {
+        figure.render(g2, WIDTH, HEIGHT);
+        return image;
+    }
+
+    /**
+     * Panning, so every frame samples the curve again
+     */
+    @Benchmark
+    public BufferedImage pan() {
+        double x = (next++ & 63) + 10;
+        figure.setXView(x, x + 20);
+        figure.render(g2, WIDTH, HEIGHT);
+        return image;
+    }
+}
@@ -0,0 +1,68 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures finding the sample nearest the mouse for the hover readout, on a sorted trace and on scatter data
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HoverBenchmark {
+
+    static final int WIDTH = 800; // size of the rendered figure
+    static final int HEIGHT = 600;
+
+    private static final int QUERIES = 1024; // mouse positions cycled through
+
+    @Param({"100000", "10000000"})
+    int points;
+
+    @Param({"false", "true"})
+    boolean scatter;
+
+    private Figure figure;
+    private final double[] mouseX = new double[QUERIES];
+    private final double[] mouseY = new double[QUERIES];
+    private int next;
+
+    @Setup
+    public void setup() {
+        double[] x = Signals.time(points);
+        double[] y = Signals.encoder(points);
+        if(scatter) { // the same values out of order
+            Random random = new Random(0);
+            for(int i = points - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                double t = x[i];
+                x[i] = x[j];
+                x[j] = t;
+            }
+        }
+
+        figure = new Figure("Benchmark", x, y, Color.BLUE, null);
+        figure.setRendering(Figure.Rendering.RASTER);
+        figure.renderImage(WIDTH, HEIGHT); // lay out the axes the mouse positions refer to
+
+        Random random = new Random(1);
+        for(int i = 0; i < QUERIES; i++) {
+            mouseX[i] = 70 + random.nextDouble() * (WIDTH - 140); // anywhere inside the axes
+            mouseY[i] = 60 + random.nextDouble() * (HEIGHT - 120);
+        }
+        figure.nearest(mouseX[0], mouseY[0], 32); // build the index
+        figure.awaitIndexes(); // large scatter grids are built in the background
+    }
+
+    /**
+     * One mouse move's lookup
+     */
+    @Benchmark
+    public NearestSample nearest() {
+        int i = next++ & (QUERIES - 1);
+        return figure.nearest(mouseX[i], mouseY[i], 32);
+    }
+}
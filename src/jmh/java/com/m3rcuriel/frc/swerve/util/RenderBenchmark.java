@@ -0,0 +1,76 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures painting a whole figure, and plotting its data alone, into a BufferedImage
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RenderBenchmark {
+
+    static final int WIDTH = 800; // size of the rendered image
+    static final int HEIGHT = 600;
+
+    @Param({"1000", "100000", "10000000"})
+    int points;
+
+    @Param({"false", "true"})
+    boolean markers;
+
+    @Param({"SHAPES", "RASTER", "RASTER_SMOOTH"})
+    Figure.Rendering rendering;
+
+    private Figure figure;
+    private BufferedImage image;
+    private Graphics2D g2;
+
+    @Setup
+    public void setup() {
+        figure = new Figure("Benchmark", null, Signals.encoder(points), Color.BLUE, markers ? Color.RED : null);
+        figure.setRendering(rendering);
+
+        image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        g2 = image.createGraphics();
+
+        figure.render(g2, WIDTH, HEIGHT); // lay out the ticks and chrome once
+    }
+
+    @TearDown
+    public void tearDown() {
+        g2.dispose();
+    }
+
+    /**
+     * Equivalent to SimplePlot.paintComponent, with the chrome already cached
+     */
+    @Benchmark
+    public BufferedImage paint() {
+        figure.render(g2, WIDTH, HEIGHT);
+        return image;
+    }
+
+    /**
+     * Only the data series, without bounds or chrome, reusing the pixel points from the last frame
+     */
+    @Benchmark
+    public BufferedImage plot() {
+        figure.plot(g2);
+        return image;
+    }
+
+    /**
+     * Only the data series, working out the pixel points again as if the data had changed
+     */
+    @Benchmark
+    public BufferedImage plotUncached() {
+        figure.invalidatePaths();
+        figure.plot(g2);
+        return image;
+    }
+}
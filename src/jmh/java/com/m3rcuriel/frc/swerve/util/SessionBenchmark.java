@@ -0,0 +1,89 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reopening a saved figure with {@link PlotSession}, against parsing the same samples from a CSV log
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SessionBenchmark {
+
+    @Param({"1000", "100000", "10000000"})
+    int points;
+
+    private File session;
+    private File csv;
+
+    @Setup
+    public void setup() throws IOException {
+        double[] x = Signals.time(points);
+        double[] y = Signals.encoder(points);
+
+        Figure figure = new Figure("Benchmark");
+        figure.addData(x, y, Color.BLUE, null);
+        session = File.createTempFile("benchmark", ".swps");
+        PlotSession.save(figure, session);
+
+        csv = File.createTempFile("benchmark", ".csv");
+        try(Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(csv), StandardCharsets.UTF_8))) {
+            for(int i = 0; i < points; i++)
+                out.write(x[i] + "," + y[i] + "\n");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        session.delete();
+        csv.delete();
+    }
+
+    /**
+     * Loading the session, which maps the samples without reading them
+     */
+    @Benchmark
+    public Figure loadSession() throws IOException {
+        return PlotSession.load(session);
+    }
+
+    /**
+     * Loading the session and reading every sample, as the first paint of the whole series does
+     */
+    @Benchmark
+    public double loadSessionAndRead() throws IOException {
+        Figure figure = PlotSession.load(session);
+        SeriesData data = figure.getSeries().get(0).snapshot();
+        double sum = 0;
+        for(int i = 0; i < data.size(); i++)
+            sum += data.getX(i) + data.getY(i);
+        return sum;
+    }
+
+    /**
+     * Parsing the CSV log into a new figure
+     */
+    @Benchmark
+    public Figure loadCsv() throws IOException {
+        double[] x = new double[points];
+        double[] y = new double[points];
+        try(BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(csv),
+                StandardCharsets.UTF_8))) {
+            String line;
+            for(int i = 0; i < points && (line = in.readLine()) != null; i++) {
+                int comma = line.indexOf(',');
+                x[i] = Double.parseDouble(line.substring(0, comma));
+                y[i] = Double.parseDouble(line.substring(comma + 1));
+            }
+        }
+
+        Figure figure = new Figure("Benchmark");
+        figure.addData(x, y, Color.BLUE, null);
+        return figure;
+    }
+}
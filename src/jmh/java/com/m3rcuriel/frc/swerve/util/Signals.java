@@ -0,0 +1,38 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.util.Random;
+
+/**
+ * Synthetic telemetry shared by the benchmarks
+ */
+class Signals {
+
+    private Signals() {
+    }
+
+    /**
+     * @param n number of samples
+     * @return timestamps of samples taken every 5ms, like a 200Hz control loop
+     */
+    static double[] time(int n) {
+        double[] t = new double[n];
+        for(int i = 0; i < n; i++)
+            t[i] = i * 0.005;
+        return t;
+    }
+
+    /**
+     * @param n number of samples
+     * @return a noisy wheel encoder velocity with occasional spikes
+     */
+    static double[] encoder(int n) {
+        Random random = new Random(254); // the same data every run
+        double[] y = new double[n];
+        for(int i = 0; i < n; i++) {
+            y[i] = 10 * Math.sin(i * 0.001) + random.nextGaussian() * 0.2;
+            if(random.nextInt(10000) == 0)
+                y[i] += 30;
+        }
+        return y;
+    }
+}
@@ -0,0 +1,67 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a frame of live data scrolling through a 10 second window, as a strip chart and by moving a zoomed view
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StripBenchmark {
+
+    private static final double PERIOD = 0.0001; // 10 kHz telemetry, 100000 samples in the window
+    private static final int PER_FRAME = 200; // samples arriving between frames
+
+    @Param({"false", "true"})
+    boolean strip;
+
+    private Figure figure;
+    private DataSeries series;
+    private double[] y;
+    private BufferedImage image;
+    private Graphics2D g2;
+    private long next;
+
+    @Setup
+    public void setup() {
+        y = Signals.encoder(1 << 20);
+        figure = new Figure("Benchmark");
+        figure.setRendering(Figure.Rendering.RASTER);
+        series = figure.addUniformSeries(200000, SeriesStorage.DOUBLE, 0, PERIOD, Color.BLUE, null);
+        if(strip)
+            figure.setStripChart(10);
+
+        image = new BufferedImage(RenderBenchmark.WIDTH, RenderBenchmark.HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        g2 = image.createGraphics();
+        for(int i = 0; i < 200000; i++) // fill the window before measuring
+            append();
+        frame();
+    }
+
+    @TearDown
+    public void tearDown() {
+        g2.dispose();
+    }
+
+    private void append() {
+        series.append(y[(int) (next++ & ((1 << 20) - 1))]);
+    }
+
+    /**
+     * One frame's worth of samples arriving, then the frame
+     */
+    @Benchmark
+    public BufferedImage frame() {
+        for(int i = 0; i < PER_FRAME; i++)
+            append();
+        if(!strip)
+            figure.setXView(next * PERIOD - 10, next * PERIOD);
+        figure.render(g2, RenderBenchmark.WIDTH, RenderBenchmark.HEIGHT);
+        return image;
+    }
+}
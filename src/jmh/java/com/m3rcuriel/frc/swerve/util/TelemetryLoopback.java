@@ -0,0 +1,147 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Streams synthetic telemetry through a {@link TelemetryReceiver} over the loopback interface and renders it headless,
+ * to measure ingestion throughput and packet to pixel latency without a robot.
+ *
+ * A sender thread sends one frame every millisecond, stamping each sample with the time it was sent. A render loop
+ * draws the figure at 60 frames per second, and after each frame records how long ago the newest sample it drew was
+ * sent.
+ *
+ * Usage: TelemetryLoopback [udp|tcp] [samples per second] [channels] [seconds]
+ */
+public class TelemetryLoopback {
+
+    private static final int FPS = 60;
+
+    public static void main(String[] args) throws Exception {
+        boolean tcp = args.length > 0 && args[0].equals("tcp");
+        int rate = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int channels = args.length > 2 ? Integer.parseInt(args[2]) : 12; // 4 modules x angle, velocity, current
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        Figure figure = new Figure("Loopback");
+        DataSeries[] series = new DataSeries[channels];
+
+        TelemetryReceiver receiver = new TelemetryReceiver(channels);
+        for(int c = 0; c < channels; c++) {
+            series[c] = figure.addSeries(rate, true, Color.BLUE, null); // a second of samples per channel at most
+            receiver.route(c, series[c]);
+        }
+
+        int port = tcp ? receiver.bindTcp(0) : receiver.bindUdp(0);
+        receiver.start();
+
+        InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        Sender sender = new Sender(tcp ? SocketChannel.open(address) : DatagramChannel.open().connect(address),
+                rate, channels, seconds);
+        Thread sending = new Thread(sender, "Telemetry sender");
+
+        long start = System.nanoTime();
+        sending.start();
+
+        // render like the repaint scheduler would, measuring how stale the newest drawn sample is
+        BufferedImage image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = image.createGraphics();
+        long[] latency = new long[seconds * FPS + FPS];
+        int frames = 0;
+
+        long period = TimeUnit.SECONDS.toNanos(1) / FPS;
+        long next = System.nanoTime();
+        while(sending.isAlive() && frames < latency.length) {
+            LockSupport.parkNanos(next - System.nanoTime());
+            next += period;
+
+            double newest = -1;
+            for(DataSeries s : series) {
+                SeriesSnapshot snapshot = s.snapshot(); // the figure sees at least this much when it renders
+                if(snapshot.size() > 0)
+                    newest = Math.max(newest, snapshot.getX(snapshot.size() - 1));
+            }
+
+            figure.render(g2, image.getWidth(), image.getHeight());
+
+            if(newest >= 0)
+                latency[frames++] = System.nanoTime() - (long) newest;
+        }
+
+        sending.join();
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        Thread.sleep(100); // let the last frames arrive
+        receiver.close();
+
+        long[] sorted = Arrays.copyOf(latency, frames);
+        Arrays.sort(sorted);
+
+        System.out.printf("%s: sent %d samples in %.2f s, received %d (%.0f samples/s), %d frames, %d dropped, "
+                + "%d socket failures%n", tcp ? "TCP" : "UDP", sender.sent, elapsed, receiver.getSamples(),
+                receiver.getSamples() / elapsed, receiver.getFrames(), receiver.getDropped(), receiver.getFailed());
+        if(frames > 0) {
+            System.out.printf("packet to pixel latency over %d rendered frames: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                    frames, millis(sorted, 0.5), millis(sorted, 0.99), sorted[frames - 1] / 1e6);
+        }
+    }
+
+    private static double millis(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.floor(percentile * sorted.length))] / 1e6;
+    }
+
+    /**
+     * Sends one frame every millisecond, round robin across the channels
+     */
+    private static class Sender implements Runnable {
+        private final WritableByteChannel channel;
+        private final int perFrame; // samples in each frame
+        private final int channels;
+        private final int frames; // frames to send in total
+        private final double[] signal = Signals.encoder(10000);
+
+        private long sent;
+
+        Sender(WritableByteChannel channel, int rate, int channels, int seconds) {
+            this.channel = channel;
+            this.perFrame = Math.max(1, Math.min(rate / 1000, TelemetryFrame.MAX_DATAGRAM_RECORDS));
+            this.channels = channels;
+            this.frames = seconds * 1000;
+        }
+
+        public void run() {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(TelemetryFrame.frameBytes(perFrame));
+            long next = System.nanoTime();
+
+            try {
+                for(int f = 0; f < frames; f++) {
+                    LockSupport.parkNanos(next - System.nanoTime());
+                    next += TimeUnit.MILLISECONDS.toNanos(1);
+
+                    buffer.clear();
+                    TelemetryFrame.writeHeader(buffer, perFrame);
+                    long now = System.nanoTime(); // x is the send time, so the renderer can work out latency
+                    for(int i = 0; i < perFrame; i++, sent++)
+                        TelemetryFrame.writeRecord(buffer, (int) (sent % channels), now,
+                                (float) signal[(int) (sent % signal.length)]);
+                    buffer.flip();
+
+                    while(buffer.hasRemaining())
+                        channel.write(buffer);
+                }
+                channel.close();
+            } catch(IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures laying out the axis ticks, and redrawing the whole chrome layer when it is invalidated
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TickBenchmark {
+
+    private Figure figure;
+    private GraphicsConfiguration gc;
+
+    private double max; // varied every call so nothing can be hoisted out
+
+    @Setup
+    public void setup() {
+        figure = new Figure("Benchmark", null, Signals.encoder(1000), Color.BLUE, null);
+
+        BufferedImage image = new BufferedImage(RenderBenchmark.WIDTH, RenderBenchmark.HEIGHT,
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = image.createGraphics();
+        gc = g2.getDeviceConfiguration();
+        figure.render(g2, RenderBenchmark.WIDTH, RenderBenchmark.HEIGHT);
+        g2.dispose();
+    }
+
+    /**
+     * Only the tick rounding for both axes
+     */
+    @Benchmark
+    public Figure layout() {
+        max = max > 1e6 ? 1 : max * 1.5 + 1;
+        figure.layoutXTicks(15, max, -max / 3);
+        figure.layoutYTicks(15, max, -max / 3);
+        return figure;
+    }
+
+    /**
+     * Tick layout plus drawing the axes, ticks and labels into the cached image
+     */
+    @Benchmark
+    public Figure chrome() {
+        figure.renderChrome(gc);
+        return figure;
+    }
+}
@@ -0,0 +1,48 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures how many bytes the current thread allocates, so the garbage created by painting a frame can be checked.
+ *
+ * This relies on the HotSpot extension of {@link ThreadMXBean}. On JVMs without it every measurement is -1.
+ */
+class AllocationCounter {
+
+    private static final com.sun.management.ThreadMXBean threads = findThreadBean();
+
+    private long start; // allocated bytes when the measurement started
+
+    private static com.sun.management.ThreadMXBean findThreadBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) bean;
+            if(hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled())
+                return hotspot;
+        }
+        return null;
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far, or -1 if unsupported
+     */
+    static long allocatedBytes() {
+        return threads == null ? -1 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Start measuring on the current thread
+     */
+    void start() {
+        start = allocatedBytes();
+    }
+
+    /**
+     * @return bytes allocated by the current thread since {@link #start()}, or -1 if unsupported
+     */
+    long stop() {
+        long end = allocatedBytes();
+        return end < 0 ? -1 : end - start;
+    }
+}
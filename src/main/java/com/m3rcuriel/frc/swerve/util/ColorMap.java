@@ -0,0 +1,82 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.awt.*;
+
+/**
+ * Maps a value between 0 and 1 onto a color, through a lookup table interpolated between a few color stops. Used to
+ * color the bins of a {@link DensitySeries}.
+ */
+public final class ColorMap {
+
+    /**
+     * Dark blue through green to yellow, perceptually even and readable in grayscale (an approximation of viridis)
+     */
+    public static final ColorMap VIRIDIS = new ColorMap(new Color(68, 1, 84), new Color(59, 82, 139),
+            new Color(33, 145, 140), new Color(94, 201, 98), new Color(253, 231, 37));
+
+    /**
+     * Black through red and yellow to white
+     */
+    public static final ColorMap HEAT = new ColorMap(Color.BLACK, Color.RED, Color.YELLOW, Color.WHITE);
+
+    /**
+     * Light gray to black, for printing
+     */
+    public static final ColorMap GRAY = new ColorMap(Color.LIGHT_GRAY, Color.BLACK);
+
+    private static final int LEVELS = 256; // entries in the lookup table
+
+    private final int[] table = new int[LEVELS]; // ARGB color of each level
+
+    /******************************************************************
+     * Constructor for a color map running evenly through a list of colors
+     * @param stops the colors, from the lowest value to the highest (at least two)
+     */
+    public ColorMap(Color... stops) {
+        if(stops.length < 2)
+            throw new Error("A color map needs at least two colors");
+
+        for(int i = 0; i < LEVELS; i++) {
+            double position = (double) i / (LEVELS - 1) * (stops.length - 1);
+            int stop = Math.min((int) position, stops.length - 2);
+            double t = position - stop;
+
+            Color a = stops[stop];
+            Color b = stops[stop + 1];
+            table[i] = 0xFF000000
+                    | mix(a.getRed(), b.getRed(), t) << 16
+                    | mix(a.getGreen(), b.getGreen(), t) << 8
+                    | mix(a.getBlue(), b.getBlue(), t);
+        }
+    }
+
+    /******************************************************************
+     * Constructor for a color map with a ready made lookup table, such as one read from a saved session
+     * @param table the ARGB color of each level, from the lowest value to the highest
+     */
+    ColorMap(int[] table) {
+        if(table.length != LEVELS)
+            throw new Error("A color map table needs " + LEVELS + " colors");
+        System.arraycopy(table, 0, this.table, 0, LEVELS);
+    }
+
+    /**
+     * @return a copy of the ARGB color of each level
+     */
+    int[] table() {
+        return table.clone();
+    }
+
+    private static int mix(int a, int b, double t) {
+        return (int) Math.round(a + (b - a) * t);
+    }
+
+    /**
+     * @param value a value between 0 and 1 (clamped if outside)
+     * @return its opaque ARGB color
+     */
+    public int argb(double value) {
+        int level = (int) (value * (LEVELS - 1) + 0.5);
+        return table[Math.max(0, Math.min(LEVELS - 1, level))];
+    }
+}
@@ -0,0 +1,711 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.awt.*;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A single data series on a {@link SimplePlot}. Samples are stored in preallocated primitive ring buffers of a fixed
+ * capacity, so once a series is full the oldest samples are overwritten rather than the arrays growing.
+ *
+ * Appending never allocates, which allows live telemetry to be streamed into a plot at control loop rates without
+ * creating garbage, and keeps the cost of painting a series bounded no matter how long it has been running.
+ *
+ * A series either has explicit x values, or uses the running sample number as its x value (the same as passing a null
+ * x array to {@link SimplePlot#addData(double[], double[], Color, Color)}). Evenly sampled series can instead use a
+ * uniform time base, where the x value of each sample is computed from a start time and period and never stored.
+ *
+ * Values are stored in {@link SeriesColumn}s, either as doubles or floats, on or off the heap (see
+ * {@link SeriesStorage}).
+ *
+ * The bounds of the held samples are maintained as samples are added, so they never have to be found by rescanning
+ * the data. Until the buffers are full this is a running min/max. Once samples start being overwritten, sliding window
+ * extremes are tracked with monotonic deques instead, which are only allocated the first time that happens.
+ *
+ * Very long series can also keep a {@link SummaryPyramid} of min/max summaries (see {@link #enableSummary(long)}), so
+ * a zoomed out view of millions of samples is drawn in time proportional to the width of the plot.
+ *
+ * A series has a single writer. One producer thread may append while the renderer reads the series from another
+ * thread: every append publishes the new sample count through a volatile field, and the renderer only reads the samples
+ * published when it takes a {@link SeriesSnapshot}. Appending a batch publishes once at the end of the batch.
+ *
+ * {@link DerivedSeries} computed from a series are fed each sample as it is written, on the appending thread, and are
+ * published along with it.
+ */
+public class DataSeries extends PlotSeries implements SeriesData, RangeSummary {
+
+    private final SeriesColumn x; // x ring buffer (null if x is computed from the sample number)
+    private final SeriesColumn y; // y ring buffer
+
+    private final boolean indexed; // true if x is just the index, false if samples have x values
+    private final double xStart; // x of the first sample when x is computed
+    private final double xStep; // x distance between samples when x is computed
+
+    private final int capacity; // maximum number of samples held at once
+
+    private int head; // slot the next sample is written to
+    private int size; // number of valid samples in the buffers
+    private long count; // total samples ever appended, used for implicit x values
+    private long base; // added to count to number samples for readers, moved past every earlier number when cleared
+
+    private double minY, maxY; // running bounds, valid until samples are overwritten
+    private double minX, maxX;
+    private boolean xSorted; // true while x values have never decreased
+
+    private MonotonicDeque minYDeque, maxYDeque; // sliding window bounds, allocated once samples are overwritten
+    private MonotonicDeque minXDeque, maxXDeque; // only needed when x is not sorted
+
+    private volatile SummaryPyramid summary; // min/max summaries of the y values, null unless enabled
+
+    private volatile long published; // sample count visible to readers, written after the samples themselves
+
+    // slots of the state shared with readers besides the count, written with release stores (plus a fence for the
+    // overwrite marker, which must be seen before the writes after it rather than those before)
+    private static final int SIZE = 0; // number of samples held as of the last publish
+    private static final int MIN_X = 1, MAX_X = 2, MIN_Y = 3, MAX_Y = 4; // bounds as of the last publish, as bits
+    private static final int STARTED = 5, FINISHED = 6; // number of publishes begun and completed
+    private static final int OVERWRITING = 7; // sequence number of the newest sample the producer began overwriting
+    private static final int BASE = 8; // base as of the last publish
+    private final AtomicLongArray shared = new AtomicLongArray(9);
+    private long publishes; // number of publishes, only touched by the appending thread
+
+    private final SeriesSnapshot snapshot = new SeriesSnapshot(this); // reused by the renderer every frame
+
+    private static final DerivedSeries[] NO_DERIVED = new DerivedSeries[0];
+    private DerivedSeries[] derived = NO_DERIVED; // series computed from this one, only touched by the appending thread
+
+    /******************************************************************
+     * Constructor for a series with a fixed capacity
+     * @param capacity the maximum number of samples to hold before overwriting the oldest
+     * @param explicitX whether samples have their own x values (false uses the sample number)
+     */
+    DataSeries(int capacity, boolean explicitX) {
+        this(capacity, SeriesStorage.DOUBLE, explicitX);
+    }
+
+    /******************************************************************
+     * Constructor for a series with a fixed capacity and chosen storage
+     * @param capacity the maximum number of samples to hold before overwriting the oldest
+     * @param storage how the values are stored
+     * @param explicitX whether samples have their own x values (false uses the sample number)
+     */
+    DataSeries(int capacity, SeriesStorage storage, boolean explicitX) {
+        this(capacity, storage, explicitX ? storage.create(capacity) : null, !explicitX, 0, 1);
+    }
+
+    /******************************************************************
+     * Constructor for an evenly sampled series, whose x values are never stored
+     * @param capacity the maximum number of samples to hold before overwriting the oldest
+     * @param storage how the y values are stored
+     * @param start x value of the first sample
+     * @param period x distance between samples
+     */
+    DataSeries(int capacity, SeriesStorage storage, double start, double period) {
+        this(capacity, storage, null, false, start, period);
+    }
+
+    /******************************************************************
+     * Constructor for an empty series whose x values are held or computed the same way as another's
+     * @param like the series to copy the x values of
+     * @param capacity the maximum number of samples to hold before overwriting the oldest
+     */
+    DataSeries(DataSeries like, int capacity) {
+        this(capacity, SeriesStorage.DOUBLE, like.x == null ? null : SeriesStorage.DOUBLE.create(capacity),
+                like.indexed, like.xStart, like.xStep);
+    }
+
+    private DataSeries(int capacity, SeriesStorage storage, SeriesColumn x, boolean indexed, double start,
+                       double period) {
+        if(capacity <= 0)
+            throw new Error("Series capacity must be positive");
+
+        this.capacity = capacity;
+        this.y = storage.create(capacity);
+        this.x = x;
+        this.indexed = indexed;
+        this.xStart = start;
+        this.xStep = period;
+
+        clear();
+    }
+
+    /******************************************************************
+     * Constructor for a full series around columns which already hold its samples, such as columns mapped from a
+     * saved {@link PlotSession}. Slot s of the columns holds the sample whose sequence number is s modulo their length.
+     * @param x column of x values (null if x is computed)
+     * @param y column of y values, as long as the series' capacity
+     * @param indexed true if x is the sample number
+     * @param start x value of the first sample when x is computed
+     * @param period x distance between samples when x is computed
+     * @param count total samples ever appended, so sequence numbers carry on from the saved series
+     * @param xSorted true if the x values held never decrease
+     * @param bounds the smallest x, largest x, smallest y and largest y held
+     */
+    DataSeries(SeriesColumn x, SeriesColumn y, boolean indexed, double start, double period, long count,
+               boolean xSorted, double[] bounds) {
+        if(y.length() <= 0 || x != null && x.length() != y.length() || count < y.length())
+            throw new Error("Columns don't hold a full series");
+
+        this.capacity = y.length();
+        this.y = y;
+        this.x = x;
+        this.indexed = indexed;
+        this.xStart = start;
+        this.xStep = period;
+
+        // every slot is full, so the next sample overwrites the oldest
+        this.count = count;
+        head = (int) (count % capacity);
+        size = capacity;
+        this.xSorted = xSorted;
+        minX = bounds[0];
+        maxX = bounds[1];
+        minY = bounds[2];
+        maxY = bounds[3];
+
+        shared.lazySet(OVERWRITING, count - capacity - 1); // nothing overwritten since the columns were filled
+        publish();
+    }
+
+    /**
+     * Append a sample to a series with explicit x values
+     * @param x the x value of the sample
+     * @param y the y value of the sample
+     */
+    public void append(double x, double y) {
+        if(this.x == null)
+            throw new Error(indexed ? "Series does not have x data" : "Series has a uniform time base");
+
+        write(x, y);
+        publish();
+    }
+
+    /**
+     * Append a sample to a series whose x value is the sample number or comes from a uniform time base
+     * @param y the y value of the sample
+     */
+    public void append(double y) {
+        if(this.x != null)
+            throw new Error("Series requires x and y data");
+
+        write(0, y);
+        publish();
+    }
+
+    /**
+     * Append a run of samples at once
+     * @param x array holding the x values (must be null if the series doesn't store x values)
+     * @param y array holding the y values
+     * @param off index of the first sample to copy
+     * @param len number of samples to copy
+     */
+    public void appendBatch(double[] x, double[] y, int off, int len) {
+        if((x == null) != (this.x == null))
+            throw new Error(this.x == null ? "Series does not store x data" : "Series requires x and y data");
+
+        if(len > capacity) { // only the newest samples would survive anyway
+            off += len - capacity;
+            len = capacity;
+        }
+
+        for(int i = off; i < off + len; i++)
+            write(x == null ? 0 : x[i], y[i]);
+        publish();
+    }
+
+    /**
+     * Make everything written so far visible to readers on other threads.
+     *
+     * The count, size and bounds are published as a set. A reader notes {@link #publishFinished()}, reads them, and
+     * reads them again if {@link #publishStarted()} has moved on since, as they may then belong to different
+     * publishes. Each is a release store, so a reader which sees any of them also sees the start of its publish.
+     */
+    void publish() {
+        long n = ++publishes;
+        shared.lazySet(STARTED, n);
+
+        shared.lazySet(SIZE, size);
+        shared.lazySet(BASE, base);
+        shared.lazySet(MIN_X, Double.doubleToRawLongBits(getMinX()));
+        shared.lazySet(MAX_X, Double.doubleToRawLongBits(getMaxX()));
+        shared.lazySet(MIN_Y, Double.doubleToRawLongBits(getMinY()));
+        shared.lazySet(MAX_Y, Double.doubleToRawLongBits(getMaxY()));
+
+        published = count; // volatile write, so the samples above are visible once this is
+        shared.lazySet(FINISHED, n);
+
+        for(DerivedSeries series : derived)
+            series.publish();
+    }
+
+    /**
+     * Write a sample into the ring, updating the bounds as it goes
+     * @param x the x value (ignored if the series has no x data)
+     * @param y the y value
+     */
+    void write(double x, double y) {
+        if(this.x != null && size > 0 && x < this.x.get(slot(size - 1))) {
+            if(xSorted && minYDeque != null) // x bounds now need deques as well
+                trackWindow(true);
+            xSorted = false;
+        }
+
+        if(size == capacity) { // the oldest sample is about to be overwritten
+            shared.lazySet(OVERWRITING, base + count - capacity); // before the slot changes, so readers can tell
+            VarHandle.storeStoreFence(); // a release store only orders what came before it, not the slot writes after
+            evict(head);
+        }
+
+        if(this.x != null) {
+            this.x.set(head, x);
+            x = this.x.get(head); // bound what was actually stored, after any rounding
+        }
+        this.y.set(head, y);
+        y = this.y.get(head);
+
+        if(summary != null)
+            summary.add(count, y, size == 0);
+
+        if(minYDeque != null) {
+            minYDeque.push(head, this.y);
+            maxYDeque.push(head, this.y);
+            if(minXDeque != null) {
+                minXDeque.push(head, this.x);
+                maxXDeque.push(head, this.x);
+            }
+        } else {
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+        }
+
+        head++;
+        if(head == capacity)
+            head = 0;
+
+        size = Math.min(size + 1, capacity);
+        count++;
+
+        for(DerivedSeries series : derived)
+            series.sourceWritten();
+    }
+
+    /**
+     * Remove a sample from the bounds before it is overwritten
+     * @param slot the slot being overwritten
+     */
+    private void evict(int slot) {
+        if(minYDeque == null) // running bounds can't forget samples, so switch over to the sliding window
+            trackWindow(this.x != null && !xSorted);
+
+        minYDeque.evict(slot);
+        maxYDeque.evict(slot);
+        if(minXDeque != null) {
+            minXDeque.evict(slot);
+            maxXDeque.evict(slot);
+        }
+    }
+
+    /**
+     * Start tracking bounds with sliding window deques, seeded with the samples currently held
+     * @param trackX true if x bounds also need deques
+     */
+    private void trackWindow(boolean trackX) {
+        if(minYDeque == null) {
+            minYDeque = new MonotonicDeque(capacity, false);
+            maxYDeque = new MonotonicDeque(capacity, true);
+            seed(minYDeque, maxYDeque, this.y);
+        }
+
+        if(trackX && minXDeque == null) {
+            minXDeque = new MonotonicDeque(capacity, false);
+            maxXDeque = new MonotonicDeque(capacity, true);
+            seed(minXDeque, maxXDeque, this.x);
+        }
+    }
+
+    /**
+     * Push every held sample into a pair of deques
+     */
+    private void seed(MonotonicDeque min, MonotonicDeque max, SeriesColumn values) {
+        for(int i = 0; i < size; i++) {
+            min.push(slot(i), values);
+            max.push(slot(i), values);
+        }
+    }
+
+    /**
+     * Start keeping min/max summaries of the y values, so drawing many samples per pixel doesn't need to read them all.
+     * The finest summaries that fit in the given memory are used. Must be called from the thread appending samples.
+     * @param maxBytes the most memory the summaries may use
+     * @return the memory used by the summaries in bytes
+     */
+    public long enableSummary(long maxBytes) {
+        int baseBits = SummaryPyramid.FANOUT_BITS; // blocks smaller than this aren't worth summarizing
+        while(SummaryPyramid.bytes(capacity, baseBits) > maxBytes) {
+            if((1L << baseBits) >= capacity)
+                throw new Error("Summaries of this series need more than " + maxBytes + " bytes");
+            baseBits++;
+        }
+
+        SummaryPyramid pyramid = new SummaryPyramid(capacity, baseBits);
+        for(long seq = count - size; seq < count; seq++) // summarize what is already held
+            pyramid.add(seq, yAt(seq), seq == count - size);
+
+        summary = pyramid; // volatile write, so readers only see it once it is filled in
+        return pyramid.bytes();
+    }
+
+    /**
+     * Stop keeping summaries and release their memory. Must be called from the thread appending samples.
+     */
+    public void disableSummary() {
+        summary = null;
+    }
+
+    /**
+     * @return the memory used by the summaries in bytes, or 0 if they aren't kept
+     */
+    public long summaryBytes() {
+        SummaryPyramid pyramid = summary;
+        return pyramid == null ? 0 : pyramid.bytes();
+    }
+
+    /**
+     * @return true if the series keeps min/max summaries
+     */
+    public boolean isSummarized() {
+        return summary != null;
+    }
+
+    public void rangeY(int from, int to, double[] out) {
+        rangeAt(count - size + from, count - size + to, out);
+    }
+
+    /**
+     * Find the bounds of a range of samples by their sequence numbers, for readers working from a snapshot
+     * @param from sequence number of the first sample
+     * @param to sequence number after the last sample
+     * @param out receives the minimum in out[0] and the maximum in out[1]
+     */
+    void rangeAt(long from, long to, double[] out) {
+        SummaryPyramid pyramid = summary;
+        if(pyramid != null) {
+            pyramid.range(this, from, to, out);
+            return;
+        }
+
+        out[0] = Double.MAX_VALUE;
+        out[1] = -Double.MAX_VALUE;
+        for(long seq = from; seq < to; seq++) {
+            out[0] = Math.min(out[0], yAt(seq));
+            out[1] = Math.max(out[1], yAt(seq));
+        }
+    }
+
+    /**
+     * Remove all samples from the series without releasing its buffers
+     */
+    public void clear() {
+        if(count > 0) // number what comes next after everything held, so readers see the samples they held went away
+            base += count + 1;
+        head = 0;
+        size = 0;
+        count = 0;
+
+        minY = minX = Double.MAX_VALUE;
+        maxY = maxX = -Double.MAX_VALUE;
+        xSorted = x != null || xStep >= 0; // computed x values are sorted unless the period runs backwards
+
+        // the running bounds are exact again until the buffers next fill up
+        minYDeque = maxYDeque = null;
+        minXDeque = maxXDeque = null;
+
+        shared.lazySet(OVERWRITING, base - 1); // every earlier sample is gone, and nothing after it is overwritten yet
+        VarHandle.storeStoreFence(); // before the freed slots are written again
+        publish();
+
+        for(DerivedSeries series : derived)
+            series.sourceCleared();
+    }
+
+    /**
+     * Start an empty series at a later sequence number, so its samples line up with those of another series
+     * @param seq sequence number the next sample gets
+     */
+    void startAt(long seq) {
+        count = seq;
+        head = (int) (seq % capacity);
+        publish(); // nothing was overwritten, as clear() left the series empty
+    }
+
+    /**
+     * Feed every sample written from now on to a derived series. Only called from the appending thread.
+     * @param series the series to feed
+     */
+    void subscribe(DerivedSeries series) {
+        DerivedSeries[] grown = Arrays.copyOf(derived, derived.length + 1);
+        grown[derived.length] = series;
+        derived = grown;
+    }
+
+    /**
+     * Stop feeding samples to a derived series. Only called from the appending thread.
+     * @param series the series to stop feeding
+     */
+    void unsubscribe(DerivedSeries series) {
+        DerivedSeries[] kept = new DerivedSeries[derived.length];
+        int n = 0;
+        for(DerivedSeries other : derived)
+            if(other != series)
+                kept[n++] = other;
+        derived = n == 0 ? NO_DERIVED : Arrays.copyOf(kept, n);
+    }
+
+    /**
+     * @return the number of samples currently held
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the total number of samples ever written, including any not published yet. Only for the appending thread.
+     */
+    long count() {
+        return count;
+    }
+
+    /**
+     * @return the maximum number of samples held before the oldest is overwritten
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return true if samples have x values (stored or from a uniform time base), false if x is the sample number
+     */
+    public boolean hasX() {
+        return !indexed;
+    }
+
+    /**
+     * @return true if samples store their own x values, false if x is computed
+     */
+    public boolean storesX() {
+        return x != null;
+    }
+
+    /**
+     * @return bytes taken by each stored value, 8 for doubles or 4 for floats
+     */
+    int valueBytes() {
+        return (int) (y.bytes() / y.length());
+    }
+
+    /**
+     * @return x value of the first sample ever appended when x is computed
+     */
+    double xStart() {
+        return xStart;
+    }
+
+    /**
+     * @return x distance between samples when x is computed
+     */
+    double xStep() {
+        return xStep;
+    }
+
+    /**
+     * @return the memory used by the sample values, in bytes
+     */
+    public long bytes() {
+        return y.bytes() + (x == null ? 0 : x.bytes());
+    }
+
+    /**
+     * Gets the x value of a held sample
+     * @param i index of the sample, where 0 is the oldest held sample
+     * @return the x value
+     */
+    public double getX(int i) {
+        if(x == null)
+            return xStart + (count - size + i) * xStep; // samples are numbered from the first one ever appended
+
+        return x.get(slot(i));
+    }
+
+    /**
+     * Gets the y value of a held sample
+     * @param i index of the sample, where 0 is the oldest held sample
+     * @return the y value
+     */
+    public double getY(int i) {
+        return y.get(slot(i));
+    }
+
+    /**
+     * @return the smallest y value held (Double.MAX_VALUE if empty)
+     */
+    public double getMinY() {
+        return minYDeque == null ? minY : y.get(minYDeque.peek());
+    }
+
+    /**
+     * @return the largest y value held (-Double.MAX_VALUE if empty)
+     */
+    public double getMaxY() {
+        return maxYDeque == null ? maxY : y.get(maxYDeque.peek());
+    }
+
+    /**
+     * @return the smallest x value held (Double.MAX_VALUE if empty)
+     */
+    public double getMinX() {
+        if(size == 0)
+            return Double.MAX_VALUE;
+        if(x == null) // computed x values run from the oldest sample to the newest
+            return Math.min(getX(0), getX(size - 1));
+        if(xSorted) // the oldest sample is the smallest
+            return getX(0);
+        return minXDeque == null ? minX : x.get(minXDeque.peek());
+    }
+
+    /**
+     * @return the largest x value held (-Double.MAX_VALUE if empty)
+     */
+    public double getMaxX() {
+        if(size == 0)
+            return -Double.MAX_VALUE;
+        if(x == null)
+            return Math.max(getX(0), getX(size - 1));
+        if(xSorted)
+            return getX(size - 1);
+        return maxXDeque == null ? maxX : x.get(maxXDeque.peek());
+    }
+
+    /**
+     * @return true if the x values held never decrease, so they can be searched
+     */
+    public boolean isXSorted() {
+        return xSorted;
+    }
+
+    /**
+     * Capture the published samples for the renderer. Only one thread may use the returned snapshot.
+     * @return this series' snapshot, refreshed
+     */
+    SeriesSnapshot snapshot() {
+        snapshot.take();
+        return snapshot;
+    }
+
+    PlotSeries freeze() {
+        return new FrozenSeries(this);
+    }
+
+    long version() {
+        return publishFinished(); // unlike the sample count, never goes back when the series is cleared
+    }
+
+    long samplesAppended() {
+        return shared.get(BASE) + published; // every sample gets the next sequence number
+    }
+
+    boolean isConsistent() {
+        return snapshot.isConsistent();
+    }
+
+    long published() {
+        return published;
+    }
+
+    /**
+     * @return the number of samples held as of the last publish
+     */
+    int publishedSize() {
+        return (int) shared.get(SIZE);
+    }
+
+    /**
+     * @return what readers add to a sample's position in the ring buffers, as of the last publish, to get the sequence
+     * number they know it by. It moves past every earlier sequence number when the series is cleared, so readers
+     * which cache what they have seen of a series by sequence number find a gap rather than reused numbers.
+     */
+    long publishedBase() {
+        return shared.get(BASE);
+    }
+
+    /**
+     * @return the number of publishes begun, see {@link #publish()}
+     */
+    long publishStarted() {
+        return shared.get(STARTED);
+    }
+
+    /**
+     * @return the number of publishes completed, see {@link #publish()}
+     */
+    long publishFinished() {
+        return shared.get(FINISHED);
+    }
+
+    /**
+     * @return the sequence number of the newest sample the producer has started to overwrite. Samples after it are
+     * intact.
+     */
+    long overwriting() {
+        return shared.get(OVERWRITING);
+    }
+
+    double publishedMinX() {
+        return Double.longBitsToDouble(shared.get(MIN_X));
+    }
+
+    double publishedMaxX() {
+        return Double.longBitsToDouble(shared.get(MAX_X));
+    }
+
+    double publishedMinY() {
+        return Double.longBitsToDouble(shared.get(MIN_Y));
+    }
+
+    double publishedMaxY() {
+        return Double.longBitsToDouble(shared.get(MAX_Y));
+    }
+
+    /**
+     * Gets an x value by the sequence number of its sample, for readers working from a snapshot
+     * @param seq the number of samples appended before this one
+     * @return the x value
+     */
+    double xAt(long seq) {
+        if(x == null)
+            return xStart + seq * xStep;
+
+        return x.get((int) (seq % capacity)); // the head of the ring always sits at count % capacity
+    }
+
+    /**
+     * Gets a y value by the sequence number of its sample, for readers working from a snapshot
+     * @param seq the number of samples appended before this one
+     * @return the y value
+     */
+    double yAt(long seq) {
+        return y.get((int) (seq % capacity));
+    }
+
+    /**
+     * Converts a sample index into a position in the ring buffers
+     * @param i index of the sample, where 0 is the oldest held sample
+     * @return the slot in the buffers
+     */
+    private int slot(int i) {
+        int s = head - size + i;
+        return s < 0 ? s + capacity : s;
+    }
+}
@@ -0,0 +1,337 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.util.Arrays;
+
+/**
+ * Reduces a data series to the points that are actually visible at screen resolution before it is drawn, so the cost
+ * of painting a series depends on the width of the plot rather than the number of samples in it.
+ *
+ * Points are scaled into pixels with a linear mapping (pixel = offset + scale * value for x, offset - scale * value
+ * for y) and written into reusable coordinate buffers, so decimating does not allocate once the buffers have grown to
+ * fit the plot.
+ *
+ * Series with few enough points to fit the plot are passed through untouched. Only a range of the series can be
+ * decimated, so samples outside the visible part of a zoomed plot are never visited.
+ */
+public class Decimator {
+
+    /**
+     * The algorithm used to pick which points are kept
+     */
+    public enum Mode {
+        /**
+         * Keep every point
+         */
+        NONE,
+        /**
+         * Keep the first, last, minimum and maximum point of each pixel column, so spikes are never lost
+         */
+        MIN_MAX,
+        /**
+         * Largest-Triangle-Three-Buckets, which keeps the points that best preserve the visual shape of the line
+         */
+        LTTB
+    }
+
+    private static final int POINTS_PER_COLUMN = 4; // first, min, max, last
+
+    private Mode mode;
+
+    private double[] xOut = new double[0]; // pixel x of each kept point
+    private double[] yOut = new double[0]; // pixel y of each kept point
+    private int size; // number of kept points
+
+    private final double[] range = new double[2]; // bounds of a range of samples, from a summary
+
+    private double xOffset, xScale; // linear mapping from data into pixels
+    private double yOffset, yScale;
+
+    /******************************************************************
+     * Constructor for a decimator using a given algorithm
+     * @param mode the algorithm used to pick kept points
+     */
+    public Decimator(Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Change the algorithm used to pick kept points
+     * @param mode the new algorithm
+     */
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * @return the algorithm used to pick kept points
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Scale a series into pixels, keeping only the points needed to draw it
+     * @param series the series to decimate
+     * @param xOffset pixel position of x = 0
+     * @param xScale pixels per unit of x
+     * @param yOffset pixel position of y = 0
+     * @param yScale pixels per unit of y (positive values are drawn upwards)
+     * @param width width of the plot area in pixels
+     */
+    public void decimate(SeriesData series, double xOffset, double xScale, double yOffset, double yScale,
+                         int width) {
+        decimate(series, 0, series.size(), xOffset, xScale, yOffset, yScale, width);
+    }
+
+    /**
+     * Scale a range of a series into pixels, keeping only the points needed to draw it
+     * @param series the series to decimate
+     * @param from index of the first sample to draw
+     * @param to index after the last sample to draw
+     * @param xOffset pixel position of x = 0
+     * @param xScale pixels per unit of x
+     * @param yOffset pixel position of y = 0
+     * @param yScale pixels per unit of y (positive values are drawn upwards)
+     * @param width width of the plot area in pixels
+     */
+    public void decimate(SeriesData series, int from, int to, double xOffset, double xScale, double yOffset,
+                         double yScale, int width) {
+        this.xOffset = xOffset;
+        this.xScale = xScale;
+        this.yOffset = yOffset;
+        this.yScale = yScale;
+
+        int n = to - from;
+        int limit = POINTS_PER_COLUMN * Math.max(width, 1);
+
+        size = 0;
+        if(n <= 0)
+            return;
+
+        ensureCapacity(Math.min(n, limit + POINTS_PER_COLUMN));
+
+        if(mode == Mode.NONE || n <= limit) { // already fits, don't throw anything away
+            ensureCapacity(n);
+            for(int i = from; i < to; i++)
+                emit(series, i);
+        } else if(mode == Mode.MIN_MAX && series instanceof RangeSummary && ((RangeSummary) series).isSummarized()
+                && series.isXSorted() && xScale > 0) {
+            summarized(series, (RangeSummary) series, from, to);
+        } else if(mode == Mode.MIN_MAX) {
+            minMax(series, from, to);
+        } else {
+            largestTriangle(series, from, to, limit / 2); // two points per column looks equivalent with LTTB
+        }
+    }
+
+    /**
+     * Collapse each run of points that land in the same pixel column into its first, min, max and last points.
+     * Working on runs rather than absolute columns means series with unsorted x values still draw correctly.
+     * @param series the series to decimate
+     * @param from index of the first point to decimate
+     * @param to index after the last point to decimate
+     */
+    private void minMax(SeriesData series, int from, int to) {
+        int column = 0;
+        int first = 0, min = 0, max = 0; // indices of the interesting points in the current column
+        double minY = 0, maxY = 0;
+
+        for(int i = from; i < to; i++) {
+            int c = (int) Math.floor(pixelX(series, i));
+            double y = series.getY(i);
+
+            if(i == from || c != column) {
+                if(i != from)
+                    flush(series, first, min, max, i - 1);
+
+                column = c;
+                first = min = max = i;
+                minY = maxY = y;
+            } else if(y < minY) {
+                min = i;
+                minY = y;
+            } else if(y > maxY) {
+                max = i;
+                maxY = y;
+            }
+        }
+
+        flush(series, first, min, max, to - 1);
+    }
+
+    /**
+     * Min/max decimation for sorted series that can summarize ranges of samples. The end of each pixel column is found
+     * by binary search and its bounds from the summaries, so only a few samples are read per column however many it
+     * spans.
+     * @param series the series to decimate
+     * @param summary the same series, as a range summary
+     * @param from index of the first point to decimate
+     * @param to index after the last point to decimate
+     */
+    private void summarized(SeriesData series, RangeSummary summary, int from, int to) {
+        double[] range = this.range;
+
+        int i = from;
+        while(i < to) {
+            double px = pixelX(series, i);
+            double boundary = (Math.floor(px) + 1 - xOffset) / xScale; // x value where the next column starts
+            int end = Math.min(Math.max(series.lowerBound(boundary), i + 1), to);
+
+            summary.rangeY(i, end, range);
+
+            ensureCapacity(size + POINTS_PER_COLUMN);
+            emit(series, i);
+            if(end - i > 2) { // the extremes are drawn as a vertical run at the start of the column
+                emit(px, yOffset - yScale * range[0]);
+                emit(px, yOffset - yScale * range[1]);
+            }
+            if(end - i > 1)
+                emit(series, end - 1);
+
+            i = end;
+        }
+    }
+
+    /**
+     * Emit the interesting points of a column in the order they were sampled, skipping duplicates
+     */
+    private void flush(SeriesData series, int first, int min, int max, int last) {
+        int lo = Math.min(min, max);
+        int hi = Math.max(min, max);
+
+        ensureCapacity(size + POINTS_PER_COLUMN);
+
+        emit(series, first);
+        if(lo != first)
+            emit(series, lo);
+        if(hi != lo)
+            emit(series, hi);
+        if(last != hi)
+            emit(series, last);
+    }
+
+    /**
+     * Largest-Triangle-Three-Buckets downsampling. The first and last points are always kept, and from each bucket in
+     * between the point forming the largest triangle with the previously kept point and the average of the next bucket
+     * is chosen.
+     * @param series the series to decimate
+     * @param from index of the first point to decimate
+     * @param to index after the last point to decimate
+     * @param threshold number of points to keep
+     */
+    private void largestTriangle(SeriesData series, int from, int to, int threshold) {
+        int n = to - from;
+        threshold = Math.max(threshold, 3);
+        ensureCapacity(threshold);
+
+        double bucketSize = (double) (n - 2) / (threshold - 2);
+
+        int a = from; // last kept point
+        emit(series, a);
+
+        for(int b = 0; b < threshold - 2; b++) {
+            // average of the next bucket, which the triangle is anchored to
+            int nextStart = from + (int) Math.floor((b + 1) * bucketSize) + 1;
+            int nextEnd = Math.min(from + (int) Math.floor((b + 2) * bucketSize) + 1, to);
+
+            double avgX = 0, avgY = 0;
+            for(int i = nextStart; i < nextEnd; i++) {
+                avgX += pixelX(series, i);
+                avgY += pixelY(series, i);
+            }
+            int span = nextEnd - nextStart;
+            if(span > 0) {
+                avgX /= span;
+                avgY /= span;
+            } else { // last bucket anchors to the final point
+                avgX = pixelX(series, to - 1);
+                avgY = pixelY(series, to - 1);
+            }
+
+            int start = from + (int) Math.floor(b * bucketSize) + 1;
+            int end = from + (int) Math.floor((b + 1) * bucketSize) + 1;
+
+            double ax = pixelX(series, a);
+            double ay = pixelY(series, a);
+
+            double maxArea = -1;
+            int chosen = start;
+            for(int i = start; i < end; i++) {
+                double area = Math.abs((ax - avgX) * (pixelY(series, i) - ay) - (ax - pixelX(series, i)) * (avgY - ay));
+                if(area > maxArea) {
+                    maxArea = area;
+                    chosen = i;
+                }
+            }
+
+            emit(series, chosen);
+            a = chosen;
+        }
+
+        emit(series, to - 1);
+    }
+
+    /**
+     * Add a point of the series to the output
+     * @param series the series
+     * @param i the index of the point
+     */
+    private void emit(SeriesData series, int i) {
+        xOut[size] = pixelX(series, i);
+        yOut[size] = pixelY(series, i);
+        size++;
+    }
+
+    /**
+     * Add a point already in pixels to the output
+     */
+    private void emit(double x, double y) {
+        xOut[size] = x;
+        yOut[size] = y;
+        size++;
+    }
+
+    private double pixelX(SeriesData series, int i) {
+        double x = series.hasX() ? series.getX(i) : i; // series without x are spread by index
+        return xOffset + xScale * x;
+    }
+
+    private double pixelY(SeriesData series, int i) {
+        return yOffset - yScale * series.getY(i);
+    }
+
+    /**
+     * Grow the output buffers if needed
+     * @param n the number of points that must fit
+     */
+    private void ensureCapacity(int n) {
+        if(xOut.length < n) {
+            int length = Math.max(n, xOut.length * 2);
+            xOut = Arrays.copyOf(xOut, length);
+            yOut = Arrays.copyOf(yOut, length);
+        }
+    }
+
+    /**
+     * @return the number of kept points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param i index of a kept point
+     * @return its x position in pixels
+     */
+    public double getX(int i) {
+        return xOut[i];
+    }
+
+    /**
+     * @param i index of a kept point
+     * @return its y position in pixels
+     */
+    public double getY(int i) {
+        return yOut[i];
+    }
+}
@@ -0,0 +1,475 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A scatter plot of far more points than could ever be drawn one by one, shown as a heatmap of how many points fall in
+ * each cell of a grid. Such as commanded against measured wheel velocity over a season of logs.
+ *
+ * Points are never stored. Each appended point only increments the count of the bin it falls in, so a series of any
+ * number of points takes the same memory, and appending is O(1). When drawn, the counts are mapped through a
+ * {@link ColorMap} on a log scale (so sparse outliers stay visible next to dense clusters) into an image with one pixel
+ * per bin, which is scaled onto the plot in one blit. Grids about the size of the plot in pixels look best.
+ *
+ * Bulk loads can be binned in parallel with {@link #appendAll(double[], double[])}, which splits the points across
+ * the common fork/join pool.
+ *
+ * Like {@link DataSeries}, a density series has a single writer, which may append while the figure is rendered on
+ * another thread.
+ */
+public class DensitySeries extends PlotSeries implements SeriesData {
+
+    private static final int MIN_CHUNK = 1 << 16; // fewest points worth binning in a task of their own
+
+    private final int columns, rows; // size of the grid in bins
+    private final double xMin, xMax, yMin, yMax; // region covered by the grid
+    private final double xScale, yScale; // bins per unit
+
+    private final int[] counts; // points in each bin, row by row from the lowest y
+    private int maxCount; // largest count in any bin
+    private long binned; // points counted in the grid
+    private long outside; // points which fell outside the grid
+
+    private double minX, maxX, minY, maxY; // bounds of the binned points
+
+    private volatile long published; // bumped whenever counts change, written after them
+
+    private volatile ColorMap colorMap = ColorMap.VIRIDIS;
+    private BufferedImage image; // counts mapped through the color map, one pixel per bin
+    private long imageVersion = -1; // version and colors the image was colored with
+    private ColorMap imageColorMap;
+
+    /******************************************************************
+     * Constructor for an empty density series covering a fixed region
+     * @param columns number of bins across x
+     * @param rows number of bins across y
+     * @param xMin lowest x value counted
+     * @param xMax highest x value counted
+     * @param yMin lowest y value counted
+     * @param yMax highest y value counted
+     */
+    public DensitySeries(int columns, int rows, double xMin, double xMax, double yMin, double yMax) {
+        if(columns <= 0 || rows <= 0)
+            throw new Error("Density grid needs at least one bin");
+        if(!(xMax > xMin) || !(yMax > yMin))
+            throw new Error("Density grid must cover a region");
+
+        this.columns = columns;
+        this.rows = rows;
+        this.xMin = xMin;
+        this.xMax = xMax;
+        this.yMin = yMin;
+        this.yMax = yMax;
+        this.xScale = columns / (xMax - xMin);
+        this.yScale = rows / (yMax - yMin);
+
+        counts = new int[columns * rows];
+        clear();
+    }
+
+    /******************************************************************
+     * Constructor for a copy of the counts of another density series
+     * @param other the series to copy
+     */
+    private DensitySeries(DensitySeries other) {
+        this(other.columns, other.rows, other.xMin, other.xMax, other.yMin, other.yMax);
+
+        long version = other.published; // read first, so counts written before it are visible
+        System.arraycopy(other.counts, 0, counts, 0, counts.length);
+        maxCount = other.maxCount;
+        binned = other.binned;
+        outside = other.outside;
+        minX = other.minX;
+        maxX = other.maxX;
+        minY = other.minY;
+        maxY = other.maxY;
+        published = version;
+
+        colorMap = other.colorMap;
+        copyStyle(other);
+    }
+
+    /******************************************************************
+     * Constructor for a density series with counts already binned, such as ones read from a saved session
+     * @param columns number of bins across x
+     * @param rows number of bins across y
+     * @param grid the lowest x, highest x, lowest y and highest y counted
+     * @param counts points in each bin, row by row from the lowest y
+     * @param outside points which fell outside the grid
+     * @param bounds the smallest x, largest x, smallest y and largest y counted
+     */
+    DensitySeries(int columns, int rows, double[] grid, int[] counts, long outside, double[] bounds) {
+        this(columns, rows, grid[0], grid[1], grid[2], grid[3]);
+        if(counts.length != this.counts.length)
+            throw new Error("Counts don't match the grid");
+
+        for(int i = 0; i < counts.length; i++) {
+            this.counts[i] = counts[i];
+            maxCount = Math.max(maxCount, counts[i]);
+            binned += counts[i];
+        }
+        this.outside = outside;
+        minX = bounds[0];
+        maxX = bounds[1];
+        minY = bounds[2];
+        maxY = bounds[3];
+        published++;
+    }
+
+    /**
+     * Count a point
+     * @param x the x value of the point
+     * @param y the y value of the point
+     */
+    public void append(double x, double y) {
+        count(x, y);
+        published++; // only the writer changes this, so the increment is safe
+    }
+
+    /**
+     * Count a run of points
+     * @param x array holding the x values
+     * @param y array holding the y values
+     * @param off index of the first point
+     * @param len number of points
+     */
+    public void appendBatch(double[] x, double[] y, int off, int len) {
+        for(int i = off; i < off + len; i++)
+            count(x[i], y[i]);
+        published++;
+    }
+
+    /**
+     * Count a large number of points, binning them in parallel
+     * @param x array holding the x values
+     * @param y array holding the y values
+     */
+    public void appendAll(double[] x, double[] y) {
+        if(x.length != y.length)
+            throw new Error("X and Y data lengths do not match");
+
+        if(x.length < 2 * MIN_CHUNK) { // not worth splitting up
+            appendBatch(x, y, 0, x.length);
+            return;
+        }
+
+        // a few tasks per core balances the load, without a partial grid for every small run of points
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        int chunk = Math.max(MIN_CHUNK, x.length / (4 * pool.getParallelism()));
+        Partial total = pool.invoke(new BinTask(x, y, 0, x.length, chunk));
+
+        for(int i = 0; i < counts.length; i++) {
+            counts[i] += total.counts[i];
+            maxCount = Math.max(maxCount, counts[i]);
+        }
+        binned += total.binned;
+        outside += total.outside;
+        minX = Math.min(minX, total.minX);
+        maxX = Math.max(maxX, total.maxX);
+        minY = Math.min(minY, total.minY);
+        maxY = Math.max(maxY, total.maxY);
+
+        published++;
+    }
+
+    /**
+     * Add a point to its bin
+     */
+    private void count(double x, double y) {
+        int bin = bin(x, y);
+        if(bin < 0) {
+            outside++;
+            return;
+        }
+
+        int c = ++counts[bin];
+        if(c > maxCount)
+            maxCount = c;
+
+        binned++;
+        minX = Math.min(minX, x);
+        maxX = Math.max(maxX, x);
+        minY = Math.min(minY, y);
+        maxY = Math.max(maxY, y);
+    }
+
+    /**
+     * @return the index of the bin a point falls in, or -1 if it is outside the grid
+     */
+    private int bin(double x, double y) {
+        if(!(x >= xMin && x <= xMax && y >= yMin && y <= yMax)) // also rejects NaN
+            return -1;
+
+        int column = Math.min((int) ((x - xMin) * xScale), columns - 1); // the top edge belongs to the last bin
+        int row = Math.min((int) ((y - yMin) * yScale), rows - 1);
+        return row * columns + column;
+    }
+
+    /**
+     * Forget every point, keeping the grid
+     */
+    public void clear() {
+        Arrays.fill(counts, 0);
+        maxCount = 0;
+        binned = 0;
+        outside = 0;
+
+        minX = minY = Double.MAX_VALUE;
+        maxX = maxY = -Double.MAX_VALUE;
+
+        published++;
+    }
+
+    /**
+     * Change the colors bins are drawn with. Safe to call from any thread, but a plot showing the series needs to be
+     * asked to repaint.
+     * @param colorMap the new color map
+     */
+    public void setColorMap(ColorMap colorMap) {
+        this.colorMap = colorMap;
+    }
+
+    /**
+     * @return the colors bins are drawn with
+     */
+    public ColorMap getColorMap() {
+        return colorMap;
+    }
+
+    /**
+     * @return the number of bins across x
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the number of bins across y
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @param column the bin across x
+     * @param row the bin across y, from the lowest y
+     * @return the number of points counted in the bin
+     */
+    public int getCount(int column, int row) {
+        return counts[row * columns + column];
+    }
+
+    /**
+     * @return the largest count of any bin
+     */
+    public int getMaxCount() {
+        return maxCount;
+    }
+
+    /**
+     * @return the number of points which fell outside the grid and weren't counted
+     */
+    public long getOutside() {
+        return outside;
+    }
+
+    /**
+     * Color the bins into an image, if they changed since it was last colored. Only called by the renderer.
+     * @return an image with one pixel per bin, the highest y at the top
+     */
+    BufferedImage image() {
+        if(image == null)
+            image = new BufferedImage(columns, rows, BufferedImage.TYPE_INT_ARGB);
+
+        long version = published;
+        ColorMap colorMap = this.colorMap;
+        if(version == imageVersion && colorMap == imageColorMap)
+            return image;
+
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        double scale = 1 / Math.log1p(Math.max(maxCount, 1));
+        for(int row = 0; row < rows; row++) {
+            int out = (rows - 1 - row) * columns; // images run top down
+            int in = row * columns;
+            for(int column = 0; column < columns; column++) {
+                int c = counts[in + column];
+                pixels[out + column] = c == 0 ? 0 : colorMap.argb(Math.log1p(c) * scale); // empty bins are clear
+            }
+        }
+
+        imageVersion = version;
+        imageColorMap = colorMap;
+        return image;
+    }
+
+    /**
+     * @return the lowest x value covered by the grid
+     */
+    public double getGridMinX() {
+        return xMin;
+    }
+
+    /**
+     * @return the highest x value covered by the grid
+     */
+    public double getGridMaxX() {
+        return xMax;
+    }
+
+    /**
+     * @return the lowest y value covered by the grid
+     */
+    public double getGridMinY() {
+        return yMin;
+    }
+
+    /**
+     * @return the highest y value covered by the grid
+     */
+    public double getGridMaxY() {
+        return yMax;
+    }
+
+    /**
+     * Copy the counts, which is cheap next to the points they came from. A copy made while points are being appended
+     * may be part way through a batch.
+     */
+    PlotSeries freeze() {
+        return new DensitySeries(this);
+    }
+
+    SeriesData snapshot() {
+        return this;
+    }
+
+    long version() {
+        return published;
+    }
+
+    long samplesAppended() {
+        return binned + outside; // read without synchronizing with the writer, which is close enough for a rate
+    }
+
+    /**
+     * @return the number of points counted, capped at Integer.MAX_VALUE
+     */
+    public int size() {
+        return (int) Math.min(binned, Integer.MAX_VALUE);
+    }
+
+    public boolean hasX() {
+        return true;
+    }
+
+    /**
+     * Points aren't stored, so they can't be read back
+     */
+    public double getX(int i) {
+        throw new Error("Density series don't keep their points");
+    }
+
+    /**
+     * Points aren't stored, so they can't be read back
+     */
+    public double getY(int i) {
+        throw new Error("Density series don't keep their points");
+    }
+
+    public boolean isXSorted() {
+        return false;
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Counts of part of a bulk load, binned by one task
+     */
+    private static class Partial {
+        final int[] counts;
+        long binned, outside;
+        double minX = Double.MAX_VALUE, maxX = -Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+
+        Partial(int bins) {
+            counts = new int[bins];
+        }
+
+        /**
+         * Add another part's counts into this one
+         */
+        Partial merge(Partial other) {
+            for(int i = 0; i < counts.length; i++)
+                counts[i] += other.counts[i];
+            binned += other.binned;
+            outside += other.outside;
+            minX = Math.min(minX, other.minX);
+            maxX = Math.max(maxX, other.maxX);
+            minY = Math.min(minY, other.minY);
+            maxY = Math.max(maxY, other.maxY);
+            return this;
+        }
+    }
+
+    /**
+     * Bins a range of points, splitting it in half until the ranges are small enough to bin directly
+     */
+    private class BinTask extends RecursiveTask<Partial> {
+        private final double[] x, y;
+        private final int from, to;
+        private final int chunk; // most points to bin without splitting
+
+        BinTask(double[] x, double[] y, int from, int to, int chunk) {
+            this.x = x;
+            this.y = y;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected Partial compute() {
+            if(to - from <= chunk) {
+                Partial part = new Partial(counts.length);
+                for(int i = from; i < to; i++) {
+                    int bin = bin(x[i], y[i]);
+                    if(bin < 0) {
+                        part.outside++;
+                        continue;
+                    }
+
+                    part.counts[bin]++;
+                    part.binned++;
+                    part.minX = Math.min(part.minX, x[i]);
+                    part.maxX = Math.max(part.maxX, x[i]);
+                    part.minY = Math.min(part.minY, y[i]);
+                    part.maxY = Math.max(part.maxY, y[i]);
+                }
+                return part;
+            }
+
+            int middle = (from + to) >>> 1;
+            BinTask left = new BinTask(x, y, from, middle, chunk);
+            left.fork();
+            Partial right = new BinTask(x, y, middle, to, chunk).compute();
+            return left.join().merge(right);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.m3rcuriel.frc.swerve.util;
+
+/**
+ * A series computed from other series as they are appended to, such as a moving average of a measured velocity or the
+ * error between a commanded and a measured angle, so telemetry doesn't have to be post-processed to see them.
+ *
+ * Derived series are fed each sample as it is written, on the thread appending to their sources, and are published
+ * when the sources are. Every operator does a constant amount of work per sample and allocates nothing once created,
+ * so deriving series doesn't change what appending costs beyond a few arithmetic operations.
+ *
+ * Each derived sample has the sequence number and x value of the source sample it was computed from, so a derived
+ * series lines up with its source and holds as many samples. Derived series are drawn like any other series by adding
+ * them to a {@link Figure}, and can be the source of further derived series.
+ *
+ * Derived series must be created on the thread appending to their sources, or before it starts. Series derived from
+ * more than one source pair samples up by sequence number, so their sources should be appended to together, once per
+ * loop for instance.
+ */
+public abstract class DerivedSeries extends DataSeries {
+
+    private final DataSeries[] sources;
+    private long next; // sequence number of the next source sample to compute
+
+    /******************************************************************
+     * Constructor for a series derived from others. {@link #attach()} starts feeding it once it is fully constructed.
+     * @param sources the series it is computed from, where x values come from the first
+     */
+    DerivedSeries(DataSeries... sources) {
+        super(sources[0], sources[0].capacity());
+        this.sources = sources;
+    }
+
+    /**
+     * Moving average of the last samples of a series
+     * @param source the series to average
+     * @param window number of samples averaged
+     * @return the averaged series
+     */
+    public static DerivedSeries movingAverage(DataSeries source, int window) {
+        return new MovingAverage(source, window).attach();
+    }
+
+    /**
+     * Rate of change of a series, the slope from each sample to the one before it. Series without x values are
+     * differentiated against the sample number.
+     * @param source the series to differentiate
+     * @return the derivative series
+     */
+    public static DerivedSeries derivative(DataSeries source) {
+        return new Derivative(source).attach();
+    }
+
+    /**
+     * Root mean square of the last samples of a series
+     * @param source the series to measure
+     * @param window number of samples in the mean
+     * @return the rolling RMS series
+     */
+    public static DerivedSeries rollingRms(DataSeries source, int window) {
+        return new RollingRms(source, window).attach();
+    }
+
+    /**
+     * Difference between two series appended to together, such as the error between a setpoint and a measurement
+     * @param a the series subtracted from, which gives the x values
+     * @param b the series subtracted
+     * @return the series of a - b
+     */
+    public static DerivedSeries difference(DataSeries a, DataSeries b) {
+        return new Difference(a, b).attach();
+    }
+
+    /**
+     * Compute from the samples the sources already hold, then start following them
+     * @return this series
+     */
+    DerivedSeries attach() {
+        skipTo(oldest());
+        sourceWritten();
+        publish();
+
+        for(DataSeries source : sources)
+            source.subscribe(this);
+        return this;
+    }
+
+    /**
+     * Stop following the sources. The samples already computed are kept. Must be called from the thread appending to
+     * the sources.
+     */
+    public void detach() {
+        for(DataSeries source : sources)
+            source.unsubscribe(this);
+    }
+
+    /**
+     * Compute every sample all the sources now have. Called after each sample written to a source.
+     */
+    void sourceWritten() {
+        long available = Long.MAX_VALUE;
+        for(DataSeries source : sources)
+            available = Math.min(available, source.count());
+
+        if(next < available && next < oldest()) // a source ran so far ahead its unpaired samples were overwritten
+            skipTo(oldest());
+
+        for(; next < available; next++)
+            write(sources[0].xAt(next), compute(next));
+    }
+
+    /**
+     * Start over when a source is cleared
+     */
+    void sourceCleared() {
+        reset();
+        next = 0;
+        clear();
+    }
+
+    /**
+     * Drop what has been computed and carry on from a later sample
+     * @param seq sequence number of the next source sample to compute
+     */
+    private void skipTo(long seq) {
+        reset();
+        next = seq;
+        clear();
+        startAt(seq);
+    }
+
+    /**
+     * @return sequence number of the oldest sample held by every source
+     */
+    private long oldest() {
+        long oldest = 0;
+        for(DataSeries source : sources)
+            oldest = Math.max(oldest, source.count() - source.size());
+        return oldest;
+    }
+
+    /**
+     * Compute the derived value for a sample. Called once per sample, in order.
+     * @param seq sequence number of the sample in the sources
+     * @return the y value of the derived sample
+     */
+    abstract double compute(long seq);
+
+    /**
+     * Forget everything computed so far
+     */
+    abstract void reset();
+
+    @Override
+    public void append(double x, double y) {
+        throw new Error("Derived series are computed from their sources");
+    }
+
+    @Override
+    public void append(double y) {
+        throw new Error("Derived series are computed from their sources");
+    }
+
+    @Override
+    public void appendBatch(double[] x, double[] y, int off, int len) {
+        throw new Error("Derived series are computed from their sources");
+    }
+
+    /**
+     * A sum of a sliding window of values, with compensation for the rounding error that would otherwise build up from
+     * adding and removing values forever
+     */
+    private static final class WindowSum {
+
+        private final double[] values;
+        private int pos; // slot the next value is written to
+        private int filled; // number of values in the window
+        private double sum, error;
+
+        WindowSum(int window) {
+            if(window <= 0)
+                throw new Error("Window must hold at least one sample");
+            values = new double[window];
+        }
+
+        /**
+         * Add a value, dropping the oldest if the window is full
+         * @param value the value to add
+         * @return the mean of the window
+         */
+        double push(double value) {
+            if(filled == values.length)
+                add(-values[pos]);
+            else
+                filled++;
+
+            values[pos] = value;
+            add(value);
+            if(++pos == values.length)
+                pos = 0;
+
+            return (sum + error) / filled;
+        }
+
+        private void add(double value) { // Neumaier summation
+            double t = sum + value;
+            if(Math.abs(sum) >= Math.abs(value))
+                error += (sum - t) + value;
+            else
+                error += (value - t) + sum;
+            sum = t;
+        }
+
+        void clear() {
+            pos = filled = 0;
+            sum = error = 0;
+        }
+    }
+
+    private static final class MovingAverage extends DerivedSeries {
+
+        private final DataSeries source;
+        private final WindowSum window;
+
+        MovingAverage(DataSeries source, int window) {
+            super(source);
+            this.source = source;
+            this.window = new WindowSum(window);
+        }
+
+        double compute(long seq) {
+            return window.push(source.yAt(seq));
+        }
+
+        void reset() {
+            window.clear();
+        }
+    }
+
+    private static final class RollingRms extends DerivedSeries {
+
+        private final DataSeries source;
+        private final WindowSum window;
+
+        RollingRms(DataSeries source, int window) {
+            super(source);
+            this.source = source;
+            this.window = new WindowSum(window);
+        }
+
+        double compute(long seq) {
+            double y = source.yAt(seq);
+            return Math.sqrt(Math.max(window.push(y * y), 0)); // rounding can leave the mean just below zero
+        }
+
+        void reset() {
+            window.clear();
+        }
+    }
+
+    private static final class Derivative extends DerivedSeries {
+
+        private final DataSeries source;
+        private boolean started; // true once there is a previous sample
+        private double lastX, lastY, slope;
+
+        Derivative(DataSeries source) {
+            super(source);
+            this.source = source;
+        }
+
+        double compute(long seq) {
+            double x = source.xAt(seq);
+            double y = source.yAt(seq);
+            if(started && x != lastX) // samples at the same x keep the last slope
+                slope = (y - lastY) / (x - lastX);
+
+            started = true;
+            lastX = x;
+            lastY = y;
+            return slope; // the first sample has no slope yet, so gets 0
+        }
+
+        void reset() {
+            started = false;
+            slope = 0;
+        }
+    }
+
+    private static final class Difference extends DerivedSeries {
+
+        private final DataSeries a, b;
+
+        Difference(DataSeries a, DataSeries b) {
+            super(a, b);
+            this.a = a;
+            this.b = b;
+        }
+
+        double compute(long seq) {
+            return a.yAt(seq) - b.yAt(seq);
+        }
+
+        void reset() {
+        }
+    }
+}
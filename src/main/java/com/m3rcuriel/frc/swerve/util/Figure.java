@@ -0,0 +1,1620 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * The data, layout and drawing of a single plot, independent of any window. A figure can be rendered into any
+ * Graphics2D, or straight into a BufferedImage or PNG file, which works without a display (java.awt.headless=true).
+ *
+ * {@link SimplePlot} shows a figure in a Swing window. Figures can also be built and exported directly, see
+ * {@link FigureExporter} for rendering many of them at once.
+ *
+ * A figure caches drawing state between frames, so it should only be rendered by one thread at a time. Different
+ * figures can be rendered in parallel. Series may be added and removed from any thread, and each series may be
+ * appended to by one producer thread while the figure is rendered. Every frame draws a snapshot of what each series
+ * had published when the frame started.
+ *
+ * The figure shows the bounds of all its data unless it has been zoomed or panned to a particular region, see
+ * {@link #zoom(double, double, double)}. Only the samples in the visible x range of sorted series are drawn, and
+ * {@link FunctionSeries} are sampled for just the region shown. In strip chart mode (see
+ * {@link #setStripChart(double)}) the figure instead shows a window of x which follows the newest sample.
+ *
+ * Working out the pixel points of each series (culling, transforming and decimating) is split from drawing them. The
+ * points are kept per series and only worked out again when the series or view changes, and when several series
+ * changed they are worked out in parallel on the common fork/join pool, so the rendering thread mostly just strokes.
+ *
+ * A figure can also show a hover readout, a crosshair and tooltip on the sample nearest a point (see
+ * {@link #setHover(double, double)}), found through a {@link PointIndex} per series.
+ */
+public class Figure {
+
+    /**
+     * How the data series are drawn
+     */
+    public enum Rendering {
+        /**
+         * Stroke antialiased paths through Java2D, for the best quality
+         */
+        SHAPES,
+        /**
+         * Rasterize one pixel wide lines straight into an image with Bresenham's algorithm, for the fastest frames
+         */
+        RASTER,
+        /**
+         * Rasterize antialiased one pixel wide lines straight into an image with Wu's algorithm
+         */
+        RASTER_SMOOTH
+    }
+
+    private static final Color OVERLAY_BACKGROUND = new Color(255, 255, 255, 200); // keeps the metrics readable
+
+    private static final int PARALLEL_POINTS = 1 << 15; // fewest samples worth computing paths in parallel for
+
+    private static final double HOVER_RADIUS = 32; // farthest a sample can be from the mouse to be read out, pixels
+    private static final Color CROSSHAIR = new Color(128, 128, 128, 160);
+
+    private final int yPAD = 60; // amount to pad the plot vertically
+    private final int xPAD = 70; // amount to pad the plot horizontally
+
+    private double upperXtic; // highest tick value for x
+    private double lowerXtic; // lowest tick value for x
+    private double upperYtic;
+    private double lowerYtic;
+
+    private double yMax; // maximum y value
+    private double yMin; // minimum y value
+    private double xMax;
+    private double xMin;
+
+    private double xTicStepSize; // distance between ticks in x
+    private double yTicStepSize;
+
+    boolean userSetYTic; // user manually set tick distance
+    boolean userSetXTic;
+
+    private boolean zoomedX, zoomedY; // true when showing a range picked by the user rather than the data bounds
+    private final double[] view = new double[4]; // x min, x max, y min and y max of those ranges
+
+    private String xAxisLabel; // stores x axis string
+    private String yAxisLabel;
+
+    private String titleLabel; // stores title string
+
+    private Font font = new Font(Font.DIALOG, Font.PLAIN, 12); // font used for all text
+    private Color foreground = Color.BLACK; // color of the axes and text
+    private Color background = Color.WHITE; // color images are filled with before rendering
+
+    private int width; // size of the figure being rendered in pixels
+    private int height;
+    private double pixelScale = 1; // device pixels per pixel, more than 1 on high-DPI screens and scaled exports
+
+    private List<PlotSeries> nodeList; // list which contains all data series, safe to change while painting
+    private final ArrayList<PlotSeries> frameSeries = new ArrayList<>(); // every series being painted
+    private final ArrayList<SeriesData> frame = new ArrayList<>(); // snapshots of each of them
+    private final AtomicLong structureVersion = new AtomicLong(); // bumped whenever a series is added or removed
+    private boolean torn; // true if a producer overwrote samples while the last frame was painted
+    private final AtomicLong changes = new AtomicLong(); // counts changes seen by version(), so never goes backwards
+    private long watchedStructure = -1; // structure version the watched series were listed at
+    private PlotSeries[] watched = new PlotSeries[0]; // series version() compares against what it saw last
+    private long[] watchedVersions = new long[0];
+
+    private Decimator.Mode decimation = Decimator.Mode.MIN_MAX; // how series are thinned out before drawing
+    private final IdentityHashMap<PlotSeries, SeriesPath> paths = new IdentityHashMap<>(); // pixel points of each series
+    private final ArrayList<SeriesPath> framePaths = new ArrayList<>(); // path of each series being painted
+    private final ArrayList<SeriesPath> stalePaths = new ArrayList<>(); // paths to compute before this frame is drawn
+    private final Path2D.Double linePath = new Path2D.Double(); // reused to draw each series in one call
+    private Rendering rendering = Rendering.SHAPES; // how series are drawn
+    private final RasterCanvas canvas = new RasterCanvas(); // series are rasterized into this unless drawn as shapes
+
+    private final IdentityHashMap<PlotSeries, PointIndex> indexes = new IdentityHashMap<>(); // for nearest samples
+    private boolean hovering; // true to read out the sample nearest the hover point
+    private double hoverX, hoverY; // the hover point, pixels
+    private NearestSample hover; // sample read out in the last frame, null if none
+    private final DecimalFormat hoverFormat = new DecimalFormat("#.######"); // values in the readout
+
+    private BufferedImage chrome; // cached image of the axes, ticks and labels
+    private boolean chromeDirty = true; // true when the chrome must be redrawn
+    private final double[] chromeBounds = new double[4]; // x and y bounds the chrome was drawn for
+    private Font chromeFont; // font and color the chrome was drawn with
+    private Color chromeColor;
+    private final DecimalFormat tickFormat = new DecimalFormat("#.#"); // shared formatter for tick labels
+
+    private final AllocationCounter allocationCounter = new AllocationCounter();
+    private long plotAllocatedBytes = -1; // garbage created by plotting the last frame
+
+    private final PlotMetrics metrics = new PlotMetrics(this::samplesAppended); // timings and work of each frame
+    private long boundsTime; // time the last prepare took, ns
+    private long framePoints, frameSegments; // samples visited and segments drawn by the last plot
+    private boolean metricsOverlay; // true to draw the metrics over the plot
+
+    private StripChart strip; // scrolling window and image of sorted series, null unless in strip chart mode
+
+    /******************************************************************
+     * Constructor for an empty figure
+     * @param title the title of the figure
+     */
+    public Figure(String title) {
+        xAxisLabel = "X axis";
+        yAxisLabel = "Y axis";
+        titleLabel = title;
+
+        // Initialize all max/min values to absolute max/min
+        upperXtic = -Double.MAX_VALUE;
+        lowerXtic = Double.MAX_VALUE;
+        upperYtic = -Double.MAX_VALUE;
+        lowerYtic = Double.MAX_VALUE;
+
+        this.userSetXTic = false;
+        this.userSetYTic = false;
+        //TODO allow user tics to limit window size
+        nodeList = new CopyOnWriteArrayList<>(); // series are added rarely but read every frame
+    }
+
+    /******************************************************************
+     * Constructor for a figure with an initial data series
+     * @param title the title of the figure
+     * @param xData an array of doubles containing data in the x axis (may be null)
+     * @param yData an array of doubles containing data in the y axis
+     * @param lineColor color used for drawing connecting lines
+     * @param markerColor color used for drawing dots (may be null)
+     */
+    public Figure(String title, double[] xData, double[] yData, Color lineColor, Color markerColor) {
+        this(title);
+
+        addData(xData, yData, lineColor, markerColor); // add initial series to graph
+    }
+
+    /**
+     * Add an empty density series, drawn as a heatmap of how many points fall in each cell of a grid
+     * @param columns number of bins across x
+     * @param rows number of bins across y
+     * @param xMin lowest x value counted
+     * @param xMax highest x value counted
+     * @param yMin lowest y value counted
+     * @param yMax highest y value counted
+     * @return the series, which points are appended to
+     */
+    public DensitySeries addDensity(int columns, int rows, double xMin, double xMax, double yMin, double yMax) {
+        return add(new DensitySeries(columns, rows, xMin, xMax, yMin, yMax), null, null);
+    }
+
+    /**
+     * Add a curve y = f(x), sampled when drawn for just the region shown
+     * @param f y for each x, which may be called on any thread
+     * @param xMin lowest x of the curve
+     * @param xMax highest x of the curve
+     * @param lineColor color used for drawing the curve
+     * @return the series
+     */
+    public FunctionSeries addFunction(DoubleUnaryOperator f, double xMin, double xMax, Color lineColor) {
+        return add(new FunctionSeries(f, xMin, xMax), lineColor, null);
+    }
+
+    /**
+     * Add a parametric curve (x(t), y(t)), sampled when drawn for the region shown
+     * @param x x for each value of the parameter, which may be called on any thread
+     * @param y y for each value of the parameter
+     * @param tMin lowest value of the parameter
+     * @param tMax highest value of the parameter
+     * @param lineColor color used for drawing the curve
+     * @return the series
+     */
+    public FunctionSeries addCurve(DoubleUnaryOperator x, DoubleUnaryOperator y, double tMin, double tMax,
+                                   Color lineColor) {
+        return add(new FunctionSeries(x, y, tMin, tMax), lineColor, null);
+    }
+
+    /**
+     * Add a data series to the plot
+     * @param x the series representing all x values (may be null)
+     * @param y the series representing all y values
+     * @param lineColor color used for drawing connecting lines
+     * @param marker color used for drawing dots (may be null)
+     */
+    public void addData(double[] x, double[] y, Color lineColor, Color marker) {
+        //x and y data must match
+        if(x != null && x.length != y.length) {
+            throw new Error("Dimensions of X and Y must match");
+        }
+
+        // size the series to exactly hold the arrays so nothing is ever overwritten
+        DataSeries data = addSeries(Math.max(y.length, 1), x != null, lineColor, marker);
+
+        data.appendBatch(x, y, 0, y.length); // copy data into DataSeries object
+    }
+
+    /**
+     * Add an empty data series to the plot which is filled by appending samples to the returned handle. Once the
+     * series holds capacity samples, each new sample overwrites the oldest one.
+     * @param capacity the maximum number of samples to display
+     * @param explicitX true if samples will have x values, false to use the sample number as x
+     * @param lineColor color used for drawing connecting lines
+     * @param marker color used for drawing dots (may be null)
+     * @return the series, which samples are appended to
+     */
+    public DataSeries addSeries(int capacity, boolean explicitX, Color lineColor, Color marker) {
+        return addSeries(capacity, SeriesStorage.DOUBLE, explicitX, lineColor, marker);
+    }
+
+    /**
+     * Add an empty data series to the plot which stores its samples in a chosen way
+     * @param capacity the maximum number of samples to display
+     * @param storage how sample values are stored
+     * @param explicitX true if samples will have x values, false to use the sample number as x
+     * @param lineColor color used for drawing connecting lines
+     * @param marker color used for drawing dots (may be null)
+     * @return the series, which samples are appended to
+     */
+    public DataSeries addSeries(int capacity, SeriesStorage storage, boolean explicitX, Color lineColor,
+                                Color marker) {
+        return add(new DataSeries(capacity, storage, explicitX), lineColor, marker);
+    }
+
+    /**
+     * Add an empty evenly sampled data series to the plot. Only y values are stored, and the x value of each sample is
+     * start + n * period, where n counts every sample ever appended.
+     * @param capacity the maximum number of samples to display
+     * @param storage how y values are stored
+     * @param start x value of the first sample
+     * @param period x distance between samples
+     * @param lineColor color used for drawing connecting lines
+     * @param marker color used for drawing dots (may be null)
+     * @return the series, which y values are appended to
+     */
+    public DataSeries addUniformSeries(int capacity, SeriesStorage storage, double start, double period,
+                                       Color lineColor, Color marker) {
+        return add(new DataSeries(capacity, storage, start, period), lineColor, marker);
+    }
+
+    /**
+     * Style any series and add it to the plot, such as a {@link MappedSeries} or {@link DerivedSeries}
+     * @param data the new series
+     * @param lineColor color used for drawing connecting lines
+     * @param marker color used for drawing dots (may be null)
+     * @param <T> the type of series
+     * @return the series
+     */
+    public <T extends PlotSeries> T add(T data, Color lineColor, Color marker) {
+        data.setStyle(lineColor, marker);
+
+        if(data.hasX()) {
+            // can't add y data unless other data has x and y data
+            for(PlotSeries node: nodeList)
+                if(!node.hasX())
+                    throw new Error("Previous series must have x and y data");
+        }
+
+        nodeList.add(data);
+        structureVersion.incrementAndGet();
+        return data;
+    }
+
+    /**
+     * Render the figure into an image
+     * @param width width of the image in pixels
+     * @param height height of the image in pixels
+     * @return a new image of the figure on the background color
+     */
+    public BufferedImage renderImage(int width, int height) {
+        return renderImage(width, height, 1);
+    }
+
+    /**
+     * Render the figure into a high resolution image, laid out as if it were a given size but with every pixel split
+     * into scale x scale, such as for a report or a high-DPI screen
+     * @param width width of the figure in pixels
+     * @param height height of the figure in pixels
+     * @param scale image pixels per figure pixel
+     * @return a new image of the figure on the background color, scale times as wide and high
+     */
+    public BufferedImage renderImage(int width, int height, double scale) {
+        if(!(scale > 0))
+            throw new Error("Scale must be positive");
+
+        BufferedImage image = new BufferedImage((int) Math.ceil(width * scale), (int) Math.ceil(height * scale),
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = image.createGraphics();
+
+        if(background != null) {
+            g2.setColor(background);
+            g2.fillRect(0, 0, image.getWidth(), image.getHeight());
+        }
+
+        g2.scale(scale, scale);
+        render(g2, width, height);
+        g2.dispose();
+
+        return image;
+    }
+
+    /**
+     * Write the figure to a PNG file
+     * @param width width of the image in pixels
+     * @param height height of the image in pixels
+     * @param file the file to write
+     * @throws IOException if the file couldn't be written
+     */
+    public void writePng(int width, int height, File file) throws IOException {
+        writePng(width, height, 1, file);
+    }
+
+    /**
+     * Write the figure to a high resolution PNG file, see {@link #renderImage(int, int, double)}
+     * @param width width of the figure in pixels
+     * @param height height of the figure in pixels
+     * @param scale image pixels per figure pixel
+     * @param file the file to write
+     * @throws IOException if the file couldn't be written
+     */
+    public void writePng(int width, int height, double scale, File file) throws IOException {
+        if(!ImageIO.write(renderImage(width, height, scale), "png", file))
+            throw new IOException("No PNG writer available");
+    }
+
+    /**
+     * Make a copy of the figure as it is now, with its labels, view, style and the samples every series has
+     * published, which never changes. The copy can be rendered or exported on a background thread while this figure
+     * keeps taking samples and painting, see {@link SimplePlot#exportImage(double)}.
+     *
+     * Freezing copies the samples of every series, which is much cheaper than drawing them. It may only be called on
+     * the thread painting this figure.
+     * @return the copy
+     */
+    public Figure freeze() {
+        Figure copy = new Figure(titleLabel);
+        copy.xAxisLabel = xAxisLabel;
+        copy.yAxisLabel = yAxisLabel;
+        copy.font = font;
+        copy.foreground = foreground;
+        copy.background = background;
+
+        copy.userSetXTic = userSetXTic;
+        copy.userSetYTic = userSetYTic;
+        copy.lowerXtic = lowerXtic;
+        copy.upperXtic = upperXtic;
+        copy.xTicStepSize = xTicStepSize;
+        copy.lowerYtic = lowerYtic;
+        copy.upperYtic = upperYtic;
+        copy.yTicStepSize = yTicStepSize;
+
+        copy.zoomedX = zoomedX;
+        copy.zoomedY = zoomedY;
+        System.arraycopy(view, 0, copy.view, 0, view.length);
+
+        copy.rendering = rendering;
+        copy.decimation = decimation;
+        copy.strip = strip == null ? null : new StripChart(strip.window()); // draws the window from scratch
+
+        for(PlotSeries node : nodeList)
+            copy.nodeList.add(node.freeze());
+        return copy;
+    }
+
+    /**
+     * Render the figure into a graphics context
+     * @param g2 the Graphics2D instance to draw with
+     * @param width width of the area to fill in pixels
+     * @param height height of the area to fill in pixels
+     */
+    public void render(Graphics2D g2, int width, int height) {
+        prepare();
+        draw(g2, width, height);
+    }
+
+    /**
+     * Capture what every series has published so the whole frame draws the same data, and find its bounds. This is
+     * the first half of {@link #render}, split out so a {@link PlotDashboard} can link axes between figures before
+     * any of them are drawn.
+     */
+    void prepare() {
+        long start = System.nanoTime();
+
+        frameSeries.clear();
+        frame.clear();
+        framePaths.clear();
+        for(PlotSeries node : nodeList) {
+            SeriesPath path = null;
+            if(!(node instanceof DensitySeries)) { // heatmaps have no points to work out
+                path = paths.get(node);
+                if(path == null) {
+                    path = new SeriesPath();
+                    paths.put(node, path);
+                }
+            }
+
+            if(node instanceof FunctionSeries) // sampled for the region this frame is expected to show
+                ((FunctionSeries) node).view(zoomedX ? view[0] : Double.NaN, zoomedX ? view[1] : Double.NaN,
+                        zoomedY ? view[2] : Double.NaN, zoomedY ? view[3] : Double.NaN, width - 2 * xPAD,
+                        height - 2 * yPAD);
+            else if(node instanceof MappedSeries) // fits y to just the records shown, so only those are read
+                ((MappedSeries) node).view(zoomedX ? view[0] : Double.NaN, zoomedX ? view[1] : Double.NaN);
+
+            long version = node.version(); // before the snapshot, so an unchanged version means unchanged samples
+            SeriesData snapshot = node.snapshot();
+            if(path != null)
+                path.capture(version, snapshot);
+
+            frameSeries.add(node);
+            frame.add(snapshot);
+            framePaths.add(path);
+        }
+        if(paths.size() > framePaths.size()) // forget the paths of removed series
+            paths.keySet().retainAll(frameSeries);
+        if(indexes.size() > frameSeries.size())
+            indexes.keySet().retainAll(frameSeries);
+
+        getMinMax(frame); // store maximum and minimum values in the entire nodeList
+
+        boundsTime = System.nanoTime() - start;
+    }
+
+    /**
+     * Draw the frame captured by {@link #prepare()}
+     * @param g2 the Graphics2D instance to draw with
+     * @param width width of the area to fill in pixels
+     * @param height height of the area to fill in pixels
+     */
+    void draw(Graphics2D g2, int width, int height) {
+        long start = System.nanoTime();
+        this.width = width;
+        this.height = height;
+        double scale = g2.getTransform().getScaleX(); // cached images are drawn at the destination's resolution
+        pixelScale = scale > 0 ? scale : 1;
+
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON); // turn on antialiasing
+
+        if(strip != null)
+            fitStrip();
+
+        // only redraw the axes, ticks and labels if something they show has changed, the x ticks of a strip chart
+        // scroll so are drawn every frame instead
+        if(chrome == null || chrome.getWidth() != devicePixels(width) || chrome.getHeight() != devicePixels(height)
+                || strip == null && (chromeBounds[0] != xMin || chromeBounds[1] != xMax)
+                || chromeBounds[2] != yMin || chromeBounds[3] != yMax
+                || chromeFont != font || chromeColor != foreground)
+            chromeDirty = true;
+
+        if(chromeDirty)
+            renderChrome(g2.getDeviceConfiguration());
+
+        g2.drawImage(chrome, 0, 0, width, height, null); // draw the cached axes, one image pixel per device pixel
+        if(strip != null) {
+            lowerXtic = xMin; // the window, at the tick spacing laid out with the chrome
+            upperXtic = xMax;
+            g2.setFont(font);
+            g2.setColor(foreground);
+            drawXTicks(g2, g2.getFontMetrics(), new Line2D.Double(xPAD, height - yPAD, width - xPAD, height - yPAD));
+        }
+        long chromeEnd = System.nanoTime();
+
+        allocationCounter.start();
+        plot(g2); // plot all data
+        plotAllocatedBytes = allocationCounter.stop();
+        long plotEnd = System.nanoTime();
+
+        torn = false;
+        for(PlotSeries node : frameSeries) // check no producer lapped its ring while we were reading it
+            torn |= !node.isConsistent();
+
+        metrics.record(boundsTime, chromeEnd - start, plotEnd - chromeEnd, framePoints, frameSegments,
+                plotAllocatedBytes);
+
+        if(hovering)
+            drawHover(g2);
+
+        if(metricsOverlay)
+            drawMetrics(g2);
+    }
+
+    /**
+     * Move the strip chart's window up to the newest sample, and take the bounds to show from it
+     */
+    private void fitStrip() {
+        strip.fit(frameSeries, frame, structureVersion.get(), xMax, devicePixels(width - 2 * xPAD),
+                devicePixels(height - 2 * yPAD));
+        xMin = strip.lowerX();
+        xMax = strip.upperX();
+        if(!zoomedY) {
+            yMin = strip.minY();
+            yMax = strip.maxY();
+        }
+    }
+
+    /**
+     * Draw the latest metrics in the top left corner of the plot
+     */
+    private void drawMetrics(Graphics2D g2) {
+        PlotMetrics.Snapshot m = metrics.snapshot();
+        String[] lines = {
+                String.format("frame p50 %.1f  p99 %.1f  max %.1f ms", m.getFrameTimeP50(), m.getFrameTimeP99(),
+                        m.getFrameTimeMax()),
+                String.format("bounds %.2f  chrome %.2f  data %.2f ms", m.getBoundsTime(), m.getChromeTime(),
+                        m.getDataTime()),
+                String.format("%,d points  %,d segments", m.getPointsVisited(), m.getSegmentsDrawn()),
+                String.format("%,d repaints  %,d coalesced  %,d dropped", m.getRepaints(), m.getCoalescedRepaints(),
+                        m.getDroppedFrames()),
+                String.format("%,.0f samples/s", m.getIngestRate())
+        };
+
+        Color tempColor = g2.getColor();
+        Font tempFont = g2.getFont();
+        g2.setFont(font);
+        FontMetrics fm = g2.getFontMetrics();
+
+        int boxWidth = 0;
+        for(String line : lines)
+            boxWidth = Math.max(boxWidth, fm.stringWidth(line));
+        int lineHeight = fm.getHeight();
+
+        int x = xPAD + 4;
+        int y = yPAD + 4;
+        g2.setColor(OVERLAY_BACKGROUND);
+        g2.fillRect(x, y, boxWidth + 8, lineHeight * lines.length + 8);
+
+        g2.setColor(foreground);
+        for(int i = 0; i < lines.length; i++)
+            g2.drawString(lines[i], x + 4, y + 4 + fm.getAscent() + i * lineHeight);
+
+        g2.setColor(tempColor);
+        g2.setFont(tempFont);
+    }
+
+    /**
+     * Find the sample nearest a point of the last rendered frame, across every series, and draw a crosshair and
+     * tooltip on it
+     */
+    private void drawHover(Graphics2D g2) {
+        hover = nearest(hoverX, hoverY, HOVER_RADIUS);
+        if(hover == null)
+            return;
+
+        Color tempColor = g2.getColor();
+        Font tempFont = g2.getFont();
+        Shape tempClip = g2.getClip();
+        g2.clipRect(xPAD, yPAD, width - 2 * xPAD, height - 2 * yPAD);
+
+        double px = hover.getPixelX();
+        double py = hover.getPixelY();
+        g2.setColor(CROSSHAIR);
+        g2.draw(new Line2D.Double(px, yPAD, px, height - yPAD));
+        g2.draw(new Line2D.Double(xPAD, py, width - xPAD, py));
+
+        Color color = hover.getSeries().lineColor != null ? hover.getSeries().lineColor : foreground;
+        g2.setColor(color);
+        g2.draw(new Ellipse2D.Double(px - 4, py - 4, 8, 8)); // ring the sample itself
+
+        // the values in a box beside the sample, kept inside the plot
+        String[] lines = {"x " + hoverFormat.format(hover.getX()), "y " + hoverFormat.format(hover.getY())};
+        g2.setFont(font);
+        FontMetrics fm = g2.getFontMetrics();
+        int boxWidth = Math.max(fm.stringWidth(lines[0]), fm.stringWidth(lines[1])) + 8;
+        int boxHeight = fm.getHeight() * lines.length + 8;
+
+        int x = (int) px + 8;
+        int y = (int) py - 8 - boxHeight;
+        if(x + boxWidth > width - xPAD)
+            x = (int) px - 8 - boxWidth;
+        if(y < yPAD)
+            y = (int) py + 8;
+
+        g2.setColor(OVERLAY_BACKGROUND);
+        g2.fillRect(x, y, boxWidth, boxHeight);
+        g2.setColor(color);
+        g2.drawRect(x, y, boxWidth, boxHeight);
+        g2.setColor(foreground);
+        for(int i = 0; i < lines.length; i++)
+            g2.drawString(lines[i], x + 4, y + 4 + fm.getAscent() + i * fm.getHeight());
+
+        g2.setColor(tempColor);
+        g2.setFont(tempFont);
+        g2.setClip(tempClip);
+    }
+
+    /**
+     * Find the sample nearest a point of the last rendered frame, across every series. Series with sorted x values
+     * are searched by bisection and scatter data through a grid kept up to date as samples arrive, so this takes well
+     * under a millisecond for millions of samples. The grid of a large scatter series is first built in the
+     * background, and its samples aren't found until it is ready. Must be called on the thread painting the figure.
+     * @param px x position of the point in pixels
+     * @param py y position of the point in pixels
+     * @param radius only samples within this many pixels are found
+     * @return the nearest sample, or null if none is within the radius or the point is outside the plot
+     */
+    public NearestSample nearest(double px, double py, double radius) {
+        if(chrome == null || px < xPAD || px > width - xPAD || py < yPAD || py > height - yPAD)
+            return null;
+
+        // the same mapping the last frame was drawn with
+        double xScale = xScale();
+        double yScale = yScale();
+        double xOffset = xPAD - lowerXtic * xScale;
+        double yOffset = height - yPAD + lowerYtic * yScale;
+
+        int bestSeries = -1, bestIndex = -1;
+        double limit = radius;
+        for(int k = 0; k < frame.size(); k++) {
+            PlotSeries series = frameSeries.get(k);
+            if(series instanceof DensitySeries) // no points to find
+                continue;
+
+            PointIndex index = indexes.get(series);
+            if(index == null) {
+                index = new PointIndex(changes::incrementAndGet);
+                indexes.put(series, index);
+            }
+
+            SeriesData data = frame.get(k);
+            int i = index.nearest(data, firstSequence(data), px, py, xOffset, xScale, yOffset, yScale, limit);
+            if(i >= 0) { // nearer than any series before it
+                bestSeries = k;
+                bestIndex = i;
+                limit = index.distance();
+            }
+        }
+
+        if(bestSeries < 0)
+            return null;
+
+        SeriesData data = frame.get(bestSeries);
+        double x = data.hasX() ? data.getX(bestIndex) : bestIndex;
+        double y = data.getY(bestIndex);
+        return new NearestSample(frameSeries.get(bestSeries), bestIndex, x, y, xOffset + xScale * x,
+                yOffset - yScale * y, limit);
+    }
+
+    /**
+     * Wait for the indexes being built in the background for {@link #nearest}, so the next search finds every sample
+     */
+    void awaitIndexes() {
+        for(PointIndex index : indexes.values())
+            index.awaitGrid();
+    }
+
+    /**
+     * Read out the sample nearest a point from the next frame on, with a crosshair and tooltip. The readout follows
+     * the data as it changes.
+     * @param px x position of the point in pixels, such as the mouse
+     * @param py y position of the point in pixels
+     */
+    public void setHover(double px, double py) {
+        hovering = true;
+        hoverX = px;
+        hoverY = py;
+    }
+
+    /**
+     * Stop reading out the sample nearest the hover point
+     */
+    public void clearHover() {
+        hovering = false;
+        hover = null;
+    }
+
+    /**
+     * @return the sample read out in the last frame, or null if there was none
+     */
+    public NearestSample getHover() {
+        return hover;
+    }
+
+    /**
+     * @return the rendering metrics of this figure, see {@link PlotMetrics}
+     */
+    public PlotMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Show or hide the rendering metrics over the plot, to watch them live. The overlay is drawn after the data,
+     * so drawing it isn't included in the metrics.
+     * @param show true to draw the metrics
+     */
+    public void setMetricsOverlay(boolean show) {
+        metricsOverlay = show;
+    }
+
+    /**
+     * @return true if the rendering metrics are drawn over the plot
+     */
+    public boolean isMetricsOverlay() {
+        return metricsOverlay;
+    }
+
+    /**
+     * @return the total number of samples ever appended to the figure's series, for the ingest rate
+     */
+    private long samplesAppended() {
+        long total = 0;
+        for(PlotSeries node : nodeList)
+            total += node.samplesAppended();
+        return total;
+    }
+
+    /**
+     * Counts a change each time it finds a series has published new samples, or series have been added or removed,
+     * since it was last called. The count only ever goes up, so unlike a sum of the series' versions it can't land
+     * back on an earlier value when one series is removed and another publishes.
+     * @return a number which changes whenever any series publishes new samples or series are added or removed, so
+     * callers can tell whether the figure needs painting again
+     */
+    public synchronized long version() {
+        boolean changed = torn; // also paint again if the last frame read overwritten samples
+
+        long structure = structureVersion.get(); // before listing the series, so a later change is caught next time
+        if(structure != watchedStructure) {
+            watched = nodeList.toArray(new PlotSeries[0]);
+            watchedVersions = new long[watched.length];
+            for(int i = 0; i < watched.length; i++)
+                watchedVersions[i] = watched[i].version();
+            watchedStructure = structure;
+            changed = true;
+        } else {
+            for(int i = 0; i < watched.length; i++) {
+                long version = watched[i].version();
+                if(version != watchedVersions[i]) {
+                    watchedVersions[i] = version;
+                    changed = true;
+                }
+            }
+        }
+
+        // indexes built in the background for the hover readout bump the count themselves
+        return changed ? changes.incrementAndGet() : changes.get();
+    }
+
+    /**
+     * @return true if samples were overwritten while the last frame was painted, so it may have drawn some of them
+     * wrong
+     */
+    public boolean wasLastFrameTorn() {
+        return torn;
+    }
+
+    /**
+     * Lays out the ticks and draws the axes, ticks and labels into the cached chrome image. This only happens when the
+     * size, bounds, ticks or labels change, so repaints for new data only have to draw the data itself.
+     * @param gc the configuration of the destination, so the cached image is fast to draw there
+     */
+    void renderChrome(GraphicsConfiguration gc) {
+        int w = width;
+        int h = height;
+        int cw = Math.max(devicePixels(w), 1);
+        int ch = Math.max(devicePixels(h), 1);
+
+        if(chrome == null || chrome.getWidth() != cw || chrome.getHeight() != ch) {
+            chrome = gc != null
+                    ? gc.createCompatibleImage(cw, ch, Transparency.TRANSLUCENT) // fast to blit
+                    : new BufferedImage(cw, ch, BufferedImage.TYPE_INT_ARGB);
+        }
+
+        Graphics2D g2 = chrome.createGraphics();
+        g2.setComposite(AlphaComposite.Clear); // wipe the old chrome
+        g2.fillRect(0, 0, chrome.getWidth(), chrome.getHeight());
+        g2.setComposite(AlphaComposite.SrcOver);
+        g2.scale(pixelScale, pixelScale); // lay out in pixels, draw at the destination's resolution
+
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON); // turn on antialiasing
+        g2.setFont(font);
+        g2.setColor(foreground);
+        FontMetrics fm = g2.getFontMetrics(); // measure text once for the whole layer
+
+        Line2D.Double axis_Y = new Line2D.Double(xPAD, yPAD, xPAD, h - yPAD); // initialize y axis line
+        Line2D.Double axis_X = new Line2D.Double(xPAD, h - yPAD, w - xPAD, h - yPAD);
+        g2.draw(axis_X); // draw x axis line
+        g2.draw(axis_Y);
+
+        if(zoomedY) { // show exactly the range the user picked, with tick spacing to suit it
+            layoutYTicks(15, view[3], view[2]);
+            lowerYtic = view[2];
+            upperYtic = view[3];
+        } else {
+            layoutYTicks(15, yMax, yMin); // find the ticks for the y axis
+        }
+
+        if(strip != null) { // only the spacing, the ticks scroll with the window
+            layoutXTicks(15, xMax, xMin);
+            lowerXtic = xMin;
+            upperXtic = xMax;
+        } else if(zoomedX) {
+            layoutXTicks(15, view[1], view[0]);
+            lowerXtic = view[0];
+            upperXtic = view[1];
+        } else {
+            layoutXTicks(15, xMax, xMin);
+        }
+
+        drawYTicks(g2, fm, axis_Y); // draw ticks for the y axis
+        if(strip == null)
+            drawXTicks(g2, fm, axis_X);
+
+        setXLabel(g2, fm, xAxisLabel);
+        setYLabel(g2, fm, yAxisLabel);
+        setTitle(g2, fm, titleLabel);
+
+        g2.dispose();
+
+        // remember what the chrome was drawn for
+        chromeBounds[0] = xMin;
+        chromeBounds[1] = xMax;
+        chromeBounds[2] = yMin;
+        chromeBounds[3] = yMax;
+        chromeFont = font;
+        chromeColor = foreground;
+        chromeDirty = false;
+    }
+
+    /**
+     * Plot the data onto the graph using a Graphics2D object
+     * @param g2 the relevant Graphics2D object
+     */
+    void plot(Graphics2D g2) {
+        int w = width;
+        int h = height;
+
+        Color tempColor = g2.getColor(); // store color so we can come back to it just in case
+        Shape tempClip = g2.getClip();
+        boolean clip = zoomedX || zoomedY || strip != null;
+        if(clip) // data outside the region would otherwise spill over the axes
+            g2.clipRect(xPAD, yPAD, w - 2 * xPAD, h - 2 * yPAD);
+
+        framePoints = 0;
+        frameSegments = 0;
+
+        boolean raster = rendering != Rendering.SHAPES;
+        if(raster) {
+            canvas.reset(devicePixels(w), devicePixels(h));
+            if(clip)
+                canvas.clip(devicePixels(xPAD), devicePixels(yPAD), devicePixels(w - 2 * xPAD),
+                        devicePixels(h - 2 * yPAD));
+        }
+
+        // define scale based on GUI parameters, the lowest ticks sit on the axes
+        double xScale = xScale();
+        double yScale = yScale();
+        double xOffset = xPAD - lowerXtic * xScale;
+        double yOffset = h - yPAD + lowerYtic * yScale;
+
+        // work out the pixel points of every series which changed since the last frame, in parallel if there are many
+        stalePaths.clear();
+        long stalePoints = 0;
+        for(int k = 0; k < frame.size(); k++) {
+            SeriesPath path = framePaths.get(k);
+            if(strip != null && StripChart.handles(frameSeries.get(k), frame.get(k)))
+                continue; // drawn into the strip chart's image instead
+            if(path != null && path.isStale(lowerXtic, upperXtic, xOffset, xScale, yOffset, yScale, w - 2 * xPAD,
+                    decimation)) {
+                stalePaths.add(path);
+                stalePoints += frame.get(k).size();
+            }
+        }
+        computePaths(stalePoints);
+        for(SeriesPath path : stalePaths) // cached paths visit no samples, so only those worked out this frame count
+            framePoints += path.visited();
+
+        if(strip != null) { // bring the scrolling image up to date and draw it under everything else
+            double s = pixelScale;
+            strip.draw(frameSeries, frame, (yOffset - yPAD) * s, yScale * s, rendering == Rendering.RASTER_SMOOTH);
+            framePoints += strip.visited();
+            strip.paint(g2, xPAD, yPAD, w - 2 * xPAD, h - 2 * yPAD);
+        }
+
+        // only stroke the precomputed points here, in series order so later series are drawn on top
+        for(int k = 0; k < frame.size(); k++)  {
+            PlotSeries series = frameSeries.get(k);
+
+            if(strip != null && StripChart.handles(series, frame.get(k)))
+                continue;
+
+            if(series instanceof DensitySeries) { // drawn as a heatmap rather than points
+                drawDensity(g2, (DensitySeries) series, xOffset, xScale, yOffset, yScale);
+                continue;
+            }
+
+            SeriesPath path = framePaths.get(k);
+            if(path.size() < 2) // nothing to connect (matches drawing nothing for a single point)
+                continue;
+            frameSegments += path.size() - 1;
+
+            if(raster) {
+                rasterize(series, path);
+                continue;
+            }
+
+            // connect every point into one path, reusing the path's storage from the last frame
+            linePath.reset();
+            linePath.moveTo(path.getX(0), path.getY(0));
+            for(int j = 1; j < path.size(); j++)
+                linePath.lineTo(path.getX(j), path.getY(j));
+
+            g2.setPaint(series.lineColor); // set color to the line painting color
+            g2.draw(linePath); // draw the whole series at once
+
+            // if the user wants, stamp a marker on each point
+            if(series.lineMarker) {
+                for(int j = 0; j < path.size(); j++)
+                    series.markerSprite.draw(g2, path.getX(j), path.getY(j));
+            }
+        }
+        if(raster)
+            g2.drawImage(canvas.getImage(), 0, 0, w, h, null); // every series in one blit
+
+        g2.setColor(tempColor); // reset color
+        g2.setClip(tempClip);
+    }
+
+    /**
+     * Draw a density series by scaling its colored bins onto the region of the plot they cover
+     */
+    private void drawDensity(Graphics2D g2, DensitySeries series, double xOffset, double xScale, double yOffset,
+                             double yScale) {
+        BufferedImage bins = series.image();
+
+        int left = (int) Math.round(xOffset + xScale * series.getGridMinX());
+        int right = (int) Math.round(xOffset + xScale * series.getGridMaxX());
+        int top = (int) Math.round(yOffset - yScale * series.getGridMaxY());
+        int bottom = (int) Math.round(yOffset - yScale * series.getGridMinY());
+
+        g2.drawImage(bins, left, top, right, bottom, 0, 0, bins.getWidth(), bins.getHeight(), null);
+    }
+
+    /**
+     * Compute the stale paths of this frame. With enough samples between them, every path but one is forked onto the
+     * common fork/join pool while this thread computes the last, then waits for the rest.
+     * @param points total samples in the stale series
+     */
+    private void computePaths(long points) {
+        int n = stalePaths.size();
+        if(n == 0)
+            return;
+
+        if(n == 1 || points < PARALLEL_POINTS) { // not worth handing off
+            for(int i = 0; i < n; i++)
+                stalePaths.get(i).invoke();
+            return;
+        }
+
+        for(int i = 1; i < n; i++)
+            stalePaths.get(i).fork();
+        stalePaths.get(0).invoke();
+        for(int i = n - 1; i >= 1; i--) // newest first, so this thread can run any still queued itself
+            stalePaths.get(i).join();
+    }
+
+    /**
+     * Forget the pixel points of every series, so the next frame works them all out again
+     */
+    void invalidatePaths() {
+        for(SeriesPath path : paths.values())
+            path.invalidate();
+    }
+
+    /**
+     * Draw the pixel points of a series straight into the raster canvas
+     * @param series the series the points belong to
+     * @param path its points
+     */
+    private void rasterize(PlotSeries series, SeriesPath path) {
+        boolean smooth = rendering == Rendering.RASTER_SMOOTH;
+
+        double s = pixelScale; // the canvas is in device pixels
+        if(series.lineColor != null) {
+            int argb = series.lineColor.getRGB();
+            for(int j = 1; j < path.size(); j++)
+                canvas.line(path.getX(j - 1) * s, path.getY(j - 1) * s, path.getX(j) * s, path.getY(j) * s, argb,
+                        smooth);
+        }
+
+        if(series.lineMarker) {
+            for(int j = 0; j < path.size(); j++)
+                canvas.stamp(series.markerSprite, path.getX(j) * s, path.getY(j) * s);
+        }
+    }
+
+    /**
+     * @param pixels a length in pixels
+     * @return the same length in device pixels, rounded up
+     */
+    private int devicePixels(int pixels) {
+        return (int) Math.ceil(pixels * pixelScale - 1e-9); // so a scale of exactly 1 never rounds up
+    }
+
+    /**
+     * Change how the data series are drawn. The raster modes trade the exact stroking of Java2D for much faster
+     * frames on dense data.
+     * @param rendering the new way to draw series
+     */
+    public void setRendering(Rendering rendering) {
+        this.rendering = rendering;
+    }
+
+    /**
+     * @return how the data series are drawn
+     */
+    public Rendering getRendering() {
+        return rendering;
+    }
+
+    /**
+     * @return pixels per unit of x in the last rendered frame
+     */
+    private double xScale() {
+        return (width - 2 * xPAD) / (upperXtic - lowerXtic);
+    }
+
+    /**
+     * @return pixels per unit of y in the last rendered frame
+     */
+    private double yScale() {
+        return (height - 2 * yPAD) / (upperYtic - lowerYtic);
+    }
+
+    /**
+     * Zoom in or out around a point of the last rendered frame, which stays in the same place on screen
+     * @param factor the fraction of the current range to show (less than 1 zooms in)
+     * @param px x position of the point in pixels
+     * @param py y position of the point in pixels
+     */
+    public void zoom(double factor, double px, double py) {
+        if(chrome == null) // nothing rendered yet, so there is no view to zoom
+            return;
+
+        double x = lowerXtic + (px - xPAD) / xScale(); // the point in data units
+        double y = lowerYtic + (height - yPAD - py) / yScale();
+
+        setView(x - (x - lowerXtic) * factor, x + (upperXtic - x) * factor,
+                y - (y - lowerYtic) * factor, y + (upperYtic - y) * factor);
+    }
+
+    /**
+     * Move the region shown by the figure, as if its contents were dragged
+     * @param dx distance to move the contents right in pixels
+     * @param dy distance to move the contents down in pixels
+     */
+    public void pan(double dx, double dy) {
+        if(chrome == null)
+            return;
+
+        double shiftX = dx / xScale();
+        double shiftY = dy / yScale();
+
+        setView(lowerXtic - shiftX, upperXtic - shiftX, lowerYtic + shiftY, upperYtic + shiftY);
+    }
+
+    /**
+     * Show a particular region of the data, regardless of its bounds
+     * @param xMin lowest x value shown
+     * @param xMax highest x value shown
+     * @param yMin lowest y value shown
+     * @param yMax highest y value shown
+     */
+    public void setView(double xMin, double xMax, double yMin, double yMax) {
+        // ranges too small to tell apart from zero can't be laid out
+        if(!(xMax - xMin > 1e-9 * Math.max(Math.abs(xMin), Math.abs(xMax)))
+                || !(yMax - yMin > 1e-9 * Math.max(Math.abs(yMin), Math.abs(yMax))))
+            return;
+
+        view[0] = xMin;
+        view[1] = xMax;
+        view[2] = yMin;
+        view[3] = yMax;
+        zoomedX = zoomedY = true;
+        chromeDirty = true;
+    }
+
+    /**
+     * Show a particular range of x, while y still fits the data (unless the figure is already zoomed in y)
+     * @param xMin lowest x value shown
+     * @param xMax highest x value shown
+     */
+    public void setXView(double xMin, double xMax) {
+        if(!(xMax - xMin > 1e-9 * Math.max(Math.abs(xMin), Math.abs(xMax))))
+            return;
+
+        view[0] = xMin;
+        view[1] = xMax;
+        zoomedX = true;
+        chromeDirty = true;
+    }
+
+    /**
+     * Go back to showing the bounds of all the data
+     */
+    public void resetView() {
+        zoomedX = zoomedY = false;
+        chromeDirty = true;
+    }
+
+    /**
+     * Show the last stretch of x as a strip chart, which scrolls to follow the newest sample with y fitted to the
+     * data in view. Sorted series are rasterized into an image which is scrolled and only drawn onto as samples
+     * arrive, so live data is cheap to show however much of it is in the window.
+     * @param window the width of x shown, such as 10 for the last 10 seconds
+     */
+    public void setStripChart(double window) {
+        strip = new StripChart(window);
+        chromeDirty = true;
+    }
+
+    /**
+     * Leave strip chart mode and go back to showing all the data (or the region zoomed to)
+     */
+    public void clearStripChart() {
+        strip = null;
+        chromeDirty = true;
+    }
+
+    /**
+     * @return the width of x shown in strip chart mode, or 0 if the figure isn't a strip chart
+     */
+    public double getStripWindow() {
+        return strip == null ? 0 : strip.window();
+    }
+
+    /**
+     * @return true if the figure shows a region set by zooming, panning or {@link #setView}, rather than all the data
+     */
+    public boolean isZoomed() {
+        return zoomedX || zoomedY;
+    }
+
+    /**
+     * @return true if the figure shows an x range set by zooming, panning or {@link #setXView}
+     */
+    public boolean isZoomedX() {
+        return zoomedX;
+    }
+
+    /**
+     * @return the lowest x value shown while zoomed in x
+     */
+    public double getViewMinX() {
+        return view[0];
+    }
+
+    /**
+     * @return the highest x value shown while zoomed in x
+     */
+    public double getViewMaxX() {
+        return view[1];
+    }
+
+    /**
+     * Remove a data series from the plot
+     * @param series the series to remove, as returned by {@link #addSeries(int, boolean, Color, Color)}
+     */
+    public void removeSeries(PlotSeries series) {
+        if(nodeList.remove(series))
+            structureVersion.incrementAndGet();
+    }
+
+    /**
+     * Change how series with more points than the plot has pixels are thinned out before drawing
+     * @param mode the decimation algorithm, or {@link Decimator.Mode#NONE} to always draw every point
+     */
+    public void setDecimation(Decimator.Mode mode) {
+        decimation = mode;
+    }
+
+    /**
+     * @return bytes allocated while plotting the data series in the last painted frame, or -1 if the JVM can't measure
+     * it
+     */
+    public long getPlotAllocatedBytes() {
+        return plotAllocatedBytes;
+    }
+
+    /**
+     * Change the font used for all text
+     * @param font the new font
+     */
+    public void setFont(Font font) {
+        this.font = font;
+    }
+
+    /**
+     * Change the color of the axes and text
+     * @param color the new color
+     */
+    public void setForeground(Color color) {
+        this.foreground = color;
+    }
+
+    /**
+     * Change the color images are filled with before the figure is rendered into them
+     * @param color the new color, or null for a transparent background
+     */
+    public void setBackground(Color color) {
+        this.background = color;
+    }
+
+    /**
+     * Change the label on the Y Axis
+     * @param s the new label for the y axis
+     */
+    public void setYLabel(String s) {
+        yAxisLabel = s;
+        chromeDirty = true;
+    }
+
+    /**
+     * Change the label on the X Axis
+     * @param s the new label for the x axis
+     */
+    public void setXLabel(String s) {
+        xAxisLabel = s;
+        chromeDirty = true;
+    }
+
+    /**
+     * Change the title for the graph
+     * @param s the new graph title
+     */
+    public void setTitle(String s) {
+        titleLabel = s;
+        chromeDirty = true;
+    }
+
+    /**
+     * Draws Y axis label from a string with proper spacing
+     * @param g2 the Graphics2D instance to draw under
+     * @param fm the relevant font information
+     * @param s the Y axis label to draw
+     */
+    private void setYLabel(Graphics2D g2, FontMetrics fm, String s) {
+        int width = fm.stringWidth(s);  // determine string width in pixels from font
+
+        AffineTransform temp = g2.getTransform(); // store the current transform
+
+        AffineTransform at = new AffineTransform(temp); // on top of any scaling of the destination
+
+        at.rotate(-Math.PI / 2, 10, height / 2 + width / 2); // create rotation transform (90 degrees)
+        g2.setTransform(at); // apply rotation transform
+
+        g2.drawString(s, 10, 7 + height / 2 + width / 2); // draw string under transform
+
+        g2.setTransform(temp); // reset transform
+    }
+
+    /**
+     * Draws X axis label from a string with proper spacing
+     * @param g2 the Graphics2D instance to draw under
+     * @param fm the relevant font information
+     * @param s the X axis label to draw
+     */
+    private void setXLabel(Graphics2D g2, FontMetrics fm, String s) {
+        int width = fm.stringWidth(s);
+
+        g2.drawString(s, this.width / 2 - width / 2, height - 10);
+
+        // no transform needed because this text is horizontal
+    }
+
+    /**
+     * Draws title from a string with proper spacing
+     * @param g2 the Graphics2D instance to draw under
+     * @param fm the relevant font information
+     * @param s the title string to draw (split on \n)
+     */
+    private void setTitle(Graphics2D g2, FontMetrics fm, String s) {
+        String[] lines = s.split("\n"); // break the title into lines
+
+        int height = xPAD / 2 - ((lines.length - 1) * fm.getHeight()); // calculate total height
+
+        for (String line : lines) {
+            int width = fm.stringWidth(line);
+            g2.drawString(line, this.width / 2 - width / 2, height); // draw each line
+            height += fm.getHeight(); // change pixel value to draw next line
+        }
+    }
+
+    /**
+     * Find the ticks on the Y axis to define the scale, unless the user set them
+     * @param tickCount total number of ticks in the axis
+     * @param Max maximum value in y
+     * @param Min minimum value in y
+     */
+    void layoutYTicks(int tickCount, double Max, double Min) {
+        if(!userSetYTic) {
+            double range = Max - Min; // define a range
+
+            // perform sketchy rounding
+            double unroundedTickSize = range / (tickCount - 1);
+            double x = Math.ceil(Math.log10(unroundedTickSize) - 1);
+            double pow10x = Math.pow(10, x);
+            yTicStepSize = Math.ceil(unroundedTickSize / pow10x) * pow10x;
+
+            // find lowest tick, at or below the data so none of it hangs off the axis
+            lowerYtic = yTicStepSize * Math.floor(Min / yTicStepSize);
+
+            // find highest tick
+            if (Max < 0)
+                upperYtic = yTicStepSize * Math.floor(1 + Max / yTicStepSize);
+            else
+                upperYtic = yTicStepSize * Math.ceil(1 + Max / yTicStepSize);
+        }
+    }
+
+    /**
+     * Find the ticks on the X axis to define the scale, unless the user set them
+     * @param tickCount total number of ticks in the axis
+     * @param Max maximum value in x
+     * @param Min minimum value in x
+     */
+    void layoutXTicks(int tickCount, double Max, double Min) {
+        if(!userSetXTic) {
+            double range = Max - Min;
+
+            double unroundedTickSize = range / (tickCount - 1);
+            double x = Math.ceil(Math.log10(unroundedTickSize) - 1);
+            double pow10x = Math.pow(10, x);
+            xTicStepSize = Math.ceil(unroundedTickSize / pow10x) * pow10x;
+            //TODO fix whatever the fuck this is to allow more accurate ticks
+
+            lowerXtic = xTicStepSize * Math.floor(Min / xTicStepSize);
+
+            if (Max < 0) {
+                upperXtic = xTicStepSize * Math.floor(1 + Max / xTicStepSize);
+            } else {
+                upperXtic = xTicStepSize * Math.ceil(1 + Max / xTicStepSize);
+            }
+        }
+    }
+
+    /**
+     * Draw the ticks on the Y axis to define the scale
+     * @param g2 the Graphics2D instance to draw with
+     * @param fm the relevant font information
+     * @param axis_Y a 2D Line defining the axis itself
+     */
+    private void drawYTicks(Graphics2D g2, FontMetrics fm, Line2D axis_Y) {
+        // store line endpoints
+        double x0 = axis_Y.getX1();
+        double y0 = axis_Y.getY1();
+        double xf = axis_Y.getX2();
+        double yf = axis_Y.getY2();
+
+        // pixels per unit, then start from the top, or the highest multiple of the step below it when zoomed
+        double scale = Math.sqrt(Math.pow(xf - x0, 2) + Math.pow(yf - y0, 2)) / (upperYtic - lowerYtic);
+        double upper = zoomedY ? yTicStepSize * Math.floor(upperYtic / yTicStepSize + 1e-9) : upperYtic;
+        y0 += (upperYtic - upper) * scale;
+
+        int roundedTicks = (int) ((upper - lowerYtic) / yTicStepSize + 1e-9); // find total tick number after rounding
+        double distance = yTicStepSize * scale; // calculate pixel distance
+
+        for (int i = 0; i <= roundedTicks; i++) {
+            double newY = y0;
+
+            String number = tickFormat.format(upper); // format each tick into a standard
+            //TODO fix this to use sig figs instead
+            int width = fm.stringWidth(number);
+
+            g2.draw(new Line2D.Double(x0, newY, x0 - 10, newY));
+            g2.drawString(number, (float) x0 - 15 - width, (float) newY); // draw each string along the line
+
+            upper = upper - yTicStepSize;
+            y0 = newY + distance; // move up the graph to draw each line
+        }
+    }
+
+    /**
+     * Works like {@link #drawXTicks(Graphics2D, FontMetrics, Line2D, double)} but without a skip
+     */
+    private void drawXTicks(Graphics2D g2, FontMetrics fm, Line2D axis_X) {
+        drawXTicks(g2, fm, axis_X, 1);
+    }
+
+    /**
+     * Draw the ticks on the X axis to define the scale
+     * @param g2 the Graphics2D instance to draw with
+     * @param fm the relevant font information
+     * @param axis_X a 2D Line defining the axis itself
+     * @param skip the distance between ticks to draw for readability
+     */
+    private void drawXTicks(Graphics2D g2, FontMetrics fm, Line2D axis_X, double skip) {
+        double x0 = axis_X.getX1();
+        double y0 = axis_X.getY1();
+        double xf = axis_X.getX2();
+        double yf = axis_X.getY2();
+
+        double scale = Math.sqrt(Math.pow(xf - x0, 2) + Math.pow(yf - y0, 2)) / (upperXtic - lowerXtic);
+        double lower = zoomedX || strip != null ? xTicStepSize * Math.ceil(lowerXtic / xTicStepSize - 1e-9) : lowerXtic;
+        x0 += (lower - lowerXtic) * scale;
+
+        int roundedTicks = (int) ((upperXtic - lower) / xTicStepSize + 1e-9);
+
+        double distance = xTicStepSize * scale;
+
+        for (int i = 0; i <= roundedTicks; i++) {
+            double newX = x0;
+
+            String number = tickFormat.format(lower);
+            int width = fm.stringWidth(number);
+
+            g2.draw(new Line2D.Double(newX, yf, newX, yf + 10));
+
+            if (i % skip == 0) {
+                g2.drawString(number, (float) (newX - (width / 2.0)), (float) yf + 25);
+            }
+
+            lower = lower + xTicStepSize;
+            x0 = newX + distance;
+        }
+    }
+
+    /**
+     * Sets the x ticks manually
+     * @param lowerBound the minimum tick value
+     * @param upperBound the maximum tick value
+     * @param stepSize step size of the ticks
+     */
+    public void setXTic(double lowerBound, double upperBound, double stepSize) {
+        this.userSetXTic = true;
+
+        this.upperXtic = upperBound;
+        this.lowerXtic = lowerBound;
+        this.xTicStepSize = stepSize;
+        chromeDirty = true;
+    }
+
+    /**
+     * Sets the y ticks manually
+     * @param lowerBound the minimum tick value
+     * @param upperBound the maximum tick value
+     * @param stepSize step size of the ticks
+     */
+    public void setYTic(double lowerBound, double upperBound, double stepSize) {
+        this.userSetYTic = true;
+
+        this.upperYtic = upperBound;
+        this.lowerYtic = lowerBound;
+        this.yTicStepSize = stepSize;
+        chromeDirty = true;
+    }
+
+    /**
+     * @return the title of the figure
+     */
+    public String getTitle() {
+        return titleLabel;
+    }
+
+    /**
+     * @return the label of the x axis
+     */
+    public String getXLabel() {
+        return xAxisLabel;
+    }
+
+    /**
+     * @return the label of the y axis
+     */
+    public String getYLabel() {
+        return yAxisLabel;
+    }
+
+    /**
+     * @return the lowest tick, highest tick and step set with {@link #setXTic}, or null if the x ticks follow the data
+     */
+    public double[] getXTic() {
+        return userSetXTic ? new double[] {lowerXtic, upperXtic, xTicStepSize} : null;
+    }
+
+    /**
+     * @return the lowest tick, highest tick and step set with {@link #setYTic}, or null if the y ticks follow the data
+     */
+    public double[] getYTic() {
+        return userSetYTic ? new double[] {lowerYtic, upperYtic, yTicStepSize} : null;
+    }
+
+    /**
+     * @return every series in the figure, in drawing order
+     */
+    List<PlotSeries> getSeries() {
+        return nodeList;
+    }
+
+    /**
+     * @return true if any series in the frame captured by {@link #prepare()} has samples
+     */
+    boolean hasData() {
+        for(SeriesData node : frame) {
+            if(node.size() > 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the smallest x value in the frame captured by {@link #prepare()}
+     */
+    double getDataMinX() {
+        return xMin;
+    }
+
+    /**
+     * @return the largest x value in the frame captured by {@link #prepare()}
+     */
+    double getDataMaxX() {
+        return xMax;
+    }
+
+    /**
+     * Replace the x bounds of the captured frame, so figures sharing an x axis lay it out the same way
+     * @param min the smallest x value to show
+     * @param max the largest x value to show
+     */
+    void linkX(double min, double max) {
+        xMin = min;
+        xMax = max;
+    }
+
+    /**
+     * @param data the samples of a series in a frame
+     * @return the sequence number of sample 0 (0 for fixed series), so samples can be followed from frame to frame.
+     * Series which are cleared number their samples on past a gap, so a cache never mistakes new samples for old.
+     */
+    static long firstSequence(SeriesData data) {
+        if(data instanceof SeriesSnapshot)
+            return ((SeriesSnapshot) data).first();
+        if(data instanceof FunctionSeries)
+            return ((FunctionSeries) data).first();
+        return 0;
+    }
+
+    /**
+     * Stores the minimum and maximum values of the entire linked list. Each series keeps its own bounds up to date as
+     * data is added, so this is only a merge over the series.
+     * @param list the list to get the max and min values from
+     */
+    void getMinMax(List<? extends SeriesData> list) {
+        yMin = xMin = Double.MAX_VALUE; // start over so series which shrank or were removed are forgotten
+        yMax = xMax = -Double.MAX_VALUE;
+
+        for(SeriesData node: list) {
+            if(node.size() == 0) // nothing appended yet
+                continue;
+
+            yMin = Math.min(yMin, node.getMinY()); // finding lowest possible
+            yMax = Math.max(yMax, node.getMaxY());
+
+            // finding lowest possible x (if we have x)
+            if(node.hasX()) {
+                xMin = Math.min(xMin, node.getMinX());
+                xMax = Math.max(xMax, node.getMaxX());
+            } else {
+                xMax = Math.max(xMax, node.size() - 1);
+                xMin = Math.min(xMin, 0);
+            }
+        }
+
+        if(yMin > yMax) { // no data at all, show an empty unit range
+            yMin = xMin = 0;
+            yMax = xMax = 1;
+        }
+
+        // ticks can't be laid out over an empty range, so pad out flat data
+        if(yMin == yMax) {
+            yMin -= 1;
+            yMax += 1;
+        }
+        if(xMin == xMax) {
+            xMin -= 1;
+            xMax += 1;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Renders many figures to PNG files at once on a bounded pool of threads, for producing plots in bulk on a machine
+ * without a display (java.awt.headless=true).
+ *
+ * Each figure is rendered by one thread only, so the same figure must not appear in a batch more than once.
+ */
+public class FigureExporter {
+
+    private final int width; // size of every exported image in pixels
+    private final int height;
+    private final int threads; // maximum figures rendered at the same time
+
+    /******************************************************************
+     * Constructor for an exporter producing images of one size
+     * @param width width of the images in pixels
+     * @param height height of the images in pixels
+     * @param threads maximum number of figures to render at the same time
+     */
+    public FigureExporter(int width, int height, int threads) {
+        if(threads <= 0)
+            throw new Error("Exporter needs at least one thread");
+
+        this.width = width;
+        this.height = height;
+        this.threads = threads;
+    }
+
+    /******************************************************************
+     * Constructor for an exporter using one thread per available processor
+     * @param width width of the images in pixels
+     * @param height height of the images in pixels
+     */
+    public FigureExporter(int width, int height) {
+        this(width, height, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Write a single figure to a PNG file on the calling thread
+     * @param figure the figure to write
+     * @param file the file to write
+     * @throws IOException if the file couldn't be written
+     */
+    public void export(Figure figure, File file) throws IOException {
+        figure.writePng(width, height, file);
+    }
+
+    /**
+     * Write every figure to its PNG file, returning once all of them are done. All figures are attempted even if some
+     * fail.
+     * @param jobs each figure and the file to write it to
+     * @throws IOException the first failure, with any others attached as suppressed exceptions
+     * @throws InterruptedException if interrupted while waiting for the figures to finish
+     */
+    public void exportAll(Map<Figure, File> jobs) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(jobs.size(), 1)), r -> {
+            Thread t = new Thread(r, "FigureExporter");
+            t.setDaemon(true); // never hold the JVM open
+            return t;
+        });
+
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for(Map.Entry<Figure, File> job : jobs.entrySet()) {
+                results.add(pool.submit(() -> {
+                    export(job.getKey(), job.getValue());
+                    return null;
+                }));
+            }
+
+            IOException failure = null;
+            for(Future<?> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException ex) { // collect rather than abandoning the rest of the batch
+                    IOException cause = ex.getCause() instanceof IOException
+                            ? (IOException) ex.getCause()
+                            : new IOException(ex.getCause());
+                    if(failure == null)
+                        failure = cause;
+                    else
+                        failure.addSuppressed(cause);
+                }
+            }
+
+            if(failure != null)
+                throw failure;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * A copy of the samples a {@link DataSeries} had published at one moment, which never changes. Used to export a live
+ * plot on a background thread while the series keeps being appended to and the plot keeps painting.
+ *
+ * Copying is a straight pass over the ring buffers, far cheaper than drawing the same samples, so it is done up front
+ * on the painting thread. If the producer laps the ring during the copy, the oldest samples may have been overwritten,
+ * and are dropped rather than shown wrong.
+ */
+class FrozenSeries extends PlotSeries implements SeriesData {
+
+    private final double[] x, y; // the copied samples
+    private final int offset; // index of the first sample which wasn't overwritten before it was copied
+    private final boolean hasX;
+    private final boolean xSorted;
+
+    // how the series stored its samples, so a saved session can store them the same way
+    private final long first; // sequence number of the first sample kept
+    private final boolean storesX; // false if x was computed from start and step
+    private final double xStart, xStep;
+    private final int valueBytes;
+
+    private double minX, maxX, minY, maxY; // bounds of the copied samples
+
+    /******************************************************************
+     * Constructor for a copy of the published samples of a series
+     * @param series the series to copy
+     */
+    FrozenSeries(DataSeries series) {
+        long end;
+        long start;
+        long base;
+        long version;
+        do { // the count and size of a single publish
+            version = series.publishFinished();
+            end = series.published(); // everything written before this is visible to us
+            start = end - series.publishedSize();
+            base = series.publishedBase();
+        } while(series.publishStarted() != version);
+        hasX = series.hasX();
+        xSorted = series.isXSorted();
+        storesX = series.storesX();
+        xStart = series.xStart();
+        xStep = series.xStep();
+        valueBytes = series.valueBytes();
+
+        int n = (int) (end - start);
+        x = new double[n];
+        y = new double[n];
+        for(int i = 0; i < n; i++) {
+            x[i] = series.xAt(start + i);
+            y[i] = series.yAt(start + i);
+        }
+
+        // samples up to the one the producer last started overwriting may have changed while they were copied
+        VarHandle.acquireFence(); // read the marker only after the copies
+        offset = (int) Math.max(0, Math.min(n, series.overwriting() + 1 - (base + start)));
+        first = start + offset;
+
+        minX = minY = Double.MAX_VALUE;
+        maxX = maxY = -Double.MAX_VALUE;
+        for(int i = offset; i < n; i++) {
+            minX = Math.min(minX, x[i]);
+            maxX = Math.max(maxX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+
+        copyStyle(series);
+    }
+
+    /**
+     * @return the sequence number of the first sample, the number appended to the series before it
+     */
+    long first() {
+        return first;
+    }
+
+    /**
+     * @return true if the series stored x values, false if it computed them from {@link #xStart()} and
+     * {@link #xStep()}
+     */
+    boolean storesX() {
+        return storesX;
+    }
+
+    /**
+     * @return x value of sequence number 0 when x is computed
+     */
+    double xStart() {
+        return xStart;
+    }
+
+    /**
+     * @return x distance between samples when x is computed
+     */
+    double xStep() {
+        return xStep;
+    }
+
+    /**
+     * @return bytes the series stored each value in, 8 for doubles or 4 for floats
+     */
+    int valueBytes() {
+        return valueBytes;
+    }
+
+    SeriesData snapshot() {
+        return this;
+    }
+
+    PlotSeries freeze() {
+        return this; // already never changes
+    }
+
+    public int size() {
+        return y.length - offset;
+    }
+
+    public boolean hasX() {
+        return hasX;
+    }
+
+    public double getX(int i) {
+        return x[offset + i];
+    }
+
+    public double getY(int i) {
+        return y[offset + i];
+    }
+
+    public boolean isXSorted() {
+        return xSorted;
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+}
@@ -0,0 +1,338 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A curve defined by a function rather than by samples, such as a swerve module's kinematic limits or a motion
+ * profile's setpoint. Either y is a function of x over a range of x, or x and y are both functions of a parameter.
+ *
+ * The function is only evaluated for what a frame shows. Each time the figure's region or size changes, the visible
+ * part of the curve is sampled about every {@link #INITIAL_PIXELS} pixels, and each step is halved wherever the curve
+ * strays from a straight line between its ends by more than {@link #TOLERANCE} of a pixel. Tight bends get as many
+ * points as they need to look smooth at any zoom while straight stretches get few, and the points are kept until the
+ * view changes again, so repainting costs no more than drawing them.
+ *
+ * The samples are kept in arrays sized to the plot, so memory doesn't grow with the range of the curve. Values which
+ * aren't finite are left out. Functions are called on whichever thread renders the figure, so must be safe to call
+ * from any thread.
+ */
+public class FunctionSeries extends PlotSeries implements SeriesData {
+
+    static final int INITIAL_PIXELS = 8; // width of each step before any are halved, pixels
+    static final double TOLERANCE = 0.25; // furthest the curve may be from the line drawn for it, pixels
+    private static final int MAX_DEPTH = 10; // most times a step is halved
+    private static final int MAX_POINTS = 16; // most points kept per pixel of the plot's width
+    private static final int COLUMNS = 660, ROWS = 480; // plot area assumed before the figure is first drawn
+
+    private final DoubleUnaryOperator fx; // x for each value of the parameter, null when the parameter is x
+    private final DoubleUnaryOperator fy;
+    private final double tMin, tMax; // range of the parameter
+
+    private double[] xs = new double[0], ys = new double[0]; // the points of the current view
+    private int size;
+    private int limit; // most points this view may have
+    private double minX, maxX, minY, maxY;
+    private boolean xSorted;
+
+    private final double[] sampled = new double[4]; // region the points were sampled for, NaN where fitted to the curve
+    private int sampledColumns, sampledRows; // plot size they were sampled for
+    private long version;
+
+    private long first; // total points sampled for earlier views, numbering the points like a series' samples
+
+    private double[] evenT = new double[0], evenX = new double[0], evenY = new double[0]; // the first pass
+    private double xLow, xHigh, yLow, yHigh; // region being sampled, infinite where it is fitted to the curve
+    private double xPixel, yPixel; // size of a pixel in x and y units while sampling
+
+    /******************************************************************
+     * Constructor for a curve y = f(x)
+     * @param f y for each x
+     * @param xMin lowest x of the curve
+     * @param xMax highest x of the curve
+     */
+    FunctionSeries(DoubleUnaryOperator f, double xMin, double xMax) {
+        this(null, f, xMin, xMax);
+    }
+
+    /******************************************************************
+     * Constructor for a parametric curve (x(t), y(t))
+     * @param fx x for each value of the parameter (null if the parameter is x)
+     * @param fy y for each value of the parameter
+     * @param tMin lowest value of the parameter
+     * @param tMax highest value of the parameter
+     */
+    FunctionSeries(DoubleUnaryOperator fx, DoubleUnaryOperator fy, double tMin, double tMax) {
+        if(!(tMin < tMax) || Double.isInfinite(tMin) || Double.isInfinite(tMax))
+            throw new Error("Functions must be drawn over a finite, non-empty range");
+
+        this.fx = fx;
+        this.fy = fy;
+        this.tMin = tMin;
+        this.tMax = tMax;
+
+        Arrays.fill(sampled, Double.NaN);
+        sample(COLUMNS, ROWS); // so the curve has bounds before it is first drawn
+    }
+
+    /******************************************************************
+     * Constructor for a copy of a curve with the points it has now, which are only sampled again if the copy is drawn
+     * differently
+     * @param other the curve to copy
+     */
+    private FunctionSeries(FunctionSeries other) {
+        fx = other.fx;
+        fy = other.fy;
+        tMin = other.tMin;
+        tMax = other.tMax;
+
+        xs = Arrays.copyOf(other.xs, other.size);
+        ys = Arrays.copyOf(other.ys, other.size);
+        size = other.size;
+        minX = other.minX;
+        maxX = other.maxX;
+        minY = other.minY;
+        maxY = other.maxY;
+        xSorted = other.xSorted;
+
+        System.arraycopy(other.sampled, 0, sampled, 0, sampled.length);
+        sampledColumns = other.sampledColumns;
+        sampledRows = other.sampledRows;
+
+        copyStyle(other);
+    }
+
+    /**
+     * Make sure the points suit the region a frame shows, sampling the curve again unless the last frame showed the
+     * same region at the same size
+     * @param xMin lowest x shown, or NaN to show the whole curve
+     * @param xMax highest x shown, or NaN
+     * @param yMin lowest y shown, or NaN to fit y to the curve
+     * @param yMax highest y shown, or NaN
+     * @param columns width of the plot area in pixels, or 0 if it hasn't been drawn yet
+     * @param rows height of the plot area in pixels
+     */
+    void view(double xMin, double xMax, double yMin, double yMax, int columns, int rows) {
+        if(columns <= 0 || rows <= 0) {
+            columns = COLUMNS;
+            rows = ROWS;
+        }
+
+        if(same(sampled[0], xMin) && same(sampled[1], xMax) && same(sampled[2], yMin) && same(sampled[3], yMax)
+                && sampledColumns == columns && sampledRows == rows)
+            return; // still showing what was sampled
+
+        sampled[0] = xMin;
+        sampled[1] = xMax;
+        sampled[2] = yMin;
+        sampled[3] = yMax;
+        sample(columns, rows);
+    }
+
+    private static boolean same(double a, double b) {
+        return a == b || Double.isNaN(a) && Double.isNaN(b);
+    }
+
+    /**
+     * Sample the curve for the region in {@link #sampled}
+     * @param columns width of the plot area in pixels
+     * @param rows height of the plot area in pixels
+     */
+    private void sample(int columns, int rows) {
+        sampledColumns = columns;
+        sampledRows = rows;
+        first += size; // the new points follow the old ones, so anything indexing them starts over
+        version++;
+
+        boolean fitX = Double.isNaN(sampled[0]);
+        boolean fitY = Double.isNaN(sampled[2]);
+        xLow = fitX ? Double.NEGATIVE_INFINITY : sampled[0];
+        xHigh = fitX ? Double.POSITIVE_INFINITY : sampled[1];
+        yLow = fitY ? Double.NEGATIVE_INFINITY : sampled[2];
+        yHigh = fitY ? Double.POSITIVE_INFINITY : sampled[3];
+
+        // only the visible part of a curve of x needs sampling, parametric curves are sampled throughout
+        double t0 = tMin, t1 = tMax;
+        if(fx == null) {
+            t0 = Math.max(t0, xLow);
+            t1 = Math.min(t1, xHigh);
+        }
+
+        // the first, even pass over the curve, which also finds how big a pixel is in any fitted direction
+        double shown = fx == null && !fitX ? (t1 - t0) / (xHigh - xLow) : 1; // fraction of the width the curve spans
+        int steps = (int) Math.max(1, Math.min(columns * shown / INITIAL_PIXELS, columns));
+        limit = Math.max(steps + 1, columns * MAX_POINTS);
+        if(evenT.length <= steps) {
+            evenT = new double[steps + 1];
+            evenX = new double[steps + 1];
+            evenY = new double[steps + 1];
+        }
+        int n = 0;
+        clearPoints();
+        for(int i = 0; t0 <= t1 && i <= steps; i++) { // nothing to sample if none of the curve is in view
+            double t = i == steps ? t1 : t0 + (t1 - t0) * i / steps;
+            double x = x(t);
+            double y = fy.applyAsDouble(t);
+            if(isFinite(x) && isFinite(y)) {
+                evenT[n] = t;
+                evenX[n] = x;
+                evenY[n] = y;
+                n++;
+                add(x, y);
+            }
+        }
+
+        xPixel = (fitX ? spread(maxX, minX) : xHigh - xLow) / columns;
+        yPixel = (fitY ? spread(maxY, minY) : yHigh - yLow) / rows;
+
+        // halve each step where the curve bends away from its chord, keeping the points in order of the parameter
+        clearPoints();
+        for(int i = 0; i < n; i++) {
+            if(i > 0)
+                subdivide(evenT[i - 1], evenX[i - 1], evenY[i - 1], evenT[i], evenX[i], evenY[i], 0);
+            add(evenX[i], evenY[i]);
+        }
+    }
+
+    /**
+     * Add the points strictly between two points already on the curve, halving the step between them while the curve
+     * strays too far from a straight line
+     */
+    private void subdivide(double ta, double xa, double ya, double tb, double xb, double yb, int depth) {
+        if(depth == MAX_DEPTH || size >= limit)
+            return;
+
+        double tm = (ta + tb) / 2;
+        double xm = x(tm);
+        double ym = fy.applyAsDouble(tm);
+        if(!isFinite(xm) || !isFinite(ym))
+            return;
+
+        if(xa < xLow && xm < xLow && xb < xLow || xa > xHigh && xm > xHigh && xb > xHigh // off to one side of the view
+                || ya < yLow && ym < yLow && yb < yLow || ya > yHigh && ym > yHigh && yb > yHigh)
+            return;
+
+        double dx = (xm - (xa + xb) / 2) / xPixel; // distance from the middle of the chord, pixels
+        double dy = (ym - (ya + yb) / 2) / yPixel;
+        if(!(dx * dx + dy * dy > TOLERANCE * TOLERANCE)) // NaN when a pixel has no size, so the curve is flat
+            return;
+
+        subdivide(ta, xa, ya, tm, xm, ym, depth + 1);
+        add(xm, ym);
+        subdivide(tm, xm, ym, tb, xb, yb, depth + 1);
+    }
+
+    private void clearPoints() {
+        size = 0;
+        minX = minY = Double.MAX_VALUE;
+        maxX = maxY = -Double.MAX_VALUE;
+        xSorted = true;
+    }
+
+    /**
+     * Append a point
+     */
+    private void add(double x, double y) {
+        if(size == xs.length) {
+            int grown = Math.max(64, size * 2);
+            xs = Arrays.copyOf(xs, grown);
+            ys = Arrays.copyOf(ys, grown);
+        }
+        if(size > 0 && x < xs[size - 1])
+            xSorted = false;
+
+        xs[size] = x;
+        ys[size] = y;
+        size++;
+
+        minX = Math.min(minX, x);
+        maxX = Math.max(maxX, x);
+        minY = Math.min(minY, y);
+        maxY = Math.max(maxY, y);
+    }
+
+    private double x(double t) {
+        return fx == null ? t : fx.applyAsDouble(t);
+    }
+
+    private static boolean isFinite(double v) {
+        return !Double.isNaN(v) && !Double.isInfinite(v);
+    }
+
+    /**
+     * @return the size of a range, or NaN if it is empty or a single value, so a flat curve is never subdivided
+     */
+    private static double spread(double max, double min) {
+        return max > min ? max - min : Double.NaN;
+    }
+
+    SeriesData snapshot() {
+        return this; // only changes when the render thread samples it again
+    }
+
+    PlotSeries freeze() {
+        return new FunctionSeries(this);
+    }
+
+    /**
+     * @return the number of points sampled for earlier views, so the points can be told apart from those of other
+     * views by {@link PointIndex}
+     */
+    long first() {
+        return first;
+    }
+
+    long version() {
+        return version;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean hasX() {
+        return true;
+    }
+
+    public double getX(int i) {
+        return xs[i];
+    }
+
+    public double getY(int i) {
+        return ys[i];
+    }
+
+    public boolean isXSorted() {
+        return xSorted;
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * @return the lowest value of the parameter, the lowest x for a curve of x
+     */
+    public double getMinT() {
+        return tMin;
+    }
+
+    /**
+     * @return the highest value of the parameter, the highest x for a curve of x
+     */
+    public double getMaxT() {
+        return tMax;
+    }
+}
@@ -0,0 +1,301 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+
+/**
+ * A series read straight from a binary log file of fixed-width records, through memory mapping. Opening a log only maps
+ * it, so it takes the same time no matter how large the file is, and the file is never copied onto the heap. The
+ * operating system pages in only the parts of the file that are actually read.
+ *
+ * Each record holds a y value, and optionally an x value, at fixed offsets. Values are doubles or floats. The caller
+ * says whether x values never decrease from one record to the next (such as a timestamp), since checking would read
+ * the whole file. Sorted logs have their visible ranges found by binary search. Unsorted logs are drawn like scatter
+ * data, reading every record, and their x bounds are found by reading every record the first time they are needed.
+ *
+ * The y bounds of fixed-size blocks of records are computed the first time they are needed and then kept, so drawing a
+ * pixel column that spans many records only reads the records at its edges.
+ *
+ * The y bounds a figure fits its axis to are those of the records in the x range it shows (see
+ * {@link #view(double, double)}), found from the same block summaries, so the records read for them are ones drawing
+ * the frame reads anyway. Nothing else in the file is ever read.
+ */
+public class MappedSeries extends PlotSeries implements SeriesData, RangeSummary, Closeable {
+
+    static final int BLOCK = 512; // records per summary block
+
+    private final RandomAccessFile file; // the open log, null for copies which share its mapping
+    private final MappedByteBuffer[] chunks; // the file, split into mappings of at most 2GB
+    private final int recordsPerChunk;
+
+    private final int recordBytes; // size of each record
+    private final int xOffset; // offset of the x value in each record (-1 if there is none)
+    private final boolean xSorted; // true if the caller promised x values never decrease
+    private final int yOffset; // offset of the y value in each record
+    private final boolean floats; // true if values are floats rather than doubles
+
+    private final int size; // number of records
+
+    private final double[] blockMin; // y bounds of each block, filled in on demand
+    private final double[] blockMax;
+    private final BitSet summarized; // blocks whose bounds have been found
+
+    private double viewMin = Double.NaN, viewMax = Double.NaN; // x range shown, NaN for the whole log
+    private int boundsFrom = -1, boundsTo = -1; // records the y bounds were last found for
+    private final double[] bounds = new double[2]; // smallest and largest y of those records
+    private double[] xBounds; // smallest and largest x of an unsorted log, found the first time they are needed
+
+    /******************************************************************
+     * Constructor which maps a log file
+     * @param path the log file
+     * @param recordBytes size of each record in bytes
+     * @param xOffset offset of the x value in each record, or -1 to draw records against their index
+     * @param xSorted true if x values never decrease from one record to the next, such as timestamps. Not checked
+     * beyond the first and last record, as that would read the whole file.
+     * @param yOffset offset of the y value in each record
+     * @param floats true if values are 4 byte floats, false for 8 byte doubles
+     * @param order byte order of the values
+     * @throws IOException if the file couldn't be opened or mapped
+     */
+    public MappedSeries(File path, int recordBytes, int xOffset, boolean xSorted, int yOffset, boolean floats,
+                        ByteOrder order) throws IOException {
+        int width = floats ? Float.BYTES : Double.BYTES;
+        if(recordBytes <= 0 || yOffset < 0 || yOffset + width > recordBytes)
+            throw new Error("Values must fit inside each record");
+        if(xOffset != -1 && (xOffset < 0 || xOffset + width > recordBytes))
+            throw new Error("X values must fit inside each record, or the offset be -1 for none");
+
+        this.recordBytes = recordBytes;
+        this.xOffset = xOffset;
+        this.xSorted = xSorted || xOffset < 0; // the index never decreases
+        this.yOffset = yOffset;
+        this.floats = floats;
+
+        file = new RandomAccessFile(path, "r");
+        FileChannel channel = file.getChannel();
+
+        long records = channel.size() / recordBytes; // a partly written last record is ignored
+        if(records > Integer.MAX_VALUE)
+            throw new Error("Log has too many records");
+        size = (int) records;
+
+        // map in whole records, each mapping as large as a buffer allows
+        recordsPerChunk = Integer.MAX_VALUE / recordBytes;
+        chunks = new MappedByteBuffer[(int) ((records + recordsPerChunk - 1) / recordsPerChunk)];
+        for(int c = 0; c < chunks.length; c++) {
+            long first = (long) c * recordsPerChunk;
+            long count = Math.min(recordsPerChunk, records - first);
+            chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, first * recordBytes, count * recordBytes);
+            chunks[c].order(order);
+        }
+
+        int blocks = (size + BLOCK - 1) / BLOCK;
+        blockMin = new double[blocks];
+        blockMax = new double[blocks];
+        summarized = new BitSet(blocks);
+
+        if(this.xSorted && size > 1 && getX(0) > getX(size - 1)) {
+            file.close();
+            throw new Error("X values of the log decrease, so it isn't sorted");
+        }
+    }
+
+    /**
+     * Read a value from a record
+     * @param i index of the record
+     * @param offset offset of the value in the record
+     * @return the value
+     */
+    private double read(int i, int offset) {
+        MappedByteBuffer chunk = chunks[i / recordsPerChunk];
+        int position = (i % recordsPerChunk) * recordBytes + offset;
+        return floats ? chunk.getFloat(position) : chunk.getDouble(position);
+    }
+
+    /******************************************************************
+     * Constructor for a copy sharing another series' mapping, with its own summaries so it can be read on another
+     * thread
+     * @param other the series to copy
+     */
+    private MappedSeries(MappedSeries other) {
+        file = null;
+        chunks = other.chunks;
+        recordsPerChunk = other.recordsPerChunk;
+        recordBytes = other.recordBytes;
+        xOffset = other.xOffset;
+        xSorted = other.xSorted;
+        yOffset = other.yOffset;
+        floats = other.floats;
+        size = other.size;
+
+        blockMin = new double[other.blockMin.length];
+        blockMax = new double[other.blockMax.length];
+        summarized = new BitSet(blockMin.length);
+        xBounds = other.xBounds;
+        copyStyle(other); // copies find the y bounds of the whole log until given a view
+    }
+
+    PlotSeries freeze() {
+        return new MappedSeries(this); // the file never changes, but the summaries are filled in as it is drawn
+    }
+
+    SeriesData snapshot() {
+        return this; // the file never changes underneath us
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean hasX() {
+        return xOffset >= 0;
+    }
+
+    public double getX(int i) {
+        return xOffset >= 0 ? read(i, xOffset) : i;
+    }
+
+    public double getY(int i) {
+        return read(i, yOffset);
+    }
+
+    public boolean isXSorted() {
+        return xSorted;
+    }
+
+    public double getMinX() {
+        if(size == 0)
+            return Double.MAX_VALUE;
+        return xSorted ? getX(0) : xBounds()[0];
+    }
+
+    public double getMaxX() {
+        if(size == 0)
+            return -Double.MAX_VALUE;
+        return xSorted ? getX(size - 1) : xBounds()[1];
+    }
+
+    /**
+     * @return the smallest and largest x of an unsorted log, reading every record the first time
+     */
+    private double[] xBounds() {
+        if(xBounds == null) {
+            double[] found = {Double.MAX_VALUE, -Double.MAX_VALUE};
+            for(int i = 0; i < size; i++)
+                include(found, getX(i));
+            xBounds = found;
+        }
+        return xBounds;
+    }
+
+    public double getMinY() {
+        return yBounds()[0];
+    }
+
+    public double getMaxY() {
+        return yBounds()[1];
+    }
+
+    /**
+     * Set the x range a frame shows, which the y bounds are found for
+     * @param xMin lowest x shown, or NaN to show the whole log
+     * @param xMax highest x shown, or NaN
+     */
+    void view(double xMin, double xMax) {
+        viewMin = xMin;
+        viewMax = xMax;
+    }
+
+    /**
+     * @return the smallest and largest y of the records in the range shown, from the block summaries
+     */
+    private double[] yBounds() {
+        int from = 0, to = size;
+        if(xSorted && !Double.isNaN(viewMin) && !Double.isNaN(viewMax)) { // and a record beyond each edge, as drawn
+            from = Math.max(lowerBound(viewMin) - 1, 0);
+            to = Math.min(lowerBound(viewMax) + 1, size);
+        }
+
+        if(from != boundsFrom || to != boundsTo) {
+            rangeY(from, to, bounds);
+            boundsFrom = from;
+            boundsTo = to;
+        }
+        return bounds;
+    }
+
+    private static void include(double[] range, double y) {
+        range[0] = Math.min(range[0], y);
+        range[1] = Math.max(range[1], y);
+    }
+
+    /**
+     * Make sure the bounds of a block are known
+     * @param b index of the block
+     */
+    private void summarize(int b) {
+        if(summarized.get(b))
+            return;
+
+        double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+        int end = Math.min(size, (b + 1) * BLOCK);
+        for(int i = b * BLOCK; i < end; i++) {
+            double y = getY(i);
+            min = Math.min(min, y);
+            max = Math.max(max, y);
+        }
+
+        blockMin[b] = min;
+        blockMax[b] = max;
+        summarized.set(b);
+    }
+
+    public boolean isSummarized() {
+        return true;
+    }
+
+    public void rangeY(int from, int to, double[] out) {
+        double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+
+        int i = from;
+        while(i < to) {
+            int b = i / BLOCK;
+            if(i % BLOCK == 0 && i + BLOCK <= to) { // a whole block, use its summary
+                summarize(b);
+                min = Math.min(min, blockMin[b]);
+                max = Math.max(max, blockMax[b]);
+                i += BLOCK;
+            } else { // a partial block at either end of the range
+                double y = getY(i);
+                min = Math.min(min, y);
+                max = Math.max(max, y);
+                i++;
+            }
+        }
+
+        out[0] = min;
+        out[1] = max;
+    }
+
+    /**
+     * @return the memory used on the heap for block summaries, in bytes (the records themselves are never copied)
+     */
+    public long summaryBytes() {
+        return (long) blockMin.length * 2 * Double.BYTES + summarized.size() / 8;
+    }
+
+    /**
+     * Close the log file. The mappings are released once they are garbage collected.
+     * @throws IOException if the file couldn't be closed
+     */
+    public void close() throws IOException {
+        if(file != null) // copies share the mapping but not the file
+            file.close();
+    }
+}
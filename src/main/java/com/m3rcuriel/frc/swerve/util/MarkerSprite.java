@@ -0,0 +1,61 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * A point marker rendered once into a small image, so marking a point is a single image blit instead of building and
+ * filling a new ellipse shape for every point.
+ */
+class MarkerSprite {
+
+    static final int SIZE = 4; // diameter of the marker in pixels
+
+    private final BufferedImage image;
+    private final int[] pixels; // the same image as premultiplied ARGB, for stamping into a RasterCanvas
+    private final Color color;
+
+    /******************************************************************
+     * Constructor which renders the marker for a color
+     * @param color color used for drawing dots
+     */
+    MarkerSprite(Color color) {
+        this.color = color;
+
+        image = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = image.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setPaint(color);
+        g2.fill(new Ellipse2D.Double(0, 0, SIZE, SIZE)); // the same dot the markers used to be drawn as
+        g2.dispose();
+
+        pixels = image.getRGB(0, 0, SIZE, SIZE, null, 0, SIZE);
+        for(int i = 0; i < pixels.length; i++)
+            pixels[i] = RasterCanvas.premultiply(pixels[i]);
+    }
+
+    /**
+     * Stamp the marker centered on a point
+     * @param g2 the Graphics2D instance to draw with
+     * @param x x position of the point in pixels
+     * @param y y position of the point in pixels
+     */
+    void draw(Graphics2D g2, double x, double y) {
+        g2.drawImage(image, (int) Math.round(x - SIZE / 2.0), (int) Math.round(y - SIZE / 2.0), null);
+    }
+
+    /**
+     * @return the marker's pixels as premultiplied ARGB, row by row (must not be modified)
+     */
+    int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * @return the color of the marker
+     */
+    Color getColor() {
+        return color;
+    }
+}
@@ -0,0 +1,85 @@
+package com.m3rcuriel.frc.swerve.util;
+
+/**
+ * A deque of ring buffer slots whose values are kept monotonic, used to track the minimum or maximum of a sliding
+ * window in amortized O(1) per sample. The front of the deque is always the slot holding the extreme value of the
+ * window.
+ *
+ * Slots must be pushed in the order they are written, and evicted in the same order before they are overwritten.
+ */
+class MonotonicDeque {
+
+    private final int[] slots; // circular buffer of ring slots
+    private final boolean max; // true to track the maximum, false for the minimum
+
+    private int head; // position of the front of the deque
+    private int size;
+
+    /******************************************************************
+     * Constructor for a deque tracking one extreme of a window
+     * @param capacity the capacity of the ring buffer being tracked
+     * @param max true to track the maximum, false for the minimum
+     */
+    MonotonicDeque(int capacity, boolean max) {
+        this.slots = new int[capacity];
+        this.max = max;
+    }
+
+    /**
+     * Add a newly written slot to the back of the window
+     * @param slot the slot in the ring buffer
+     * @param values the ring buffer, which already holds the new value
+     */
+    void push(int slot, SeriesColumn values) {
+        double v = values.get(slot);
+
+        // anything at the back that can no longer be the extreme is dropped
+        while(size > 0) {
+            double back = values.get(slots[index(size - 1)]);
+            if(max ? back > v : back < v)
+                break;
+            size--;
+        }
+
+        slots[index(size)] = slot;
+        size++;
+    }
+
+    /**
+     * Remove a slot from the front of the window before it is overwritten
+     * @param slot the slot in the ring buffer
+     */
+    void evict(int slot) {
+        if(size > 0 && slots[head] == slot) { // it only matters if it was the current extreme
+            head = index(1);
+            size--;
+        }
+    }
+
+    /**
+     * @return the slot holding the extreme value of the window
+     */
+    int peek() {
+        return slots[head];
+    }
+
+    /**
+     * @return true if the window is empty
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Empty the deque
+     */
+    void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    private int index(int i) {
+        int s = head + i;
+        return s >= slots.length ? s - slots.length : s;
+    }
+}
@@ -0,0 +1,89 @@
+package com.m3rcuriel.frc.swerve.util;
+
+/**
+ * The sample of a {@link Figure} nearest a point on screen, as found by {@link Figure#nearest(double, double, double)}
+ * for the hover readout. Holds the sample's values as they were when it was found, so it stays valid while the series
+ * keeps being appended to.
+ */
+public final class NearestSample {
+
+    private final PlotSeries series;
+    private final int index;
+    private final double x, y;
+    private final double pixelX, pixelY;
+    private final double distance;
+
+    /******************************************************************
+     * Constructor for a found sample
+     * @param series the series holding the sample
+     * @param index index of the sample in the frame it was found in, where 0 is the oldest
+     * @param x x value of the sample
+     * @param y y value of the sample
+     * @param pixelX x position of the sample in pixels
+     * @param pixelY y position of the sample in pixels
+     * @param distance distance from the point searched for, in pixels
+     */
+    NearestSample(PlotSeries series, int index, double x, double y, double pixelX, double pixelY, double distance) {
+        this.series = series;
+        this.index = index;
+        this.x = x;
+        this.y = y;
+        this.pixelX = pixelX;
+        this.pixelY = pixelY;
+        this.distance = distance;
+    }
+
+    /**
+     * @return the series holding the sample
+     */
+    public PlotSeries getSeries() {
+        return series;
+    }
+
+    /**
+     * @return the index of the sample in the frame it was found in, where 0 is the oldest
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the x value of the sample (its index for series without x values)
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * @return the y value of the sample
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * @return the x position of the sample in pixels
+     */
+    public double getPixelX() {
+        return pixelX;
+    }
+
+    /**
+     * @return the y position of the sample in pixels
+     */
+    public double getPixelY() {
+        return pixelY;
+    }
+
+    /**
+     * @return the distance from the point searched for to the sample, in pixels
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + x + ", " + y + ")";
+    }
+}
@@ -0,0 +1,314 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shows many figures in a grid in one window, such as the angle, velocity and current of each swerve module.
+ *
+ * Every figure is painted in the same pass from a single {@link RepaintScheduler}, which repaints whenever any of them
+ * has new data. Live traces in a dozen subplots therefore cost one frame of work at the capped frame rate, rather than
+ * a dozen windows each repainting on their own.
+ *
+ * The x axes of the figures can be linked, so they all show the same x range. Zooming or panning one subplot then
+ * moves all of them.
+ */
+public class PlotDashboard extends JPanel {
+
+    public JFrame plotFrame; // JFrame for containing the dashboard
+
+    private final int rows; // size of the grid of figures
+    private final int columns;
+
+    private final List<Figure> figures = new CopyOnWriteArrayList<>(); // figures in row order, safe to add while painting
+    private final ArrayList<Figure> frameFigures = new ArrayList<>(); // figures being painted this frame
+    private final AtomicLong structureVersion = new AtomicLong(); // bumped when figures are added or linking changes
+
+    private volatile boolean linkedX; // true if every figure shows the same x range
+
+    private final RepaintScheduler scheduler; // repaints every figure at a capped frame rate when any of them change
+
+    /******************************************************************
+     * Constructor for an empty dashboard
+     * @param title the title of the window
+     * @param rows number of rows of figures
+     * @param columns number of columns of figures
+     */
+    public PlotDashboard(String title, int rows, int columns) {
+        if(rows <= 0 || columns <= 0)
+            throw new Error("Dashboard needs at least one row and column");
+
+        this.rows = rows;
+        this.columns = columns;
+        this.scheduler = new RepaintScheduler(this, this::version, 60);
+
+        plotFrame = new JFrame(title);
+        plotFrame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE); // prevent windows from sticking around in background
+        plotFrame.add(this);
+        plotFrame.setSize(Math.min(400 * columns, 1600), Math.min(300 * rows, 1000));
+        plotFrame.setLocationByPlatform(true);
+
+        ViewListener view = new DashboardViewListener(); // zoom and pan with the mouse
+        addMouseListener(view);
+        addMouseMotionListener(view);
+        addMouseWheelListener(view);
+    }
+
+    /**
+     * Add a new empty figure in the next free cell of the grid, filling rows from left to right
+     * @param title the title of the figure
+     * @return the figure, which series are added to
+     */
+    public Figure addFigure(String title) {
+        return addFigure(new Figure(title));
+    }
+
+    /**
+     * Add an existing figure in the next free cell of the grid
+     * @param figure the figure to show
+     * @return the figure
+     */
+    public Figure addFigure(Figure figure) {
+        if(figures.size() == rows * columns)
+            throw new Error("Dashboard is full");
+
+        figures.add(figure);
+        structureVersion.incrementAndGet();
+
+        figure.getMetrics().setScheduler(scheduler);
+        if(isDisplayable()) // otherwise registered once shown
+            figure.getMetrics().register(metricsName(figures.size() - 1));
+        return figure;
+    }
+
+    /**
+     * @param index position of the figure in the grid, counting along each row
+     * @return the figure
+     */
+    public Figure getFigure(int index) {
+        return figures.get(index);
+    }
+
+    /**
+     * @return the number of figures in the dashboard
+     */
+    public int getFigureCount() {
+        return figures.size();
+    }
+
+    /**
+     * Link or unlink the x axes of all the figures
+     * @param linked true to show the same x range in every figure
+     */
+    public void setLinkedX(boolean linked) {
+        linkedX = linked;
+        if(!linked) { // each figure goes back to fitting its own data
+            for(Figure figure : figures)
+                figure.resetView();
+        }
+        structureVersion.incrementAndGet();
+    }
+
+    /**
+     * @return true if the x axes of the figures are linked
+     */
+    public boolean isLinkedX() {
+        return linkedX;
+    }
+
+    /**
+     * Set the visibility of the dashboard
+     * @param show the visibility of the dashboard
+     */
+    public void showPlot(boolean show) {
+        plotFrame.setVisible(show);
+    }
+
+    /**
+     * Start repainting with new data once the dashboard is shown, and publish the metrics of each figure through JMX
+     */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        scheduler.start();
+        for(int i = 0; i < figures.size(); i++)
+            figures.get(i).getMetrics().register(metricsName(i));
+    }
+
+    /**
+     * @return the name the metrics of a figure are published under, the window title and the figure's cell
+     */
+    private String metricsName(int index) {
+        return plotFrame.getTitle() + " [" + index + "]";
+    }
+
+    /**
+     * Stop repainting once the dashboard is no longer shown
+     */
+    @Override
+    public void removeNotify() {
+        scheduler.stop();
+        for(Figure figure : figures)
+            figure.getMetrics().unregister();
+        super.removeNotify();
+    }
+
+    /**
+     * Change the maximum rate the dashboard repaints at as data arrives
+     * @param fps the maximum number of repaints per second
+     */
+    public void setFrameRate(int fps) {
+        scheduler.setFrameRate(fps);
+    }
+
+    /**
+     * Ask for the dashboard to be repainted at the next frame. Safe to call from any thread at any rate.
+     */
+    public void requestRepaint() {
+        scheduler.requestRepaint();
+    }
+
+    /**
+     * @return the scheduler which repaints the dashboard
+     */
+    public RepaintScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @return a number which changes whenever any figure changes, so the scheduler knows to repaint
+     */
+    public long version() {
+        long version = structureVersion.get();
+        for(Figure figure : figures) // each only ever goes up, and figures are never removed, so the sum can't repeat
+            version += figure.version();
+        return version;
+    }
+
+    /**
+     * called by swing to paint every figure in one pass
+     * @param g the graphics context to render in
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+
+        Graphics2D g2 = (Graphics2D) g;
+
+        // capture every figure before drawing any, so linked axes are laid out from all of them
+        frameFigures.clear();
+        frameFigures.addAll(figures);
+        for(Figure figure : frameFigures) {
+            figure.setFont(getFont());
+            figure.setForeground(getForeground());
+            figure.prepare();
+        }
+
+        if(linkedX)
+            linkX();
+
+        int cellWidth = getWidth() / columns;
+        int cellHeight = getHeight() / rows;
+        Shape clip = g2.getClip();
+
+        for(int i = 0; i < frameFigures.size(); i++) {
+            int x = (i % columns) * cellWidth;
+            int y = (i / columns) * cellHeight;
+
+            g2.translate(x, y); // each figure draws as if it had the whole component to itself
+            g2.clipRect(0, 0, cellWidth, cellHeight);
+            frameFigures.get(i).draw(g2, cellWidth, cellHeight);
+            g2.translate(-x, -y);
+            g2.setClip(clip);
+        }
+    }
+
+    /**
+     * Give every figure which isn't zoomed the x bounds of all the data in the dashboard
+     */
+    private void linkX() {
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for(Figure figure : frameFigures) {
+            if(figure.hasData()) { // empty figures would drag the range towards their placeholder bounds
+                min = Math.min(min, figure.getDataMinX());
+                max = Math.max(max, figure.getDataMaxX());
+            }
+        }
+
+        if(min > max) // nothing to link
+            return;
+
+        for(Figure figure : frameFigures)
+            figure.linkX(min, max);
+    }
+
+    /**
+     * Find which figure a point of the dashboard lies in
+     * @param x x position in pixels
+     * @param y y position in pixels
+     * @return the index of the figure, or -1 if the cell is empty
+     */
+    private int figureAt(int x, int y) {
+        int column = Math.min(x / Math.max(getWidth() / columns, 1), columns - 1);
+        int row = Math.min(y / Math.max(getHeight() / rows, 1), rows - 1);
+        int index = row * columns + column;
+        return index < figures.size() ? index : -1;
+    }
+
+    /**
+     * Copy the x range of a figure that was just zoomed or panned to every other figure
+     * @param source the figure that moved
+     */
+    private void followX(Figure source) {
+        if(!linkedX || !source.isZoomedX())
+            return;
+
+        for(Figure figure : figures) {
+            if(figure != source)
+                figure.setXView(source.getViewMinX(), source.getViewMaxX());
+        }
+    }
+
+    /**
+     * This inner class zooms and pans whichever figure is under the mouse, and the others too if x is linked
+     */
+    class DashboardViewListener extends ViewListener {
+        DashboardViewListener() {
+            super(scheduler);
+        }
+
+        int figureAt(int x, int y) {
+            return PlotDashboard.this.figureAt(x, y);
+        }
+
+        Figure figure(int index) {
+            return index < figures.size() ? figures.get(index) : null;
+        }
+
+        int cellX(int index) {
+            return (index % columns) * (getWidth() / columns);
+        }
+
+        int cellY(int index) {
+            return (index / columns) * (getHeight() / rows);
+        }
+
+        void viewChanged(Figure figure) {
+            followX(figure);
+        }
+
+        void resetView(int index) {
+            if(linkedX) { // they all share a range, so they all go back to the data bounds
+                for(Figure figure : figures)
+                    figure.resetView();
+            } else {
+                figures.get(index).resetView();
+            }
+        }
+    }
+}
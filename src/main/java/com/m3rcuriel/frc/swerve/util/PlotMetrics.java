@@ -0,0 +1,353 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Measures how long a {@link Figure} takes to render and how much work each frame does, so slow frames during a match
+ * can be traced to a stage: capturing the series and finding their bounds, drawing the axes, or plotting the data.
+ *
+ * The figure records every frame it renders. The metrics can be read all at once with {@link #snapshot()}, published
+ * through JMX with {@link #register(String)}, or drawn live over the plot with {@link Figure#setMetricsOverlay}.
+ * Recording only writes a few numbers into fixed arrays, so it is always on.
+ *
+ * Frame time percentiles and mean stage times cover the last {@value #HISTORY} frames. Repaint counts come from the
+ * {@link RepaintScheduler} showing the figure, if any. The ingest rate is the rate samples were appended to the
+ * figure's series, measured over windows of about half a second.
+ */
+public class PlotMetrics implements PlotMetricsMXBean {
+
+    /**
+     * Number of recent frames percentiles and mean stage times are taken over
+     */
+    public static final int HISTORY = 256;
+
+    private static final long RATE_WINDOW = 500_000_000L; // shortest time the ingest rate is measured over, ns
+
+    private static final String DOMAIN = "com.m3rcuriel.frc.swerve.util"; // JMX domain every plot is registered in
+
+    private final LongSupplier samples; // total samples ever appended to the figure's series
+
+    private final long[] frameTimes = new long[HISTORY]; // ring of recent frame times, ns
+    private final long[] boundsTimes = new long[HISTORY]; // and of the time spent in each stage
+    private final long[] chromeTimes = new long[HISTORY];
+    private final long[] dataTimes = new long[HISTORY];
+    private long frames; // frames recorded, the next slot of the rings is frames % HISTORY
+
+    private long pointsVisited; // work done by the last frame
+    private long segmentsDrawn;
+    private long allocatedBytes = -1;
+
+    private long rateStart = -1; // time and sample count the current ingest window started at
+    private long rateSamples;
+    private double ingestRate; // samples per second over the last complete window
+
+    private volatile RepaintScheduler scheduler; // repaints the figure, if shown in a window
+    private ObjectName name; // name registered with JMX, null if not registered
+
+    /******************************************************************
+     * Constructor for the metrics of one figure
+     * @param samples supplier of the total number of samples ever appended to the figure's series
+     */
+    PlotMetrics(LongSupplier samples) {
+        this.samples = samples;
+    }
+
+    /**
+     * Record a rendered frame. Only called by the figure.
+     * @param bounds time spent capturing series and finding their bounds in ns
+     * @param chrome time spent laying out and drawing the axes, ticks and labels in ns
+     * @param data time spent plotting the data in ns
+     * @param points samples read to work out the series drawn, none for those whose cached path was reused
+     * @param segments line segments drawn
+     * @param allocated bytes allocated while plotting, or -1 if unsupported
+     */
+    synchronized void record(long bounds, long chrome, long data, long points, long segments, long allocated) {
+        int slot = (int) (frames % HISTORY);
+        frameTimes[slot] = bounds + chrome + data;
+        boundsTimes[slot] = bounds;
+        chromeTimes[slot] = chrome;
+        dataTimes[slot] = data;
+        frames++;
+
+        pointsVisited = points;
+        segmentsDrawn = segments;
+        allocatedBytes = allocated;
+
+        updateRate(System.nanoTime());
+    }
+
+    /**
+     * Start a new ingest window if the current one has run long enough, keeping the rate it measured
+     */
+    private void updateRate(long now) {
+        long total = samples.getAsLong();
+        if(rateStart < 0 || total < rateSamples) { // first measurement, or series were removed
+            rateStart = now;
+            rateSamples = total;
+        } else if(now - rateStart >= RATE_WINDOW) {
+            ingestRate = (total - rateSamples) * 1e9 / (now - rateStart);
+            rateStart = now;
+            rateSamples = total;
+        }
+    }
+
+    /**
+     * Tell the metrics which scheduler repaints the figure, so its repaint counts are included
+     * @param scheduler the scheduler, or null if none
+     */
+    void setScheduler(RepaintScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Capture every metric at once. Safe to call from any thread.
+     * @return the current metrics
+     */
+    public synchronized Snapshot snapshot() {
+        updateRate(System.nanoTime()); // so the rate falls to zero when samples stop arriving, even without frames
+
+        int n = (int) Math.min(frames, HISTORY);
+        long[] sorted = Arrays.copyOf(frameTimes, n);
+        Arrays.sort(sorted);
+
+        RepaintScheduler scheduler = this.scheduler;
+        return new Snapshot(frames,
+                percentile(sorted, 0.5), percentile(sorted, 0.9), percentile(sorted, 0.99),
+                n == 0 ? 0 : sorted[n - 1] / 1e6,
+                mean(boundsTimes, n), mean(chromeTimes, n), mean(dataTimes, n),
+                pointsVisited, segmentsDrawn, allocatedBytes,
+                scheduler == null ? 0 : scheduler.getFrames(),
+                scheduler == null ? 0 : scheduler.getCoalesced(),
+                scheduler == null ? 0 : scheduler.getDropped(),
+                ingestRate);
+    }
+
+    /**
+     * @return a percentile of sorted times in ms, or 0 if there are none
+     */
+    private static double percentile(long[] sorted, double percentile) {
+        if(sorted.length == 0)
+            return 0;
+        return sorted[(int) Math.min(sorted.length - 1, Math.floor(percentile * sorted.length))] / 1e6;
+    }
+
+    /**
+     * @return the mean of the first n times in ms, or 0 if there are none
+     */
+    private static double mean(long[] times, int n) {
+        if(n == 0)
+            return 0;
+
+        long sum = 0;
+        for(int i = 0; i < n; i++)
+            sum += times[i];
+        return sum / 1e6 / n;
+    }
+
+    /**
+     * Publish the metrics through the platform MBean server, under
+     * com.m3rcuriel.frc.swerve.util:type=PlotMetrics,name=(plot). If another plot already has the name, a number is
+     * added to it.
+     * @param plot the name of the plot, such as its window title
+     */
+    public synchronized void register(String plot) {
+        unregister();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for(int i = 1; ; i++) {
+                ObjectName candidate = new ObjectName(DOMAIN + ":type=PlotMetrics,name="
+                        + ObjectName.quote(i == 1 ? plot : plot + " (" + i + ")"));
+                if(!server.isRegistered(candidate)) {
+                    server.registerMBean(this, candidate);
+                    name = candidate;
+                    return;
+                }
+            }
+        } catch(JMException e) {
+            throw new Error("Couldn't register plot metrics", e);
+        }
+    }
+
+    /**
+     * Stop publishing the metrics through JMX, if they were
+     */
+    public synchronized void unregister() {
+        if(name == null)
+            return;
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch(JMException e) {
+            // already gone
+        }
+        name = null;
+    }
+
+    public long getFrames() {
+        return snapshot().getFrames();
+    }
+
+    public double getFrameTimeP50() {
+        return snapshot().getFrameTimeP50();
+    }
+
+    public double getFrameTimeP90() {
+        return snapshot().getFrameTimeP90();
+    }
+
+    public double getFrameTimeP99() {
+        return snapshot().getFrameTimeP99();
+    }
+
+    public double getFrameTimeMax() {
+        return snapshot().getFrameTimeMax();
+    }
+
+    public double getBoundsTime() {
+        return snapshot().getBoundsTime();
+    }
+
+    public double getChromeTime() {
+        return snapshot().getChromeTime();
+    }
+
+    public double getDataTime() {
+        return snapshot().getDataTime();
+    }
+
+    public long getPointsVisited() {
+        return snapshot().getPointsVisited();
+    }
+
+    public long getSegmentsDrawn() {
+        return snapshot().getSegmentsDrawn();
+    }
+
+    public long getAllocatedBytes() {
+        return snapshot().getAllocatedBytes();
+    }
+
+    public long getRepaints() {
+        return snapshot().getRepaints();
+    }
+
+    public long getCoalescedRepaints() {
+        return snapshot().getCoalescedRepaints();
+    }
+
+    public long getDroppedFrames() {
+        return snapshot().getDroppedFrames();
+    }
+
+    public double getIngestRate() {
+        return snapshot().getIngestRate();
+    }
+
+    /**
+     * The metrics of a plot at one moment, which never change
+     */
+    public static final class Snapshot implements PlotMetricsMXBean {
+        private final long frames;
+        private final double frameTimeP50, frameTimeP90, frameTimeP99, frameTimeMax;
+        private final double boundsTime, chromeTime, dataTime;
+        private final long pointsVisited, segmentsDrawn, allocatedBytes;
+        private final long repaints, coalescedRepaints, droppedFrames;
+        private final double ingestRate;
+
+        Snapshot(long frames, double frameTimeP50, double frameTimeP90, double frameTimeP99, double frameTimeMax,
+                 double boundsTime, double chromeTime, double dataTime,
+                 long pointsVisited, long segmentsDrawn, long allocatedBytes,
+                 long repaints, long coalescedRepaints, long droppedFrames, double ingestRate) {
+            this.frames = frames;
+            this.frameTimeP50 = frameTimeP50;
+            this.frameTimeP90 = frameTimeP90;
+            this.frameTimeP99 = frameTimeP99;
+            this.frameTimeMax = frameTimeMax;
+            this.boundsTime = boundsTime;
+            this.chromeTime = chromeTime;
+            this.dataTime = dataTime;
+            this.pointsVisited = pointsVisited;
+            this.segmentsDrawn = segmentsDrawn;
+            this.allocatedBytes = allocatedBytes;
+            this.repaints = repaints;
+            this.coalescedRepaints = coalescedRepaints;
+            this.droppedFrames = droppedFrames;
+            this.ingestRate = ingestRate;
+        }
+
+        public long getFrames() {
+            return frames;
+        }
+
+        public double getFrameTimeP50() {
+            return frameTimeP50;
+        }
+
+        public double getFrameTimeP90() {
+            return frameTimeP90;
+        }
+
+        public double getFrameTimeP99() {
+            return frameTimeP99;
+        }
+
+        public double getFrameTimeMax() {
+            return frameTimeMax;
+        }
+
+        public double getBoundsTime() {
+            return boundsTime;
+        }
+
+        public double getChromeTime() {
+            return chromeTime;
+        }
+
+        public double getDataTime() {
+            return dataTime;
+        }
+
+        public long getPointsVisited() {
+            return pointsVisited;
+        }
+
+        public long getSegmentsDrawn() {
+            return segmentsDrawn;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public long getRepaints() {
+            return repaints;
+        }
+
+        public long getCoalescedRepaints() {
+            return coalescedRepaints;
+        }
+
+        public long getDroppedFrames() {
+            return droppedFrames;
+        }
+
+        public double getIngestRate() {
+            return ingestRate;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d frames, p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, max %.2f ms, "
+                            + "bounds %.2f ms, chrome %.2f ms, data %.2f ms, %d points, %d segments, "
+                            + "%d repaints, %d coalesced, %d dropped, %.0f samples/s",
+                    frames, frameTimeP50, frameTimeP90, frameTimeP99, frameTimeMax, boundsTime, chromeTime, dataTime,
+                    pointsVisited, segmentsDrawn, repaints, coalescedRepaints, droppedFrames, ingestRate);
+        }
+    }
+}
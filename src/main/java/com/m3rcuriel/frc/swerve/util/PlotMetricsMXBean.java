@@ -0,0 +1,85 @@
+package com.m3rcuriel.frc.swerve.util;
+
+/**
+ * The rendering metrics of one plot as seen through JMX, such as in JConsole or VisualVM. See {@link PlotMetrics}.
+ *
+ * Times are in milliseconds. Percentiles and stage times cover the most recent frames rather than the whole run.
+ */
+public interface PlotMetricsMXBean {
+
+    /**
+     * @return the number of frames rendered
+     */
+    long getFrames();
+
+    /**
+     * @return the median time to render a frame
+     */
+    double getFrameTimeP50();
+
+    /**
+     * @return the 90th percentile time to render a frame
+     */
+    double getFrameTimeP90();
+
+    /**
+     * @return the 99th percentile time to render a frame
+     */
+    double getFrameTimeP99();
+
+    /**
+     * @return the longest time to render a recent frame
+     */
+    double getFrameTimeMax();
+
+    /**
+     * @return the mean time spent capturing series and finding their bounds each frame
+     */
+    double getBoundsTime();
+
+    /**
+     * @return the mean time spent laying out and drawing the axes, ticks and labels each frame
+     */
+    double getChromeTime();
+
+    /**
+     * @return the mean time spent plotting the data each frame
+     */
+    double getDataTime();
+
+    /**
+     * @return the number of samples the last frame read to work out its series, which leaves out series whose cached
+     * path was drawn again unchanged
+     */
+    long getPointsVisited();
+
+    /**
+     * @return the number of line segments drawn in the last frame, after decimation
+     */
+    long getSegmentsDrawn();
+
+    /**
+     * @return bytes allocated while plotting the last frame, or -1 if unsupported
+     */
+    long getAllocatedBytes();
+
+    /**
+     * @return the number of repaints the plot's scheduler issued
+     */
+    long getRepaints();
+
+    /**
+     * @return the number of explicit repaint requests merged into another frame
+     */
+    long getCoalescedRepaints();
+
+    /**
+     * @return the number of frames skipped because the event dispatch thread fell behind
+     */
+    long getDroppedFrames();
+
+    /**
+     * @return samples appended to the plot's series per second, over the last half second or so
+     */
+    double getIngestRate();
+}
@@ -0,0 +1,83 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.awt.*;
+
+/**
+ * Anything that can be drawn as a series on a {@link Figure}. This holds how the series is styled, and how the renderer
+ * gets a stable view of its samples for each frame.
+ */
+public abstract class PlotSeries {
+
+    Color lineColor;
+
+    boolean lineMarker;
+    Color markerColor;
+    MarkerSprite markerSprite; // pre-rendered marker dot
+
+    /**
+     * Change how the series is drawn
+     * @param lineColor color used for drawing connecting lines
+     * @param marker color used for drawing dots (may be null)
+     */
+    void setStyle(Color lineColor, Color marker) {
+        this.lineColor = lineColor;
+
+        if(marker == null) // don't mark if we don't have to
+            lineMarker = false;
+        else {
+            lineMarker = true;
+            markerColor = marker;
+            markerSprite = new MarkerSprite(marker); // render the dot once up front
+        }
+    }
+
+    /**
+     * Give this series the same style as another
+     * @param other the series to copy the style of
+     */
+    void copyStyle(PlotSeries other) {
+        lineColor = other.lineColor;
+        lineMarker = other.lineMarker;
+        markerColor = other.markerColor;
+        markerSprite = other.markerSprite; // never changed once rendered, so it can be shared
+    }
+
+    /**
+     * Make a copy of the series as it is now, which never changes and can be rendered on any thread while this series
+     * keeps being appended to and drawn. Called on the thread rendering the figure.
+     * @return the copy, with the same style
+     */
+    abstract PlotSeries freeze();
+
+    /**
+     * Capture the samples to draw in the next frame. Only called by the thread rendering the figure.
+     * @return a view of the samples, valid until the next call
+     */
+    abstract SeriesData snapshot();
+
+    /**
+     * @return true if samples have x values, false if they are drawn against their index
+     */
+    public abstract boolean hasX();
+
+    /**
+     * @return a number which changes whenever the samples change, so the plot knows to paint again
+     */
+    long version() {
+        return 0; // fixed data never changes
+    }
+
+    /**
+     * @return the total number of samples ever appended, for measuring how fast data arrives
+     */
+    long samplesAppended() {
+        return 0; // fixed data never has samples appended
+    }
+
+    /**
+     * @return true if the samples of the last snapshot weren't changed while they were being drawn
+     */
+    boolean isConsistent() {
+        return true;
+    }
+}
@@ -0,0 +1,500 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.awt.*;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Saves a whole {@link Figure} to a compact binary file and loads it back, so a post-match analysis figure can be
+ * reopened without parsing the raw logs again. The file holds the title, labels, any ticks set with
+ * {@link Figure#setXTic} and {@link Figure#setYTic}, and every series with its colors and samples.
+ *
+ * Sample values are stored as the raw little endian columns the series used in memory (doubles or floats), laid out
+ * the way {@link DataSeries} ring buffers are. Loading maps each column straight out of the file (copy on write)
+ * and wraps it as the series' buffer, so a session of any size loads in the time it takes to read the headers, and
+ * samples are only paged in as they are drawn. Loaded series can still be appended to; changes are never written
+ * back to the file. Series loaded from a read only file are mapped read only, and can't be appended to.
+ *
+ * Series which compute their x values (from the sample number or a uniform time base) store only y values. Series of
+ * other kinds, such as a {@link MappedSeries}, are saved as data series holding the same samples. Density series are
+ * saved with their bin counts and colors.
+ *
+ * Layout, all little endian: a header of magic, version, title, labels and ticks, then for each series a header
+ * followed by its columns, each column starting on an 8 byte boundary so it can be read in place.
+ */
+public final class PlotSession {
+
+    private static final int MAGIC = 0x53575053; // "SWPS"
+    private static final int VERSION = 1;
+
+    private static final byte SAMPLES = 0; // kinds of series
+    private static final byte DENSITY = 1;
+
+    private static final byte X_INDEXED = 0; // how sample series find their x values
+    private static final byte X_STORED = 1;
+    private static final byte X_UNIFORM = 2;
+
+    private static final int BUFFER = 1 << 16; // bytes written at a time
+
+    private PlotSession() {
+    }
+
+    /**
+     * Save a figure as it is now. Series are frozen first (see {@link Figure#freeze()}), so this must be called on the
+     * thread painting the figure, or while nothing is.
+     * @param figure the figure to save
+     * @param file the file to write, replaced if it exists
+     * @throws IOException if the file couldn't be written
+     */
+    public static void save(Figure figure, File file) throws IOException {
+        Figure frozen = figure.freeze();
+
+        try(RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(0);
+            Writer writer = new Writer(out.getChannel());
+
+            writer.putInt(MAGIC);
+            writer.putInt(VERSION);
+            writer.putString(frozen.getTitle());
+            writer.putString(frozen.getXLabel());
+            writer.putString(frozen.getYLabel());
+            writer.putTic(frozen.getXTic());
+            writer.putTic(frozen.getYTic());
+
+            List<PlotSeries> series = frozen.getSeries();
+            writer.putInt(series.size());
+            for(PlotSeries node : series) {
+                if(node instanceof DensitySeries)
+                    saveDensity(writer, (DensitySeries) node);
+                else
+                    saveSamples(writer, node);
+            }
+
+            writer.flush();
+        }
+    }
+
+    /**
+     * Write a series of samples, with its columns in ring buffer order
+     */
+    private static void saveSamples(Writer writer, PlotSeries node) throws IOException {
+        SeriesData data = node.snapshot();
+        int n = data.size();
+
+        // work out how the series stores its samples, anything but a data series stores everything as doubles
+        byte xMode = data.hasX() ? X_STORED : X_INDEXED;
+        double xStart = 0, xStep = 1;
+        long first = 0; // sequence number of the first sample
+        int valueBytes = Double.BYTES;
+        if(node instanceof FrozenSeries) {
+            FrozenSeries frozen = (FrozenSeries) node;
+            if(!frozen.storesX() && frozen.hasX())
+                xMode = X_UNIFORM;
+            xStart = frozen.xStart();
+            xStep = frozen.xStep();
+            first = frozen.first();
+            valueBytes = frozen.valueBytes();
+        }
+
+        writer.putByte(SAMPLES);
+        writer.putStyle(node);
+        writer.putByte(xMode);
+        writer.putByte((byte) valueBytes);
+        writer.putDouble(xStart);
+        writer.putDouble(xStep);
+        writer.putLong(first);
+        writer.putInt(n);
+        writer.putByte((byte) (data.isXSorted() ? 1 : 0));
+        writer.putDouble(data.getMinX());
+        writer.putDouble(data.getMaxX());
+        writer.putDouble(data.getMinY());
+        writer.putDouble(data.getMaxY());
+        if(n == 0)
+            return; // no columns
+
+        // slot s of a ring buffer of n samples holds the sample whose sequence number is s modulo n
+        int rotation = (int) (first % n); // slot of the first sample
+        if(xMode == X_STORED) {
+            writer.align();
+            for(int s = 0; s < n; s++)
+                writer.putValue(data.getX(index(s, rotation, n)), valueBytes);
+        }
+        writer.align();
+        for(int s = 0; s < n; s++)
+            writer.putValue(data.getY(index(s, rotation, n)), valueBytes);
+    }
+
+    /**
+     * @return the index of the sample in a slot of a ring buffer whose first sample is in slot rotation
+     */
+    private static int index(int slot, int rotation, int n) {
+        int i = slot - rotation;
+        return i < 0 ? i + n : i;
+    }
+
+    /**
+     * Write a density series with its grid, colors and counts
+     */
+    private static void saveDensity(Writer writer, DensitySeries density) throws IOException {
+        writer.putByte(DENSITY);
+        writer.putStyle(density);
+        writer.putInt(density.getColumns());
+        writer.putInt(density.getRows());
+        writer.putDouble(density.getGridMinX());
+        writer.putDouble(density.getGridMaxX());
+        writer.putDouble(density.getGridMinY());
+        writer.putDouble(density.getGridMaxY());
+        writer.putLong(density.getOutside());
+        writer.putDouble(density.getMinX());
+        writer.putDouble(density.getMaxX());
+        writer.putDouble(density.getMinY());
+        writer.putDouble(density.getMaxY());
+
+        for(int color : density.getColorMap().table())
+            writer.putInt(color);
+
+        for(int row = 0; row < density.getRows(); row++)
+            for(int column = 0; column < density.getColumns(); column++)
+                writer.putInt(density.getCount(column, row));
+    }
+
+    /**
+     * Load a saved figure. The sample columns are mapped rather than read, so loading takes about the same time for
+     * any number of samples.
+     * @param file the file to read
+     * @return a new figure, as it was saved
+     * @throws IOException if the file couldn't be read, or isn't a saved session
+     */
+    public static Figure load(File file) throws IOException {
+        if(!file.isFile())
+            throw new FileNotFoundException(file + " does not exist");
+
+        // copy on write mappings need a writable channel, although nothing is ever written back
+        boolean writable = file.canWrite();
+        try(RandomAccessFile in = new RandomAccessFile(file, writable ? "rw" : "r")) {
+            Reader reader = new Reader(in.getChannel(), writable); // mappings stay valid after the file is closed
+
+            if(reader.getInt() != MAGIC)
+                throw new IOException(file + " is not a saved plot session");
+            int version = reader.getInt();
+            if(version != VERSION)
+                throw new IOException(file + " is a session of unsupported version " + version);
+
+            Figure figure = new Figure(reader.getString());
+            figure.setXLabel(reader.getString());
+            figure.setYLabel(reader.getString());
+            double[] xTic = reader.getTic();
+            if(xTic != null)
+                figure.setXTic(xTic[0], xTic[1], xTic[2]);
+            double[] yTic = reader.getTic();
+            if(yTic != null)
+                figure.setYTic(yTic[0], yTic[1], yTic[2]);
+
+            int count = reader.getInt();
+            for(int i = 0; i < count; i++) {
+                byte kind = reader.getByte();
+                Color lineColor = reader.getColor();
+                Color marker = reader.getColor();
+
+                if(kind == SAMPLES)
+                    figure.add(loadSamples(reader), lineColor, marker);
+                else if(kind == DENSITY)
+                    figure.add(loadDensity(reader), lineColor, marker);
+                else
+                    throw new IOException(file + " has a series of unknown kind " + kind);
+            }
+            return figure;
+        }
+    }
+
+    /**
+     * Read a series of samples, wrapping its columns where they are in the file
+     */
+    private static DataSeries loadSamples(Reader reader) throws IOException {
+        byte xMode = reader.getByte();
+        int valueBytes = reader.getByte();
+        double xStart = reader.getDouble();
+        double xStep = reader.getDouble();
+        long first = reader.getLong();
+        int n = reader.getInt();
+        boolean xSorted = reader.getByte() != 0;
+        double[] bounds = {reader.getDouble(), reader.getDouble(), reader.getDouble(), reader.getDouble()};
+
+        if(valueBytes != Double.BYTES && valueBytes != Float.BYTES)
+            throw new IOException("Unsupported value size " + valueBytes);
+
+        if(n == 0) { // nothing to map, so start an empty series stored the same way
+            SeriesStorage storage = valueBytes == Float.BYTES ? SeriesStorage.FLOAT : SeriesStorage.DOUBLE;
+            return xMode == X_UNIFORM
+                    ? new DataSeries(1, storage, xStart, xStep)
+                    : new DataSeries(1, storage, xMode == X_STORED);
+        }
+
+        SeriesColumn x = null;
+        if(xMode == X_STORED) {
+            reader.align();
+            x = reader.mapColumn(n, valueBytes);
+        }
+        reader.align();
+        SeriesColumn y = reader.mapColumn(n, valueBytes);
+
+        return new DataSeries(x, y, xMode == X_INDEXED, xStart, xStep, first + n, xSorted, bounds);
+    }
+
+    /**
+     * Read a density series, copying its counts
+     */
+    private static DensitySeries loadDensity(Reader reader) throws IOException {
+        int columns = reader.getInt();
+        int rows = reader.getInt();
+        double[] grid = {reader.getDouble(), reader.getDouble(), reader.getDouble(), reader.getDouble()};
+        long outside = reader.getLong();
+        double[] bounds = {reader.getDouble(), reader.getDouble(), reader.getDouble(), reader.getDouble()};
+
+        int[] table = new int[256];
+        reader.getInts(table);
+        int[] counts = new int[columns * rows];
+        reader.getInts(counts);
+
+        DensitySeries density = new DensitySeries(columns, rows, grid, counts, outside, bounds);
+        density.setColorMap(new ColorMap(table));
+        return density;
+    }
+
+    /**
+     * Writes little endian values to a file through one reused direct buffer
+     */
+    private static class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        private long position; // bytes written so far, including those still in the buffer
+
+        Writer(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void room(int bytes) throws IOException {
+            if(buffer.remaining() < bytes)
+                flush();
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while(buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        void putByte(byte b) throws IOException {
+            room(1);
+            buffer.put(b);
+            position++;
+        }
+
+        void putInt(int i) throws IOException {
+            room(Integer.BYTES);
+            buffer.putInt(i);
+            position += Integer.BYTES;
+        }
+
+        void putLong(long l) throws IOException {
+            room(Long.BYTES);
+            buffer.putLong(l);
+            position += Long.BYTES;
+        }
+
+        void putDouble(double d) throws IOException {
+            room(Double.BYTES);
+            buffer.putDouble(d);
+            position += Double.BYTES;
+        }
+
+        /**
+         * Write a value as a double or a float
+         */
+        void putValue(double value, int bytes) throws IOException {
+            if(bytes == Float.BYTES) {
+                room(Float.BYTES);
+                buffer.putFloat((float) value);
+                position += Float.BYTES;
+            } else {
+                putDouble(value);
+            }
+        }
+
+        /**
+         * Write a string as its length and UTF-8 bytes, or a length of -1 for null
+         */
+        void putString(String s) throws IOException {
+            if(s == null) {
+                putInt(-1);
+                return;
+            }
+
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            for(byte b : bytes)
+                putByte(b);
+        }
+
+        /**
+         * Write ticks set by the user, or a flag saying they follow the data
+         */
+        void putTic(double[] tic) throws IOException {
+            putByte((byte) (tic == null ? 0 : 1));
+            if(tic != null)
+                for(double d : tic)
+                    putDouble(d);
+        }
+
+        /**
+         * Write a color as ARGB, or a flag saying there is none
+         */
+        void putColor(Color color) throws IOException {
+            putByte((byte) (color == null ? 0 : 1));
+            putInt(color == null ? 0 : color.getRGB());
+        }
+
+        /**
+         * Write the line and marker colors of a series
+         */
+        void putStyle(PlotSeries series) throws IOException {
+            putColor(series.lineColor);
+            putColor(series.lineMarker ? series.markerColor : null);
+        }
+
+        /**
+         * Pad with zeros up to the next 8 byte boundary
+         */
+        void align() throws IOException {
+            while(position % Long.BYTES != 0)
+                putByte((byte) 0);
+        }
+    }
+
+    /**
+     * Reads little endian values from a file, mapping columns rather than reading them
+     */
+    private static class Reader {
+        private final FileChannel channel;
+        private final FileChannel.MapMode mode; // how columns are mapped
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        private long position; // file position of the next value
+
+        Reader(FileChannel channel, boolean writable) {
+            this.channel = channel;
+            this.mode = writable ? FileChannel.MapMode.PRIVATE : FileChannel.MapMode.READ_ONLY;
+            buffer.limit(0);
+        }
+
+        /**
+         * Make sure the buffer holds the next few bytes, reading more of the file if not
+         */
+        private void need(int bytes) throws IOException {
+            if(buffer.remaining() >= bytes)
+                return;
+
+            long start = position;
+            buffer.clear();
+            while(buffer.hasRemaining()) {
+                if(channel.read(buffer, start + buffer.position()) < 0)
+                    break;
+            }
+            buffer.flip();
+
+            if(buffer.remaining() < bytes)
+                throw new IOException("Session ends unexpectedly");
+        }
+
+        byte getByte() throws IOException {
+            need(1);
+            position++;
+            return buffer.get();
+        }
+
+        int getInt() throws IOException {
+            need(Integer.BYTES);
+            position += Integer.BYTES;
+            return buffer.getInt();
+        }
+
+        long getLong() throws IOException {
+            need(Long.BYTES);
+            position += Long.BYTES;
+            return buffer.getLong();
+        }
+
+        double getDouble() throws IOException {
+            need(Double.BYTES);
+            position += Double.BYTES;
+            return buffer.getDouble();
+        }
+
+        void getInts(int[] values) throws IOException {
+            for(int i = 0; i < values.length; i++)
+                values[i] = getInt();
+        }
+
+        String getString() throws IOException {
+            int length = getInt();
+            if(length < 0)
+                return null;
+
+            byte[] bytes = new byte[length];
+            for(int i = 0; i < length; i++)
+                bytes[i] = getByte();
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        double[] getTic() throws IOException {
+            if(getByte() == 0)
+                return null;
+            return new double[] {getDouble(), getDouble(), getDouble()};
+        }
+
+        Color getColor() throws IOException {
+            boolean present = getByte() != 0;
+            int argb = getInt();
+            return present ? new Color(argb, true) : null;
+        }
+
+        /**
+         * Skip up to the next 8 byte boundary
+         */
+        void align() throws IOException {
+            while(position % Long.BYTES != 0)
+                getByte();
+        }
+
+        /**
+         * Map the next column of values in place, copy on write so the series can still be appended to (unless the
+         * file is read only)
+         * @param n number of values
+         * @param valueBytes size of each value
+         * @return a column wrapping the mapped values
+         */
+        SeriesColumn mapColumn(int n, int valueBytes) throws IOException {
+            long bytes = (long) n * valueBytes;
+            if(bytes > Integer.MAX_VALUE)
+                throw new IOException("Column of " + n + " values is too large to map");
+            if(position + bytes > channel.size())
+                throw new IOException("Session ends unexpectedly");
+
+            ByteBuffer mapped = channel.map(mode, position, bytes)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+
+            position += bytes; // skip over the column in the read buffer as well
+            buffer.limit(0);
+
+            return valueBytes == Float.BYTES ? new SeriesColumn.DirectFloats(mapped)
+                    : new SeriesColumn.DirectDoubles(mapped);
+        }
+    }
+}
@@ -0,0 +1,476 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Finds the sample of one series nearest a point on screen, fast enough to run on every mouse move with millions of
+ * samples. A {@link Figure} keeps one of these per series for its hover readout.
+ *
+ * Series with sorted x values are found by binary search. Their samples are also split into blocks by sequence number,
+ * each with the bounds of its y values, and the blocks within reach in x are visited outwards from the point. Blocks
+ * whose bounding box in pixels is farther away than the nearest sample found so far are skipped without reading their
+ * samples, so a dense trace costs one bounds check per block rather than one per sample.
+ *
+ * Scatter data is indexed in a uniform grid over its bounds, each cell listing the sequence numbers of the samples in
+ * it. The grid is kept up to date incrementally: each search first adds the samples published since the last one, and
+ * samples a ring buffer has overwritten are dropped from a cell the next time it is searched. The grid is only rebuilt
+ * once stale entries outnumber the live samples, or the data outgrows its bounds, so it costs O(1) per sample. Block
+ * bounds are kept up to date the same way, and blocks of overwritten samples are reused by new ones.
+ *
+ * Laying out a grid over millions of samples takes far longer than a frame, so grids of large series are built on a
+ * background thread from a copy of the frame's snapshot. Until the first one is ready the series has no nearest sample,
+ * and while a grid is rebuilt the old one is still searched. The index runs a callback once a grid is ready so the
+ * readout can be painted again.
+ *
+ * Sample positions are in the same pixels the figure draws in (pixel = offset + scale * value for x, offset - scale *
+ * value for y). Only one thread may use an index, the thread painting the figure.
+ */
+class PointIndex {
+
+    private static final int BLOCK_BITS = 6; // log2 of the samples per block of a sorted series
+    private static final int TARGET = 16; // samples per grid cell aimed for
+    private static final int MAX_CELLS = 1 << 18; // most cells in a grid
+    private static final int BACKGROUND = 1 << 14; // samples above which grids are built off the painting thread
+
+    // builds grids one at a time, so hovering over many large series doesn't start them all at once
+    private static final ExecutorService builder = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "PointIndex build");
+        t.setDaemon(true); // never hold the JVM open
+        return t;
+    });
+
+    private final Runnable built; // run on the building thread once a grid built in the background is ready
+    private Grid grid; // the grid searched, null if there is none yet
+    private CompletableFuture<Grid> building; // a grid being built in the background, null if none
+
+    // bounds of each block of a sorted series, in a ring keyed by block number (sequence number >> BLOCK_BITS)
+    private long[] blocks = new long[0]; // block number held in each slot
+    private double[] blockMin = new double[0], blockMax = new double[0];
+    private long summarized; // sequence number after the last sample in the block bounds
+
+    // the search in progress
+    private SeriesData data;
+    private long start; // sequence number of sample 0
+    private double qx, qy; // point searched for, in pixels
+    private double xOffset, xScale, yOffset, yScale;
+    private double best; // squared distance to the nearest sample found
+    private int found; // index of that sample, -1 if none
+
+    /******************************************************************
+     * Constructor for an empty index
+     * @param built run once a grid built in the background is ready, on the thread that built it
+     */
+    PointIndex(Runnable built) {
+        this.built = built;
+    }
+
+    /**
+     * Find the sample nearest a point
+     * @param data the samples of the series this frame
+     * @param start sequence number of sample 0, the number of samples appended before it (0 for fixed series)
+     * @param px x position of the point in pixels
+     * @param py y position of the point in pixels
+     * @param xOffset pixel x of a value of 0
+     * @param xScale pixels per unit of x
+     * @param yOffset pixel y of a value of 0
+     * @param yScale pixels per unit of y
+     * @param limit only samples closer than this many pixels are found
+     * @return the index of the nearest sample, or -1 if none is within the limit
+     */
+    int nearest(SeriesData data, long start, double px, double py, double xOffset, double xScale, double yOffset,
+                double yScale, double limit) {
+        this.data = data;
+        this.start = start;
+        this.qx = px;
+        this.qy = py;
+        this.xOffset = xOffset;
+        this.xScale = xScale;
+        this.yOffset = yOffset;
+        this.yScale = yScale;
+        best = limit * limit;
+        found = -1;
+
+        if(data.size() > 0) {
+            if(data.isXSorted() && xScale > 0) {
+                updateBlocks();
+                searchSorted(limit);
+            } else if(updateGrid()) { // no grid until the first has been built
+                searchGrid(limit);
+            }
+        }
+
+        this.data = null; // don't hold on to the frame
+        return found;
+    }
+
+    /**
+     * @return the distance in pixels to the sample found by the last search
+     */
+    double distance() {
+        return Math.sqrt(best);
+    }
+
+    /**
+     * Search the blocks of sorted samples within reach in x, outwards from the point, skipping those which can't
+     * hold anything nearer
+     * @param limit the farthest distance searched, in pixels
+     */
+    private void searchSorted(double limit) {
+        int from = data.lowerBound((qx - limit - xOffset) / xScale);
+        int to = Math.min(data.lowerBound((qx + limit - xOffset) / xScale) + 1, data.size());
+        if(from >= to)
+            return;
+
+        int center = Math.min(Math.max(data.lowerBound((qx - xOffset) / xScale), from), to - 1);
+        long first = (start + from) >> BLOCK_BITS;
+        long last = (start + to - 1) >> BLOCK_BITS;
+        long middle = (start + center) >> BLOCK_BITS;
+
+        // blocks are sorted in x, so once one is out of reach so is every block beyond it
+        for(long block = middle; block <= last; block++)
+            if(!searchBlock(block, from, to))
+                break;
+        for(long block = middle - 1; block >= first; block--)
+            if(!searchBlock(block, from, to))
+                break;
+    }
+
+    /**
+     * Search the samples of one block, unless its bounding box is farther away than the nearest sample so far
+     * @param block the block number
+     * @param from index of the first sample within reach
+     * @param to index after the last sample within reach
+     * @return false if the block is out of reach in x alone, so the blocks beyond it can be skipped too
+     */
+    private boolean searchBlock(long block, int from, int to) {
+        int lo = (int) Math.max(from, (block << BLOCK_BITS) - start);
+        int hi = (int) Math.min(to, ((block + 1) << BLOCK_BITS) - start);
+
+        double left = pixelX(lo);
+        double right = pixelX(hi - 1);
+        double dx = Math.max(0, Math.max(left - qx, qx - right));
+        if(!(dx * dx < best))
+            return false;
+
+        int slot = (int) (block % blocks.length);
+        if(blocks[slot] == block) { // only read the samples if some could be nearer
+            double top = yOffset - yScale * blockMax[slot];
+            double bottom = yOffset - yScale * blockMin[slot];
+            double dy = Math.max(0, Math.max(top - qy, qy - bottom));
+            if(!(dx * dx + dy * dy < best)) // also skips blocks of NaNs
+                return true;
+        }
+
+        for(int i = lo; i < hi; i++)
+            consider(i);
+        return true;
+    }
+
+    /**
+     * Search the grid cells within reach of the point in rings outwards from the cell holding it, skipping cells
+     * which can't hold anything nearer. Each ring surrounds the last, so once every cell of a ring is out of reach
+     * so is every cell beyond it.
+     * @param limit the farthest distance searched, in pixels
+     */
+    private void searchGrid(double limit) {
+        // the square of pixels within reach, in data units
+        double x0 = (qx - limit - xOffset) / xScale;
+        double x1 = (qx + limit - xOffset) / xScale;
+        double y0 = (yOffset - qy - limit) / yScale;
+        double y1 = (yOffset - qy + limit) / yScale;
+
+        int c0 = grid.column(Math.min(x0, x1));
+        int c1 = grid.column(Math.max(x0, x1));
+        int r0 = grid.row(Math.min(y0, y1));
+        int r1 = grid.row(Math.max(y0, y1));
+        int cc = grid.column((qx - xOffset) / xScale);
+        int rc = grid.row((yOffset - qy) / yScale);
+
+        for(int ring = 0; ; ring++) {
+            boolean inside = false; // any cell of the ring within reach
+            boolean near = false; // any cell which could hold something nearer
+
+            for(int r = Math.max(rc - ring, r0); r <= Math.min(rc + ring, r1); r++) {
+                boolean edge = r == rc - ring || r == rc + ring; // whole rows at the top and bottom of the ring
+                int step = edge ? 1 : 2 * ring;
+                for(int c = cc - ring; c <= cc + ring; c += Math.max(step, 1)) {
+                    if(c < c0 || c > c1)
+                        continue;
+                    inside = true;
+                    if(searchCell(r, c))
+                        near = true;
+                }
+            }
+
+            if(!inside || !near)
+                return;
+        }
+    }
+
+    /**
+     * Search the samples of one grid cell, unless its bounding box is farther away than the nearest sample so far
+     * @param r row of the cell
+     * @param c column of the cell
+     * @return false if the cell was skipped
+     */
+    private boolean searchCell(int r, int c) {
+        Grid g = grid;
+        // the cell in pixels, the edge cells reaching out forever as they hold anything beyond the grid
+        double left = c == 0 ? Double.NEGATIVE_INFINITY : xOffset + xScale * (g.x + c * g.cellWidth);
+        double right = c == g.columns - 1 ? Double.POSITIVE_INFINITY : xOffset + xScale * (g.x + (c + 1) * g.cellWidth);
+        double low = r == 0 ? Double.NEGATIVE_INFINITY : g.y + r * g.cellHeight;
+        double high = r == g.rows - 1 ? Double.POSITIVE_INFINITY : g.y + (r + 1) * g.cellHeight;
+        double top = yOffset - yScale * high;
+        double bottom = yOffset - yScale * low;
+
+        double dx = Math.max(0, Math.max(Math.min(left, right) - qx, qx - Math.max(left, right)));
+        double dy = Math.max(0, Math.max(Math.min(top, bottom) - qy, qy - Math.max(top, bottom)));
+        if(!(dx * dx + dy * dy < best))
+            return false;
+
+        int cell = r * g.columns + c;
+        int[] entries = g.cells[cell];
+        int n = g.counts[cell];
+        for(int k = 0; k < n; ) {
+            long seq = g.base + entries[k];
+            if(seq < start) { // overwritten, drop it while we are here
+                entries[k] = entries[--n];
+                g.stored--;
+                continue;
+            }
+            consider((int) (seq - start));
+            k++;
+        }
+        g.counts[cell] = n;
+        return true;
+    }
+
+    /**
+     * Keep a sample if it is the nearest so far
+     */
+    private void consider(int i) {
+        double dx = pixelX(i) - qx;
+        double dy = yOffset - yScale * data.getY(i) - qy;
+        double d = dx * dx + dy * dy;
+        if(d < best) {
+            best = d;
+            found = i;
+        }
+    }
+
+    private double pixelX(int i) {
+        double x = data.hasX() ? data.getX(i) : i; // series without x are spread by index
+        return xOffset + xScale * x;
+    }
+
+    /**
+     * Bring the block bounds up to date with the samples of this frame
+     */
+    private void updateBlocks() {
+        int size = data.size();
+        long end = start + size;
+
+        int needed = (size >> BLOCK_BITS) + 2; // a partly overwritten block and a partly written one
+        if(blocks.length < needed || end < summarized || start > summarized) { // grown past the ring, cleared or lapped
+            int length = Math.max(needed, blocks.length * 2);
+            if(blocks.length < length) {
+                blocks = new long[length];
+                blockMin = new double[length];
+                blockMax = new double[length];
+            }
+            Arrays.fill(blocks, -1);
+            summarized = start;
+        }
+
+        for(long seq = Math.max(summarized, start); seq < end; seq++) {
+            long block = seq >> BLOCK_BITS;
+            int slot = (int) (block % blocks.length);
+            if(blocks[slot] != block) { // reuse the slot of a block which has been overwritten
+                blocks[slot] = block;
+                blockMin[slot] = Double.MAX_VALUE;
+                blockMax[slot] = -Double.MAX_VALUE;
+            }
+
+            double y = data.getY((int) (seq - start));
+            if(y < blockMin[slot]) // NaNs never widen the bounds
+                blockMin[slot] = y;
+            if(y > blockMax[slot])
+                blockMax[slot] = y;
+        }
+        summarized = end;
+    }
+
+    /**
+     * Bring the grid up to date with the samples of this frame, adding the new ones or rebuilding it
+     * @return false if there is no grid to search yet
+     */
+    private boolean updateGrid() {
+        if(building != null && building.isDone()) { // swap in the grid built in the background
+            grid = building.join();
+            building = null;
+        }
+
+        int size = data.size();
+        long end = start + size;
+
+        // start over if the series was cleared, lapped the grid entirely, or has run long enough to overflow entries
+        if(grid != null && (end < grid.indexed || start > grid.indexed || end - grid.base > Integer.MAX_VALUE))
+            grid = null;
+
+        if(grid == null) {
+            rebuild();
+            return grid != null;
+        }
+
+        for(long seq = grid.indexed; seq < end; seq++)
+            grid.add(data, start, seq);
+        grid.indexed = end;
+
+        if(grid.stored > 2L * size + MAX_CELLS || grid.outside > size / 4 + TARGET)
+            rebuild(); // mostly stale entries, or crowded edge cells, but the old grid is still right meanwhile
+        return true;
+    }
+
+    /**
+     * Lay out a new grid over the samples of this frame, here if there are few of them and otherwise in the background
+     */
+    private void rebuild() {
+        if(building != null) // already under way
+            return;
+
+        SeriesData copy = data.size() > BACKGROUND ? detach(data) : null;
+        if(copy == null) {
+            grid = new Grid(data, start);
+            return;
+        }
+
+        long first = start;
+        building = CompletableFuture.supplyAsync(() -> new Grid(copy, first), builder);
+        building.thenRun(built);
+    }
+
+    /**
+     * @return the samples of a frame in a form another thread may read while the next frame is captured, or null if
+     * they can only be read on this one
+     */
+    private static SeriesData detach(SeriesData data) {
+        if(data instanceof SeriesSnapshot) // reused every frame, but copies read the same ring
+            return ((SeriesSnapshot) data).copy();
+        if(data instanceof FrozenSeries || data instanceof MappedSeries) // never change
+            return data;
+        return null;
+    }
+
+    /**
+     * Wait for a grid being built in the background, for callers which need the next search to find the samples
+     */
+    void awaitGrid() {
+        CompletableFuture<Grid> pending = building;
+        if(pending != null)
+            pending.join();
+    }
+
+    /**
+     * A uniform grid over the bounds of a series when it was laid out, each cell listing the sequence numbers of the
+     * samples in it. Only one thread uses a grid at a time: the one building it, and then the one painting.
+     */
+    private static final class Grid {
+        private final int columns, rows;
+        private final double x, y; // lowest x and y covered
+        private final double cellWidth, cellHeight; // size of a cell in data units
+        private final int[][] cells; // sequence numbers of the samples in each cell, less base
+        private final int[] counts; // entries in use in each cell
+        private final long base; // sequence number entries are stored relative to
+        private long indexed; // sequence number after the last sample added to the grid
+        private long stored; // entries in the grid, including those of overwritten samples
+        private long outside; // samples added beyond the bounds of the grid, clamped into its edge cells
+
+        /******************************************************************
+         * Constructor which lays out a grid over the bounds of some samples and adds them all to it
+         * @param data the samples
+         * @param start sequence number of sample 0
+         */
+        Grid(SeriesData data, long start) {
+            int size = data.size();
+            int wanted = Math.max(1, Math.min(size / TARGET, MAX_CELLS));
+            columns = rows = (int) Math.ceil(Math.sqrt(wanted));
+            cells = new int[columns * rows][];
+            counts = new int[columns * rows];
+
+            double minX = 0, maxX = size - 1; // series without x are spread by index
+            if(data.hasX()) {
+                minX = data.getMinX();
+                maxX = data.getMaxX();
+            }
+            x = finite(minX);
+            y = finite(data.getMinY());
+            cellWidth = cellSize(minX, maxX, columns);
+            cellHeight = cellSize(data.getMinY(), data.getMaxY(), rows);
+
+            base = start;
+            for(int i = 0; i < size; i++)
+                add(data, start, start + i);
+            indexed = start + size;
+        }
+
+        /**
+         * Add a sample to the cell it falls in
+         * @param data the samples of the frame
+         * @param start sequence number of sample 0 of the frame
+         * @param seq sequence number of the sample
+         */
+        void add(SeriesData data, long start, long seq) {
+            int i = (int) (seq - start);
+            double sx = data.hasX() ? data.getX(i) : i;
+            double sy = data.getY(i);
+
+            double c = (sx - x) / cellWidth;
+            double r = (sy - y) / cellHeight;
+            if(c < 0 || c >= columns || r < 0 || r >= rows)
+                outside++;
+
+            int cell = row(sy) * columns + column(sx);
+            int n = counts[cell];
+            int[] entries = cells[cell];
+            if(entries == null)
+                entries = cells[cell] = new int[4];
+            else if(n == entries.length)
+                entries = cells[cell] = Arrays.copyOf(entries, n * 2);
+
+            entries[n] = (int) (seq - base);
+            counts[cell] = n + 1;
+            stored++;
+        }
+
+        /**
+         * @return the column holding an x value, clamped into the grid
+         */
+        int column(double value) {
+            double c = Math.floor((value - x) / cellWidth);
+            return c >= columns ? columns - 1 : c > 0 ? (int) c : 0; // NaN goes in the first column
+        }
+
+        /**
+         * @return the row holding a y value, clamped into the grid
+         */
+        int row(double value) {
+            double r = Math.floor((value - y) / cellHeight);
+            return r >= rows ? rows - 1 : r > 0 ? (int) r : 0;
+        }
+    }
+
+    /**
+     * @return the size of each of a number of cells across a range, never zero
+     */
+    private static double cellSize(double min, double max, int cells) {
+        double size = (max - min) / cells;
+        return size > 0 && !Double.isInfinite(size) ? size : 1;
+    }
+
+    private static double finite(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? 0 : value;
+    }
+}
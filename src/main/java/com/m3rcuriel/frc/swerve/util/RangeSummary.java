@@ -0,0 +1,21 @@
+package com.m3rcuriel.frc.swerve.util;
+
+/**
+ * Implemented by series that can find the y bounds of a range of samples faster than by reading every sample, using
+ * precomputed block summaries. The decimator uses this to draw pixel columns covering many samples.
+ */
+public interface RangeSummary {
+
+    /**
+     * @return true if ranges are summarized, false if finding the bounds of a range has to read every sample in it
+     */
+    boolean isSummarized();
+
+    /**
+     * Find the smallest and largest y value of a range of samples
+     * @param from index of the first sample in the range
+     * @param to index after the last sample in the range
+     * @param out receives the minimum in out[0] and the maximum in out[1]
+     */
+    void rangeY(int from, int to, double[] out);
+}
@@ -0,0 +1,271 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * An image which lines and markers are rasterized into directly, by writing to its int[] pixels rather than going
+ * through Graphics2D. Once everything is drawn the image is blitted in one call.
+ *
+ * Lines are drawn either with Bresenham's algorithm, which writes one solid pixel per step, or with Xiaolin Wu's
+ * algorithm, which blends two pixels per step to antialias the line. Both are far cheaper than stroking the same
+ * segments through Java2D, at the cost of exact stroke geometry (lines are always one pixel wide).
+ *
+ * Pixels are premultiplied ARGB, so blending is a few integer operations per channel.
+ */
+class RasterCanvas {
+
+    private BufferedImage image;
+    private int[] pixels; // the image's backing array, row by row
+    private int width, height;
+
+    private double clipX0, clipY0, clipX1, clipY1; // region lines are clipped to
+
+    private double t0, t1; // visible part of the line being clipped
+
+    /**
+     * Make the canvas a given size and clear it, reusing the image if the size hasn't changed
+     * @param width width in pixels
+     * @param height height in pixels
+     */
+    void reset(int width, int height) {
+        width = Math.max(width, 1);
+        height = Math.max(height, 1);
+
+        if(image == null || this.width != width || this.height != height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData(); // unmanaged, but we blit it once
+            this.width = width;
+            this.height = height;
+        } else {
+            Arrays.fill(pixels, 0);
+        }
+
+        clip(0, 0, width, height);
+    }
+
+    /**
+     * Move everything drawn left, clearing the columns uncovered on the right
+     * @param columns how far to move, in pixels
+     */
+    void scroll(int columns) {
+        columns = Math.min(Math.max(columns, 0), width);
+        if(columns == 0)
+            return;
+
+        for(int row = 0, start = 0; row < height; row++, start += width) {
+            System.arraycopy(pixels, start + columns, pixels, start, width - columns);
+            Arrays.fill(pixels, start + width - columns, start + width, 0);
+        }
+    }
+
+    /**
+     * Limit drawing to a rectangle
+     * @param x left edge in pixels
+     * @param y top edge in pixels
+     * @param w width in pixels
+     * @param h height in pixels
+     */
+    void clip(int x, int y, int w, int h) {
+        clipX0 = Math.max(x, 0);
+        clipY0 = Math.max(y, 0);
+        clipX1 = Math.min(x + w, width) - 1; // last pixel which may be drawn
+        clipY1 = Math.min(y + h, height) - 1;
+    }
+
+    /**
+     * @return the image holding everything drawn since the last reset
+     */
+    BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Draw a line between two points, clipped to the canvas
+     * @param x0 x position of the start in pixels
+     * @param y0 y position of the start in pixels
+     * @param x1 x position of the end in pixels
+     * @param y1 y position of the end in pixels
+     * @param argb color of the line, as non-premultiplied ARGB
+     * @param smooth true to antialias the line, false for solid pixels
+     */
+    void line(double x0, double y0, double x1, double y1, int argb, boolean smooth) {
+        // Liang-Barsky clipping, so lines running far off screen don't cost anything
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+
+        t0 = 0;
+        t1 = 1;
+        if(!clipEdge(-dx, x0 - clipX0) || !clipEdge(dx, clipX1 - x0)
+                || !clipEdge(-dy, y0 - clipY0) || !clipEdge(dy, clipY1 - y0) || !(t0 <= t1))
+            return;
+
+        double cx0 = x0 + t0 * dx, cy0 = y0 + t0 * dy;
+        double cx1 = x0 + t1 * dx, cy1 = y0 + t1 * dy;
+
+        if(smooth)
+            wu(cx0, cy0, cx1, cy1, premultiply(argb));
+        else
+            bresenham((int) Math.round(cx0), (int) Math.round(cy0), (int) Math.round(cx1), (int) Math.round(cy1),
+                    premultiply(argb));
+    }
+
+    /**
+     * Narrow the visible part of a line against one clip edge
+     * @param p the rate the line approaches the edge
+     * @param q the distance from the start of the line to the edge
+     * @return false if the whole line is outside the edge
+     */
+    private boolean clipEdge(double p, double q) {
+        if(p == 0)
+            return q >= 0; // parallel to the edge, false if outside it (or NaN)
+
+        double t = q / p;
+        if(p < 0)
+            t0 = Math.max(t0, t);
+        else
+            t1 = Math.min(t1, t);
+        return true;
+    }
+
+    /**
+     * Bresenham's line algorithm, for end points already inside the clip
+     */
+    private void bresenham(int x0, int y0, int x1, int y1, int color) {
+        int dx = Math.abs(x1 - x0), sx = x0 < x1 ? 1 : -1;
+        int dy = -Math.abs(y1 - y0), sy = y0 < y1 ? 1 : -1;
+        int err = dx + dy;
+
+        while(true) {
+            pixels[y0 * width + x0] = color;
+            if(x0 == x1 && y0 == y1)
+                return;
+
+            int e2 = 2 * err;
+            if(e2 >= dy) {
+                err += dy;
+                x0 += sx;
+            }
+            if(e2 <= dx) {
+                err += dx;
+                y0 += sy;
+            }
+        }
+    }
+
+    /**
+     * Xiaolin Wu's antialiased line algorithm, for end points already inside the clip
+     */
+    private void wu(double x0, double y0, double x1, double y1, int color) {
+        boolean steep = Math.abs(y1 - y0) > Math.abs(x1 - x0);
+        if(steep) { // always step along the longer axis
+            double t = x0; x0 = y0; y0 = t;
+            t = x1; x1 = y1; y1 = t;
+        }
+        if(x0 > x1) {
+            double t = x0; x0 = x1; x1 = t;
+            t = y0; y0 = y1; y1 = t;
+        }
+
+        double gradient = x1 == x0 ? 0 : (y1 - y0) / (x1 - x0);
+
+        int start = (int) Math.round(x0);
+        int end = (int) Math.round(x1);
+        double y = y0 + gradient * (start - x0);
+
+        for(int x = start; x <= end; x++) {
+            int iy = (int) Math.floor(y);
+            int coverage = (int) ((y - iy) * 255);
+
+            if(steep) {
+                plot(iy, x, color, 255 - coverage);
+                plot(iy + 1, x, color, coverage);
+            } else {
+                plot(x, iy, color, 255 - coverage);
+                plot(x, iy + 1, color, coverage);
+            }
+            y += gradient;
+        }
+    }
+
+    /**
+     * Blend a color into one pixel, if it is inside the clip
+     * @param x x position of the pixel
+     * @param y y position of the pixel
+     * @param color premultiplied ARGB color
+     * @param coverage how much of the pixel is covered, 0 to 255
+     */
+    private void plot(int x, int y, int color, int coverage) {
+        if(x < clipX0 || x > clipX1 || y < clipY0 || y > clipY1 || coverage <= 0)
+            return;
+
+        int i = y * width + x;
+        pixels[i] = over(scale(color, coverage), pixels[i]);
+    }
+
+    /**
+     * Stamp a marker sprite centered on a point
+     * @param sprite the marker
+     * @param x x position of the point in pixels
+     * @param y y position of the point in pixels
+     */
+    void stamp(MarkerSprite sprite, double x, double y) {
+        int size = MarkerSprite.SIZE;
+        int left = (int) Math.round(x - size / 2.0); // matches MarkerSprite.draw
+        int top = (int) Math.round(y - size / 2.0);
+
+        int[] src = sprite.getPixels();
+        for(int row = 0; row < size; row++) {
+            int py = top + row;
+            if(py < clipY0 || py > clipY1)
+                continue;
+
+            for(int col = 0; col < size; col++) {
+                int px = left + col;
+                if(px < clipX0 || px > clipX1)
+                    continue;
+
+                int i = py * width + px;
+                pixels[i] = over(src[row * size + col], pixels[i]);
+            }
+        }
+    }
+
+    /**
+     * @param argb a non-premultiplied ARGB color
+     * @return the same color premultiplied by its alpha
+     */
+    static int premultiply(int argb) {
+        int a = argb >>> 24;
+        if(a == 255)
+            return argb;
+        return scale(argb | 0xFF000000, a);
+    }
+
+    /**
+     * Scale every channel of a premultiplied color, including alpha
+     */
+    private static int scale(int color, int amount) {
+        if(amount >= 255)
+            return color;
+
+        int a = ((color >>> 24) * amount + 127) / 255;
+        int r = (((color >> 16) & 0xFF) * amount + 127) / 255;
+        int g = (((color >> 8) & 0xFF) * amount + 127) / 255;
+        int b = ((color & 0xFF) * amount + 127) / 255;
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Porter-Duff source over, for premultiplied colors
+     */
+    private static int over(int src, int dst) {
+        int a = src >>> 24;
+        if(a == 255 || dst == 0)
+            return src;
+        if(a == 0)
+            return dst;
+        return src + scale(dst, 255 - a);
+    }
+}
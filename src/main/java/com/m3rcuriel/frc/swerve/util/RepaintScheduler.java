@@ -0,0 +1,143 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import javax.swing.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Repaints a component at a fixed maximum frame rate, no matter how often its data changes or how many threads are
+ * producing it.
+ *
+ * Once per frame a Swing timer checks a version number supplied by the data (see {@link Figure#version()}) and only
+ * repaints if it changed or a repaint was requested. Producers never have to call repaint themselves, and any number
+ * of updates between two frames are coalesced into one paint.
+ */
+public class RepaintScheduler {
+
+    private final JComponent component; // the component to repaint
+    private final LongSupplier version; // changes whenever the component needs painting
+    private final Timer timer; // fires on the EDT once per frame
+
+    private final AtomicBoolean requested = new AtomicBoolean(); // explicit repaint requested since the last frame
+    private final AtomicLong requests = new AtomicLong(); // total explicit requests
+    private long lastVersion; // version at the last repaint (EDT only)
+
+    private volatile long frames; // repaints actually issued
+    private volatile long requestFrames; // frames which served at least one explicit request
+
+    private long periodNanos; // time between frames
+    private long lastTick; // time of the last timer tick, 0 when stopped (EDT only)
+    private volatile long dropped; // ticks which never happened because the EDT was busy
+
+    /******************************************************************
+     * Constructor for a scheduler repainting a component
+     * @param component the component to repaint
+     * @param version supplier of a number that changes whenever the component needs painting (called on the EDT)
+     * @param fps the maximum number of repaints per second
+     */
+    public RepaintScheduler(JComponent component, LongSupplier version, int fps) {
+        this.component = component;
+        this.version = version;
+
+        timer = new Timer(period(fps), e -> tick());
+        timer.setCoalesce(true); // never queue up frames if the EDT falls behind
+        periodNanos = TimeUnit.MILLISECONDS.toNanos(period(fps));
+        lastVersion = Long.MIN_VALUE;
+    }
+
+    private static int period(int fps) {
+        if(fps <= 0)
+            throw new Error("Frame rate must be positive");
+        return Math.max(1, 1000 / fps);
+    }
+
+    /**
+     * Called once per frame on the EDT
+     */
+    private void tick() {
+        long now = System.nanoTime();
+        if(lastTick != 0) { // the timer coalesces ticks it couldn't deliver on time, so count the missing ones
+            long missed = (now - lastTick) / periodNanos - 1;
+            if(missed > 0)
+                dropped += missed;
+        }
+        lastTick = now;
+
+        long v = version.getAsLong();
+        boolean changed = v != lastVersion;
+
+        boolean wanted = requested.getAndSet(false);
+
+        if(wanted || changed) {
+            lastVersion = v;
+            if(wanted)
+                requestFrames++;
+            frames++;
+            component.repaint(); // Swing merges this with any other pending paint of the component
+        }
+    }
+
+    /**
+     * Change the maximum frame rate
+     * @param fps the maximum number of repaints per second
+     */
+    public void setFrameRate(int fps) {
+        int period = period(fps);
+        timer.setDelay(period);
+        timer.setInitialDelay(period);
+        periodNanos = TimeUnit.MILLISECONDS.toNanos(period);
+    }
+
+    /**
+     * Ask for a repaint at the next frame. Safe to call from any thread at any rate.
+     */
+    public void requestRepaint() {
+        requests.incrementAndGet();
+        requested.set(true);
+    }
+
+    /**
+     * Start repainting
+     */
+    public void start() {
+        timer.start();
+    }
+
+    /**
+     * Stop repainting
+     */
+    public void stop() {
+        timer.stop();
+        lastTick = 0;
+    }
+
+    /**
+     * @return the number of repaints issued
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return the number of explicit repaint requests
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return the number of explicit requests which were merged into another frame rather than causing their own
+     */
+    public long getCoalesced() {
+        return requests.get() - requestFrames;
+    }
+
+    /**
+     * @return the number of frames which were skipped because the event dispatch thread was too busy to run the timer
+     */
+    public long getDropped() {
+        return dropped;
+    }
+}
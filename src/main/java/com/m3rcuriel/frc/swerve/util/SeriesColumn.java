@@ -0,0 +1,186 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * A fixed-size column of sample values, used as the ring buffer behind one axis of a {@link DataSeries}. Columns hide
+ * how values are stored, so series can trade precision for memory or keep their samples outside the Java heap.
+ *
+ * @see SeriesStorage
+ */
+public abstract class SeriesColumn {
+
+    /**
+     * @param slot position in the column
+     * @return the value stored there
+     */
+    public abstract double get(int slot);
+
+    /**
+     * @param slot position in the column
+     * @param value the value to store (rounded to the column's precision)
+     */
+    public abstract void set(int slot, double value);
+
+    /**
+     * @return the number of values the column holds
+     */
+    public abstract int length();
+
+    /**
+     * @return the memory used by the values, in bytes
+     */
+    public abstract long bytes();
+
+    /**
+     * @return true if the values live outside the Java heap
+     */
+    public boolean isOffHeap() {
+        return false;
+    }
+
+    /**
+     * Column of doubles on the heap
+     */
+    static class Doubles extends SeriesColumn {
+        private final double[] values;
+
+        Doubles(int length) {
+            values = new double[length];
+        }
+
+        public double get(int slot) {
+            return values[slot];
+        }
+
+        public void set(int slot, double value) {
+            values[slot] = value;
+        }
+
+        public int length() {
+            return values.length;
+        }
+
+        public long bytes() {
+            return (long) values.length * Double.BYTES;
+        }
+    }
+
+    /**
+     * Column of floats on the heap, half the size of doubles
+     */
+    static class Floats extends SeriesColumn {
+        private final float[] values;
+
+        Floats(int length) {
+            values = new float[length];
+        }
+
+        public double get(int slot) {
+            return values[slot];
+        }
+
+        public void set(int slot, double value) {
+            values[slot] = (float) value;
+        }
+
+        public int length() {
+            return values.length;
+        }
+
+        public long bytes() {
+            return (long) values.length * Float.BYTES;
+        }
+    }
+
+    /**
+     * Column of doubles in a direct buffer, which the garbage collector never has to scan or move
+     */
+    static class DirectDoubles extends SeriesColumn {
+        private final DoubleBuffer values;
+
+        DirectDoubles(int length) {
+            this(ByteBuffer.allocateDirect(checkedBytes(length, Double.BYTES)).order(ByteOrder.nativeOrder()));
+        }
+
+        /**
+         * Wrap existing memory, such as part of a mapped file
+         * @param buffer the memory holding the values
+         */
+        DirectDoubles(ByteBuffer buffer) {
+            values = buffer.asDoubleBuffer();
+        }
+
+        public double get(int slot) {
+            return values.get(slot);
+        }
+
+        public void set(int slot, double value) {
+            values.put(slot, value);
+        }
+
+        public int length() {
+            return values.capacity();
+        }
+
+        public long bytes() {
+            return (long) values.capacity() * Double.BYTES;
+        }
+
+        public boolean isOffHeap() {
+            return true;
+        }
+    }
+
+    /**
+     * Column of floats in a direct buffer
+     */
+    static class DirectFloats extends SeriesColumn {
+        private final FloatBuffer values;
+
+        DirectFloats(int length) {
+            this(ByteBuffer.allocateDirect(checkedBytes(length, Float.BYTES)).order(ByteOrder.nativeOrder()));
+        }
+
+        /**
+         * Wrap existing memory, such as part of a mapped file
+         * @param buffer the memory holding the values
+         */
+        DirectFloats(ByteBuffer buffer) {
+            values = buffer.asFloatBuffer();
+        }
+
+        public double get(int slot) {
+            return values.get(slot);
+        }
+
+        public void set(int slot, double value) {
+            values.put(slot, (float) value);
+        }
+
+        public int length() {
+            return values.capacity();
+        }
+
+        public long bytes() {
+            return (long) values.capacity() * Float.BYTES;
+        }
+
+        public boolean isOffHeap() {
+            return true;
+        }
+    }
+
+    /**
+     * Size of a direct buffer, which can't be larger than 2GB
+     */
+    private static int checkedBytes(int length, int width) {
+        long bytes = (long) length * width;
+        if(bytes > Integer.MAX_VALUE)
+            throw new Error("Off heap columns are limited to " + Integer.MAX_VALUE / width + " samples");
+        return (int) bytes;
+    }
+}
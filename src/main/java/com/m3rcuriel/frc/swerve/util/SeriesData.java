@@ -0,0 +1,80 @@
+package com.m3rcuriel.frc.swerve.util;
+
+/**
+ * Read access to the samples of a series, used by everything that draws series or measures their bounds so it doesn't
+ * matter how or where the samples are stored.
+ *
+ * Index 0 is the oldest sample. Series without x values ({@link #hasX()} false) are drawn against their index.
+ */
+public interface SeriesData {
+
+    /**
+     * @return the number of samples
+     */
+    int size();
+
+    /**
+     * @return true if samples have x values, false if they are drawn against their index
+     */
+    boolean hasX();
+
+    /**
+     * @param i index of the sample
+     * @return the x value
+     */
+    double getX(int i);
+
+    /**
+     * @param i index of the sample
+     * @return the y value
+     */
+    double getY(int i);
+
+    /**
+     * @return true if the x values never decrease, so they can be searched
+     */
+    boolean isXSorted();
+
+    /**
+     * @return the smallest x value (Double.MAX_VALUE if empty)
+     */
+    double getMinX();
+
+    /**
+     * @return the largest x value (-Double.MAX_VALUE if empty)
+     */
+    double getMaxX();
+
+    /**
+     * @return the smallest y value (Double.MAX_VALUE if empty)
+     */
+    double getMinY();
+
+    /**
+     * @return the largest y value (-Double.MAX_VALUE if empty)
+     */
+    double getMaxY();
+
+    /**
+     * Find where an x value falls in a series whose x values are sorted (or drawn against their index), by binary
+     * search
+     * @param x the x value to look for
+     * @return the index of the first sample with an x value of at least x, or size() if there is none
+     */
+    default int lowerBound(double x) {
+        int n = size();
+
+        if(!hasX()) // the index is the x value
+            return (int) Math.max(0, Math.min(n, Math.ceil(x)));
+
+        int lo = 0, hi = n;
+        while(lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if(getX(mid) < x)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+}
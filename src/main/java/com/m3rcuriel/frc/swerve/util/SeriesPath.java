@@ -0,0 +1,135 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The pixel points of one series as a figure last drew it: the samples in the visible range, transformed into pixels
+ * and decimated. Working these out is the expensive part of plotting, so a {@link Figure} keeps one of these per
+ * series, refreshes the stale ones in parallel on the common fork/join pool, and only draws the results on the
+ * painting thread.
+ *
+ * A path stays valid until its series publishes new samples or the view, size or decimation changes, so a series
+ * which hasn't changed since the last frame is drawn without visiting any samples.
+ *
+ * Each path is a reusable fork/join task, so refreshing paths doesn't allocate.
+ */
+class SeriesPath extends RecursiveAction {
+
+    private final Decimator decimator = new Decimator(Decimator.Mode.MIN_MAX); // holds the kept points in pixels
+
+    private long frameVersion; // version of the series when the current frame captured it
+    private SeriesData node; // samples captured by the current frame
+
+    // what the kept points were computed from
+    private boolean valid;
+    private long version;
+    private double lower, upper; // visible x range, sorted series are culled to this
+    private double xOffset, xScale, yOffset, yScale;
+    private int width;
+    private Decimator.Mode mode;
+
+    private int visited; // samples in the visible range
+
+    /**
+     * Capture a series for the current frame. The version must be read before the snapshot is taken, so an unchanged
+     * version means an unchanged snapshot.
+     * @param version the version of the series, read before the snapshot
+     * @param node the snapshot
+     */
+    void capture(long version, SeriesData node) {
+        this.frameVersion = version;
+        this.node = node;
+    }
+
+    /**
+     * Check whether the kept points are still right for the current frame, and if not set up the task to compute
+     * them again
+     * @param lower lowest visible x value
+     * @param upper highest visible x value
+     * @param xOffset pixel x of a value of 0
+     * @param xScale pixels per unit of x
+     * @param yOffset pixel y of a value of 0
+     * @param yScale pixels per unit of y
+     * @param width width of the plot area in pixels
+     * @param mode the decimation algorithm
+     * @return true if the path must be computed before drawing
+     */
+    boolean isStale(double lower, double upper, double xOffset, double xScale, double yOffset, double yScale,
+                    int width, Decimator.Mode mode) {
+        if(valid && version == frameVersion && this.lower == lower && this.upper == upper
+                && this.xOffset == xOffset && this.xScale == xScale && this.yOffset == yOffset
+                && this.yScale == yScale && this.width == width && this.mode == mode)
+            return false;
+
+        valid = false; // until computed
+        version = frameVersion;
+        this.lower = lower;
+        this.upper = upper;
+        this.xOffset = xOffset;
+        this.xScale = xScale;
+        this.yOffset = yOffset;
+        this.yScale = yScale;
+        this.width = width;
+        this.mode = mode;
+
+        reinitialize(); // so the task can run again
+        return true;
+    }
+
+    /**
+     * Forget the kept points, so they are computed again at the next frame
+     */
+    void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Cull the series to the visible range and decimate it into pixels
+     */
+    @Override
+    protected void compute() {
+        // only visit samples in the visible range, plus one either side so lines reach the edges
+        int from = 0;
+        int to = node.size();
+        if(node.isXSorted()) {
+            from = Math.max(node.lowerBound(lower) - 1, 0);
+            to = Math.min(node.lowerBound(upper) + 1, to);
+        }
+
+        decimator.setMode(mode);
+        decimator.decimate(node, from, to, xOffset, xScale, yOffset, yScale, width); // only keep visible points
+
+        visited = Math.max(to - from, 0);
+        valid = true;
+    }
+
+    /**
+     * @return the number of samples in the visible range when the path was computed
+     */
+    int visited() {
+        return visited;
+    }
+
+    /**
+     * @return the number of kept points
+     */
+    int size() {
+        return decimator.size();
+    }
+
+    /**
+     * @param i index of a kept point
+     * @return its pixel x position
+     */
+    double getX(int i) {
+        return decimator.getX(i);
+    }
+
+    /**
+     * @param i index of a kept point
+     * @return its pixel y position
+     */
+    double getY(int i) {
+        return decimator.getY(i);
+    }
+}
@@ -0,0 +1,172 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * A read-only view of the samples a {@link DataSeries} had published at one moment, used by the renderer while a
+ * producer thread keeps appending to the series.
+ *
+ * Taking a snapshot doesn't copy anything. It records which samples were published, and reads them straight out of
+ * the series' ring buffers. Because the producer may lap the ring while a frame is being drawn, the renderer checks
+ * {@link #isConsistent()} afterwards and draws the frame again if the oldest samples were overwritten underneath it.
+ *
+ * Each series owns one snapshot, which is reused every frame, so only one thread may read snapshots of a series.
+ */
+public final class SeriesSnapshot implements SeriesData, RangeSummary {
+
+    private final DataSeries series;
+
+    private long start; // position of the oldest sample in the series' ring buffers, as the series counts it
+    private long first; // sequence number of the oldest sample, which never goes back when the series is cleared
+    private int size; // number of samples in the snapshot
+
+    private double minX, maxX, minY, maxY; // bounds published with the samples
+    private boolean xSorted;
+
+    /******************************************************************
+     * Constructor for the snapshot of a series
+     * @param series the series being read
+     */
+    SeriesSnapshot(DataSeries series) {
+        this.series = series;
+    }
+
+    /**
+     * Capture the samples that are currently published
+     */
+    void take() {
+        long end;
+        int held;
+        long base;
+        long version;
+        do { // read the count, size and bounds of a single publish
+            version = series.publishFinished();
+            end = series.published(); // everything written before this is visible to us
+            held = series.publishedSize();
+            base = series.publishedBase();
+            minX = series.publishedMinX();
+            maxX = series.publishedMaxX();
+            minY = series.publishedMinY();
+            maxY = series.publishedMaxY();
+        } while(series.publishStarted() != version);
+
+        start = end - held;
+        first = base + start;
+        size = held;
+        xSorted = series.isXSorted();
+    }
+
+    /**
+     * @return a copy of the samples this snapshot holds now, which another thread may read while this one is taken
+     * again
+     */
+    SeriesSnapshot copy() {
+        SeriesSnapshot copy = new SeriesSnapshot(series);
+        copy.start = start;
+        copy.first = first;
+        copy.size = size;
+        copy.minX = minX;
+        copy.maxX = maxX;
+        copy.minY = minY;
+        copy.maxY = maxY;
+        copy.xSorted = xSorted;
+        return copy;
+    }
+
+    /**
+     * @return true if none of the samples in the snapshot have been overwritten since it was taken
+     */
+    public boolean isConsistent() {
+        VarHandle.acquireFence(); // the samples read before this can't be read after the marker
+        return series.overwriting() < first;
+    }
+
+    /**
+     * @return the sequence number of the oldest sample in the snapshot. Samples are numbered in the order they were
+     * appended, and the numbering carries on past a clear, so caches keyed on it can tell a cleared series from one
+     * which has only grown.
+     */
+    long first() {
+        return first;
+    }
+
+    /**
+     * @return the series this is a snapshot of
+     */
+    public DataSeries getSeries() {
+        return series;
+    }
+
+    /**
+     * @return the number of samples in the snapshot
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if samples have their own x values, false if x is the sample number
+     */
+    public boolean hasX() {
+        return series.hasX();
+    }
+
+    /**
+     * @param i index of the sample, where 0 is the oldest in the snapshot
+     * @return the x value
+     */
+    public double getX(int i) {
+        return series.xAt(start + i);
+    }
+
+    /**
+     * @param i index of the sample, where 0 is the oldest in the snapshot
+     * @return the y value
+     */
+    public double getY(int i) {
+        return series.yAt(start + i);
+    }
+
+    public boolean isSummarized() {
+        return series.isSummarized();
+    }
+
+    public void rangeY(int from, int to, double[] out) {
+        series.rangeAt(start + from, start + to, out);
+    }
+
+    /**
+     * @return the smallest x value when the snapshot was taken
+     */
+    public double getMinX() {
+        return minX;
+    }
+
+    /**
+     * @return the largest x value when the snapshot was taken
+     */
+    public double getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * @return the smallest y value when the snapshot was taken
+     */
+    public double getMinY() {
+        return minY;
+    }
+
+    /**
+     * @return the largest y value when the snapshot was taken
+     */
+    public double getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * @return true if the x values never decrease, so they can be searched
+     */
+    public boolean isXSorted() {
+        return xSorted;
+    }
+}
@@ -0,0 +1,41 @@
+package com.m3rcuriel.frc.swerve.util;
+
+/**
+ * How the sample values of a {@link DataSeries} are stored
+ */
+public enum SeriesStorage {
+    /**
+     * Doubles on the heap, exact
+     */
+    DOUBLE,
+    /**
+     * Floats on the heap, half the memory with about 7 significant digits
+     */
+    FLOAT,
+    /**
+     * Doubles in direct memory outside the heap, so large series don't add to garbage collection work
+     */
+    OFF_HEAP_DOUBLE,
+    /**
+     * Floats in direct memory outside the heap
+     */
+    OFF_HEAP_FLOAT;
+
+    /**
+     * Allocate a column using this storage
+     * @param length the number of values the column holds
+     * @return the new column
+     */
+    SeriesColumn create(int length) {
+        switch(this) {
+            case FLOAT:
+                return new SeriesColumn.Floats(length);
+            case OFF_HEAP_DOUBLE:
+                return new SeriesColumn.DirectDoubles(length);
+            case OFF_HEAP_FLOAT:
+                return new SeriesColumn.DirectFloats(length);
+            default:
+                return new SeriesColumn.Doubles(length);
+        }
+    }
+}
@@ -1,16 +1,19 @@
 package com.m3rcuriel.frc.swerve.util;
 
+import javax.imageio.ImageIO;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.datatransfer.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.awt.geom.AffineTransform;
-import java.awt.geom.Ellipse2D;
-import java.awt.geom.Line2D;
 import java.awt.image.BufferedImage;
-import java.text.DecimalFormat;
-import java.util.LinkedList;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.DoubleUnaryOperator;
 
 /**
  * This class plots basic graphs using the Java AWT interface. It allows the user to plot many data series on one
@@ -20,42 +23,36 @@ import java.util.LinkedList;
  * Matlab. Small and simple graphs are ideal.
  *
  * Additionally, the user can capture screenshots from the right click menu and copy and paste into reports or documents
- * quickly.
+ * quickly. Copies and exports are rendered on a background thread from a frozen copy of the plot, so a live plot keeps
+ * updating while they render.
  *
- * This class currently only supports scattered line charts
+ * The mouse wheel zooms in and out around the cursor, dragging pans the view and double clicking goes back to showing
+ * all the data. Hovering over the plot reads out the sample nearest the cursor, with a crosshair and tooltip.
+ *
+ * This class supports scattered line charts, and heatmaps of point density for scatter plots of millions of points
+ * (see {@link #addDensity}). The plot itself is a {@link Figure}, which can also be
+ * rendered without a window. To show many figures in one window, use a {@link PlotDashboard}.
  */
 public class SimplePlot extends javax.swing.JPanel implements ClipboardOwner {
 
-    private final int yPAD = 60; // amount to pad the plot vertically
-    private final int xPAD = 70; // amount to pad the plot horizontally
-
-    private double upperXtic; // highest tick value for x
-    private double lowerXtic; // lowest tick value for x
-    private double upperYtic;
-    private double lowerYtic;
-
-    private double yMax; // maximum y value
-    private double yMin; // minimum y value
-    private double xMax;
-    private double xMin;
-
-    private double xTicStepSize; // distance between ticks in x
-    private double yTicStepSize;
-
-    boolean userSetYTic; // user manually set tick distance
-    boolean userSetXTic;
-
-    private String xAxisLabel; // stores x axis string
-    private String yAxisLabel;
-
-    private String titleLabel; // stores title string
     protected static int count = 0; // counts instances of the plot to increment title
 
     public JFrame plotFrame; // JFrame for containing the plot itself
 
     private JPopupMenu menu = new JPopupMenu("Popup"); // right click popup menu
 
-    private LinkedList<DataSeries> nodeList; // LinkedList which contains all data series
+    private final Figure figure; // the data and drawing of the plot itself
+
+    private final RepaintScheduler scheduler; // repaints at a capped frame rate whenever the data changes
+
+    private static final double REPORT_SCALE = 3; // image pixels per screen pixel when copying for reports
+
+    // renders exports of every plot one at a time, so a large export never holds up painting
+    private static final ExecutorService exporter = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "SimplePlot export");
+        t.setDaemon(true); // never hold the JVM open
+        return t;
+    });
 
     /******************************************************************
      * Full constructor for SimplePlot taking data and color information
@@ -65,31 +62,44 @@ public class SimplePlot extends javax.swing.JPanel implements ClipboardOwner {
      * @param markerColor color used for drawing dots (may be null)
      */
     public SimplePlot(double[] xData, double[] yData, Color lineColor, Color markerColor) {
-        xAxisLabel = "X axis";
-        yAxisLabel = "Y axis";
+        this();
 
-        // Initialize all max/min values to absolute max/min
-        upperXtic = -Double.MAX_VALUE;
-        lowerXtic = Double.MAX_VALUE;
-        upperYtic = -Double.MAX_VALUE;
-        lowerYtic = Double.MAX_VALUE;
+        addData(xData, yData, lineColor, markerColor); // add initial series to graph
+    }
 
-        this.userSetXTic = false;
-        this.userSetYTic = false;
-        //TODO allow user tics to limit window size
-        nodeList = new LinkedList<>();
+    /******************************************************************
+     * Constructor for an empty SimplePlot, for use with series added by {@link #addSeries(int, boolean, Color, Color)}
+     */
+    public SimplePlot() {
+        this(new Figure("Figure " + (count + 1))); // default title matches window title
+    }
 
-        addData(xData, yData, lineColor, markerColor); // add initial series to graph
+    /******************************************************************
+     * Constructor for a SimplePlot showing an existing figure
+     * @param figure the figure to show
+     */
+    public SimplePlot(Figure figure) {
+        this.figure = figure;
+        this.scheduler = new RepaintScheduler(this, figure::version, 60);
+        figure.getMetrics().setScheduler(scheduler);
 
         count++; // increment instance count (statically)
         plotFrame = new JFrame("Figure " + count);
         plotFrame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE); // prevent windows from sticking around in background
-        titleLabel = plotFrame.getTitle(); // default title matches window title
         plotFrame.add(this); // add plot frame to window
         plotFrame.setSize(600, 600);
         plotFrame.setLocationByPlatform(true);
 
         menu(plotFrame, this); // initialize the context menu
+
+        ViewListener view = new PlotViewListener(); // zoom and pan with the mouse
+        addMouseListener(view);
+        addMouseMotionListener(view);
+        addMouseWheelListener(view);
+
+        HoverListener hover = new HoverListener(); // read out the sample under the mouse
+        addMouseListener(hover);
+        addMouseMotionListener(hover);
     }
 
     /**
@@ -108,313 +118,257 @@ public class SimplePlot extends javax.swing.JPanel implements ClipboardOwner {
     }
 
     /**
-     * Add a data series to the plot
-     * @param x the series representing all x values (may be null)
-     * @param y the series representing all y values
-     * @param lineColor color used for drawing connecting lines
-     * @param marker color used for drawing dots (may be null)
+     * Start repainting with new data once the plot is shown, and publish its metrics through JMX under the window
+     * title
      */
-    public void addData(double[] x, double[] y, Color lineColor, Color marker) {
-        DataSeries data = new DataSeries(); // initialize data series object
-
-        data.lineColor = lineColor;
-
-        if(marker == null) // don't mark if we don't have to
-            data.lineMarker = false;
-        else {
-            data.lineMarker = true;
-            data.markerColor = marker;
-        }
-
-        data.y = y.clone(); // copy y data into DataSeries object
-
-        if(x != null) {
-            // can't add y data unless other data has x and y data
-            for(DataSeries node: nodeList)
-                if(node.x == null)
-                    throw new Error("Previous series must have x and y data");
-
-            //x and y data must match
-            if(x.length != y.length) {
-                throw new Error("Dimensions of X and Y must match");
-            }
-
-            // copy x values into DataSeries
-            data.x = x.clone();
-        }
-
-        nodeList.add(data);
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        scheduler.start();
+        figure.getMetrics().register(plotFrame.getTitle());
     }
 
     /**
-     * called in a loop by swing to paint the graphics component
-     * @param g the graphics context to render in
+     * Stop repainting once the plot is no longer shown
      */
     @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g); // just in case
-        Graphics2D g2 = (Graphics2D) g; // we're working in 2D
-        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON); // turn on antialiasing
-
-        int w = getWidth();
-        int h = getHeight();
-
-        Line2D.Double axis_Y = new Line2D.Double(xPAD, yPAD, xPAD, h - yPAD); // initialize y axis line
-        Line2D.Double axis_X = new Line2D.Double(xPAD, h - yPAD, w - xPAD, h - yPAD);
-        g2.draw(axis_X); // draw x axis line
-        g2.draw(axis_Y);
-
-        getMinMax(nodeList); // store maximum and minimum values in the entire nodeList
-
-        drawYTicks(g2, axis_Y, 15, yMax, yMin); // draw ticks for the y axis
-        drawXTicks(g2, axis_X, 15, xMax, xMin);
-
-        plot(g2); // plot all data
-
-        setXLabel(g2, xAxisLabel);
-        setYLabel(g2, yAxisLabel);
-        setTitle(g2, titleLabel);
+    public void removeNotify() {
+        scheduler.stop();
+        figure.getMetrics().unregister();
+        super.removeNotify();
     }
 
     /**
-     * Plot the data onto the graph using a Graphics2D object
-     * @param g2 the relevant Graphics2D object
+     * Change the maximum rate the plot repaints at as data arrives. Producers never need to call repaint themselves.
+     * @param fps the maximum number of repaints per second
      */
-    private void plot(Graphics2D g2) {
-        int w = super.getWidth();
-        int h = super.getHeight();
+    public void setFrameRate(int fps) {
+        scheduler.setFrameRate(fps);
+    }
 
-        Color tempColor = g2.getColor(); // store color so we can come back to it just in case
+    /**
+     * Ask for the plot to be repainted at the next frame. Safe to call from any thread at any rate.
+     */
+    public void requestRepaint() {
+        scheduler.requestRepaint();
+    }
 
-        for(DataSeries node : nodeList)  {
-            double xScale = (double) (w - 2 * xPAD) / upperXtic - lowerXtic; // define scale based on GUI parameters
-            double yScale = (double) (h - 2 * yPAD) / upperYtic - lowerYtic;
+    /**
+     * @return the scheduler which repaints the plot
+     */
+    public RepaintScheduler getScheduler() {
+        return scheduler;
+    }
 
-            for(int j = 0; j < node.y.length - 1; j++) {
-                double x1, x2;
+    /**
+     * Render the plot as it is now into an image on a background thread, so the plot keeps painting new data while a
+     * large export renders. Must be called on the event dispatch thread, which only makes a frozen copy of the figure
+     * (see {@link Figure#freeze()}).
+     * @param scale image pixels per pixel of the plot on screen, more than 1 for a sharper image
+     * @return the image, once rendered
+     */
+    public CompletableFuture<BufferedImage> exportImage(double scale) {
+        Figure copy = figure.freeze();
+        int width = getWidth();
+        int height = getHeight();
+        return CompletableFuture.supplyAsync(() -> copy.renderImage(width, height, scale), exporter);
+    }
 
-                if(node.x == null) {
-                    x1 = xPAD + j * xScale; // steadily increment x (pixels) if x is not defined
-                    x2 = xPAD + (j + 1) * xScale;
-                } else {
-                    x1 = xPAD + xScale * node.x[j] + lowerXtic * xScale; // scale each x value into pixels
-                    x2 = xPAD + xScale * node.x[j + 1] + lowerXtic * xScale;
-                }
-                double y1 = h - yPAD - yScale * node.y[j] + lowerYtic * yScale; // scale y values into pixels
-                double y2 = h - yPAD - yScale * node.y[j + 1] + lowerYtic * yScale;
-                g2.setPaint(node.lineColor); // set color to the line painting color
-                g2.draw(new Line2D.Double(x1, y1, x2, y2)); // draw a line between the two points
-
-                // if the user wants, fill in the two endpoints of the line
-                if(node.lineMarker) {
-                    g2.setPaint(node.markerColor);
-                    g2.fill(new Ellipse2D.Double(x1 - 2, y1 - 2, 4, 4)); // draw an ellipse
-                    g2.fill(new Ellipse2D.Double(x2 - 2, y2 - 2, 4, 4));
-                }
+    /**
+     * Write the plot as it is now to a PNG file on a background thread. Must be called on the event dispatch thread.
+     * @param file the file to write
+     * @param scale image pixels per pixel of the plot on screen
+     * @return completes once the file is written, or with the error if it couldn't be
+     */
+    public CompletableFuture<Void> exportPng(File file, double scale) {
+        return exportImage(scale).thenAcceptAsync(image -> {
+            try {
+                if(!ImageIO.write(image, "png", file))
+                    throw new IOException("No PNG writer available");
+            } catch(IOException e) {
+                throw new UncheckedIOException(e);
             }
-        }
-        g2.setColor(tempColor); // reset color
+        }, exporter).whenComplete(SimplePlot::reportFailure);
     }
 
     /**
-     * Change the label on the Y Axis
-     * @param s the new label for the y axis
+     * Copy the plot as it is now to the clipboard, without its background, once it has rendered on a background
+     * thread. Must be called on the event dispatch thread.
+     * @param scale image pixels per pixel of the plot on screen
+     * @return completes once the image is on the clipboard
      */
-    public void setYLabel(String s) {
-        yAxisLabel = s;
+    public CompletableFuture<Void> copyToClipboard(double scale) {
+        Figure copy = figure.freeze();
+        copy.setBackground(null); // so it can be pasted onto any page
+        int width = getWidth();
+        int height = getHeight();
+
+        return CompletableFuture.supplyAsync(() -> copy.renderImage(width, height, scale), exporter)
+                .thenAcceptAsync(image -> {
+                    Clipboard c = Toolkit.getDefaultToolkit().getSystemClipboard(); // get clipboard
+                    c.setContents(new TransferableImage(image), this); // put image in clipboard
+                }, SwingUtilities::invokeLater)
+                .whenComplete(SimplePlot::reportFailure);
     }
 
     /**
-     * Change the label on the X Axis
-     * @param s the new label for the x axis
+     * Print why an export failed, since nobody may be waiting on it
      */
-    public void setXLabel(String s) {
-        xAxisLabel = s;
+    private static void reportFailure(Void result, Throwable failure) {
+        if(failure != null)
+            failure.printStackTrace();
     }
 
     /**
-     * Change the title for the graph
-     * @param s the new graph title
+     * @return device pixels per pixel of the screen showing the plot, so copies are as sharp as the screen
      */
-    public void setTitle(String s) {
-        titleLabel = s;
+    private double screenScale() {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        return gc == null ? 1 : Math.max(1, gc.getDefaultTransform().getScaleX());
     }
 
     /**
-     * Draws Y axis label from a string with proper spacing
-     * @param g2 the Graphics2D instance to draw under
-     * @param s the Y axis label to draw
+     * @return the figure holding the data and drawing of this plot
      */
-    private void setYLabel(Graphics2D g2, String s) {
-        FontMetrics fm = getFontMetrics(getFont()); // get the relevant font information
-        int width = fm.stringWidth(s);  // determine string width in pixels from font
-
-        AffineTransform temp = g2.getTransform(); // store the current transform
-
-        AffineTransform at = new AffineTransform();
-
-        at.setToRotation(-Math.PI / 2, 10, getHeight() / 2 + width / 2); // create rotation transform (90 degrees)
-        g2.setTransform(at); // apply rotation transform
-
-        g2.drawString(s, 10, 7 + getHeight() / 2 + width / 2); // draw string under transform
-
-        g2.setTransform(temp); // reset transform
+    public Figure getFigure() {
+        return figure;
     }
 
     /**
-     * Draws X axis label from a string with proper spacing
-     * @param g2 the Graphics2D instance to draw under
-     * @param s the X axis label to draw
+     * Add a data series to the plot
+     * @param x the series representing all x values (may be null)
+     * @param y the series representing all y values
+     * @param lineColor color used for drawing connecting lines
+     * @param marker color used for drawing dots (may be null)
      */
-    private void setXLabel(Graphics2D g2, String s) {
-        FontMetrics fm = getFontMetrics(getFont());
-        int width = fm.stringWidth(s);
-
-        g2.drawString(s, getWidth() / 2 - width / 2, getHeight() - 10);
-
-        // no transform needed because this text is horizontal
+    public void addData(double[] x, double[] y, Color lineColor, Color marker) {
+        figure.addData(x, y, lineColor, marker);
     }
 
     /**
-     * Draws title from a string with proper spacing
-     * @param g2 the Graphics2D instance to draw under
-     * @param s the title string to draw (split on \n)
+     * Add an empty data series to the plot which is filled by appending samples to the returned handle. Once the
+     * series holds capacity samples, each new sample overwrites the oldest one.
+     * @param capacity the maximum number of samples to display
+     * @param explicitX true if samples will have x values, false to use the sample number as x
+     * @param lineColor color used for drawing connecting lines
+     * @param marker color used for drawing dots (may be null)
+     * @return the series, which samples are appended to
      */
-    private void setTitle(Graphics2D g2, String s) {
-        FontMetrics fm = getFontMetrics(getFont());
-
-        String[] lines = s.split("\n"); // break the title into lines
-
-        int height = xPAD / 2 - ((lines.length - 1) * fm.getHeight()); // calculate total height
-
-        for (String line : lines) {
-            int width = fm.stringWidth(line);
-            g2.drawString(line, getWidth() / 2 - width / 2, height); // draw each line
-            height += fm.getHeight(); // change pixel value to draw next line
-        }
+    public DataSeries addSeries(int capacity, boolean explicitX, Color lineColor, Color marker) {
+        return figure.addSeries(capacity, explicitX, lineColor, marker);
     }
 
     /**
-     * Draw the ticks on the Y axis to define the scale
-     * @param g2 the Graphics2D instance to draw with
-     * @param axis_Y a 2D Line defining the axis itself
-     * @param tickCount total number of ticks in the axis
-     * @param Max maximum value in y
-     * @param Min minimum value in y
+     * Add an empty density series to the plot, drawn as a heatmap of how many points fall in each cell of a grid
+     * @param columns number of bins across x
+     * @param rows number of bins across y
+     * @param xMin lowest x value counted
+     * @param xMax highest x value counted
+     * @param yMin lowest y value counted
+     * @param yMax highest y value counted
+     * @return the series, which points are appended to
      */
-    private void drawYTicks(Graphics2D g2, Line2D axis_Y, int tickCount, double Max, double Min) {
-        if(!userSetYTic) {
-            double range = Max - Min; // define a range
-
-            // perform sketchy rounding
-            double unroundedTickSize = range / (tickCount - 1);
-            double x = Math.ceil(Math.log10(unroundedTickSize) - 1);
-            double pow10x = Math.pow(10, x);
-            yTicStepSize = Math.ceil(unroundedTickSize / pow10x) * pow10x;
-
-            // find lowest tick
-            if (Min < 0)
-                lowerYtic = yTicStepSize * Math.floor(Min / yTicStepSize);
-            else
-                lowerYtic = yTicStepSize * Math.ceil(Min / yTicStepSize);
-
-            // find highest tick
-            if (Max < 0)
-                upperYtic = yTicStepSize * Math.floor(1 + Max / yTicStepSize);
-            else
-                upperYtic = yTicStepSize * Math.ceil(1 + Max / yTicStepSize);
-        }
-
-        // store line endpoints
-        double x0 = axis_Y.getX1();
-        double y0 = axis_Y.getY1();
-        double xf = axis_Y.getX2();
-        double yf = axis_Y.getY2();
-
-        int roundedTicks = (int) ((upperYtic - lowerYtic) / yTicStepSize); // find total tick number after rounding
-        double distance = Math.sqrt(Math.pow(xf - x0, 2) + Math.pow(yf - y0, 2)) / roundedTicks; // calculate pixel distance
-
-        double upper = upperYtic;
-        for (int i = 0; i <= roundedTicks; i++) {
-            double newY = y0;
-
-            String number = new DecimalFormat("#.#").format(upper); // format each tick into a standard
-            //TODO fix this to use sig figs instead
-            FontMetrics fm = getFontMetrics(getFont());
-            int width = fm.stringWidth(number);
-
-            g2.draw(new Line2D.Double(x0, newY, x0 - 10, newY));
-            g2.drawString(number, (float) x0 - 15 - width, (float) newY); // draw each string along the line
-
-            upper = upper - yTicStepSize;
-            y0 = newY + distance; // move up the graph to draw each line
-        }
+    public DensitySeries addDensity(int columns, int rows, double xMin, double xMax, double yMin, double yMax) {
+        return figure.addDensity(columns, rows, xMin, xMax, yMin, yMax);
     }
 
     /**
-     * Works like {@link #drawXTicks(Graphics2D, Line2D, int, double, double, double)} but without a skip
+     * Add a curve y = f(x) to the plot, sampled when drawn for just the region shown so it stays smooth at any zoom
+     * @param f y for each x, which may be called on any thread
+     * @param xMin lowest x of the curve
+     * @param xMax highest x of the curve
+     * @param lineColor color used for drawing the curve
+     * @return the series
      */
-    private void drawXTicks(Graphics2D g2, Line2D axis_X, int tickCount, double Max, double Min) {
-        drawXTicks(g2, axis_X, tickCount, Max, Min, 1);
+    public FunctionSeries addFunction(DoubleUnaryOperator f, double xMin, double xMax, Color lineColor) {
+        return figure.addFunction(f, xMin, xMax, lineColor);
     }
 
     /**
-     * Draw the ticks on the X axis to define the scale
-     * @param g2 the Graphics2D instance to draw with
-     * @param axis_X a 2D Line defining the axis itself
-     * @param tickCount total number of ticks in the axis
-     * @param Max maximum value in x
-     * @param Min minimum value in x
-     * @param skip the distance between ticks to draw for readability
+     * Show the last stretch of x as a strip chart, which scrolls to follow the newest sample
+     * @param window the width of x shown, such as 10 for the last 10 seconds
      */
-    private void drawXTicks(Graphics2D g2, Line2D axis_X, int tickCount, double Max, double Min, double skip) {
-        if(!userSetXTic) {
-            double range = Max - Min;
+    public void setStripChart(double window) {
+        figure.setStripChart(window);
+        requestRepaint();
+    }
 
-            double unroundedTickSize = range / (tickCount - 1);
-            double x = Math.ceil(Math.log10(unroundedTickSize) - 1);
-            double pow10x = Math.pow(10, x);
-            xTicStepSize = Math.ceil(unroundedTickSize / pow10x) * pow10x;
-            //TODO fix whatever the fuck this is to allow more accurate ticks
+    /**
+     * called in a loop by swing to paint the graphics component
+     * @param g the graphics context to render in
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g); // just in case
 
-            if (Min < 0) {
-                lowerXtic = xTicStepSize * Math.floor(Min / xTicStepSize);
-            } else {
-                lowerXtic = xTicStepSize * Math.ceil(Min / xTicStepSize);
-            }
+        // text follows the look of the panel
+        figure.setFont(getFont());
+        figure.setForeground(getForeground());
 
-            if (Max < 0) {
-                upperXtic = xTicStepSize * Math.floor(1 + Max / xTicStepSize);
-            } else {
-                upperXtic = xTicStepSize * Math.ceil(1 + Max / xTicStepSize);
-            }
-        }
-        double x0 = axis_X.getX1();
-        double y0 = axis_X.getY1();
-        double xf = axis_X.getX2();
-        double yf = axis_X.getY2();
+        figure.render((Graphics2D) g, getWidth(), getHeight()); // we're working in 2D
+    }
 
-        int roundedTicks = (int) ((upperXtic - lowerXtic) / xTicStepSize);
+    /**
+     * Remove a data series from the plot
+     * @param series the series to remove, as returned by {@link #addSeries(int, boolean, Color, Color)}
+     */
+    public void removeSeries(PlotSeries series) {
+        figure.removeSeries(series);
+        scheduler.requestRepaint();
+    }
 
-        double distance = Math.sqrt(Math.pow(xf - x0, 2) + Math.pow(yf - y0, 2)) / roundedTicks;
+    /**
+     * Change how series with more points than the plot has pixels are thinned out before drawing
+     * @param mode the decimation algorithm, or {@link Decimator.Mode#NONE} to always draw every point
+     */
+    public void setDecimation(Decimator.Mode mode) {
+        figure.setDecimation(mode);
+        scheduler.requestRepaint();
+    }
 
-        double lower = lowerXtic;
-        for (int i = 0; i <= roundedTicks; i++) {
-            double newX = x0;
+    /**
+     * Change how the data series are drawn
+     * @param rendering {@link Figure.Rendering#SHAPES} for the best quality, or a raster mode for faster frames on
+     * dense data
+     */
+    public void setRendering(Figure.Rendering rendering) {
+        figure.setRendering(rendering);
+        scheduler.requestRepaint();
+    }
 
-            String number = new DecimalFormat("#.#").format(lower);
-            FontMetrics fm = getFontMetrics(getFont());
-            int width = fm.stringWidth(number);
+    /**
+     * @return bytes allocated while plotting the data series in the last painted frame, or -1 if the JVM can't measure
+     * it
+     */
+    public long getPlotAllocatedBytes() {
+        return figure.getPlotAllocatedBytes();
+    }
 
-            g2.draw(new Line2D.Double(newX, yf, newX, yf + 10));
+    /**
+     * Change the label on the Y Axis
+     * @param s the new label for the y axis
+     */
+    public void setYLabel(String s) {
+        figure.setYLabel(s);
+        scheduler.requestRepaint();
+    }
 
-            if (i % skip == 0) {
-                g2.drawString(number, (float) (newX - (width / 2.0)), (float) yf + 25);
-            }
+    /**
+     * Change the label on the X Axis
+     * @param s the new label for the x axis
+     */
+    public void setXLabel(String s) {
+        figure.setXLabel(s);
+        scheduler.requestRepaint();
+    }
 
-            lower = lower + xTicStepSize;
-            x0 = newX + distance;
-        }
+    /**
+     * Change the title for the graph
+     * @param s the new graph title
+     */
+    public void setTitle(String s) {
+        figure.setTitle(s);
+        scheduler.requestRepaint();
     }
 
     /**
@@ -424,11 +378,8 @@ public class SimplePlot extends javax.swing.JPanel implements ClipboardOwner {
      * @param stepSize step size of the ticks
      */
     public void setXTic(double lowerBound, double upperBound, double stepSize) {
-        this.userSetXTic = true;
-
-        this.upperXtic = upperBound;
-        this.lowerXtic = lowerBound;
-        this.xTicStepSize = stepSize;
+        figure.setXTic(lowerBound, upperBound, stepSize);
+        scheduler.requestRepaint();
     }
 
     /**
@@ -438,74 +389,8 @@ public class SimplePlot extends javax.swing.JPanel implements ClipboardOwner {
      * @param stepSize step size of the ticks
      */
     public void setYTic(double lowerBound, double upperBound, double stepSize) {
-        this.userSetYTic = true;
-
-        this.upperYtic = upperBound;
-        this.lowerYtic = lowerBound;
-        this.yTicStepSize = stepSize;
-    }
-
-    /**
-     * Stores the minimum and maximum values of the entire linked list
-     * @param list the list to get the max and min values from
-     */
-    private void getMinMax(LinkedList<DataSeries> list) {
-        for(DataSeries node: list) {
-            double yNodeMax = getMax(node.y);
-            double yNodeMin = getMin(node.y);
-
-            if(yNodeMin < yMin) { // finding lowest possible
-                yMin = yNodeMin;
-            }
-
-            if(yNodeMax > yMax) {
-                yMax = yNodeMax;
-            }
-
-            // finding lowest possible x (if we have x)
-            if(node.x != null) {
-                double xNodeMax = getMax(node.x);
-                double xNodeMin = getMin(node.x);
-                if(xNodeMin < xMin) {
-                    xMin = xNodeMin;
-                }
-
-                if(xNodeMax > xMax) {
-                    xMax = xNodeMax;
-                }
-            } else {
-                xMax = node.y.length - 1;
-                xMin = 0;
-            }
-        }
-    }
-
-    /**
-     * Gets the maximum of an array
-     * @param data the array
-     * @return the maximum value
-     */
-    private double getMax(double[] data) {
-        double max = -Double.MAX_VALUE;
-        for(double d : data) {
-            if(d > max)
-                max = d;
-        }
-        return max;
-    }
-
-    /**
-     * Gets the minimum of an array
-     * @param data the array
-     * @return the minimum value
-     */
-    private double getMin(double[] data) {
-        double min = Double.MAX_VALUE;
-        for(double d : data) {
-            if(d < min)
-                min = d;
-        }
-        return min;
+        figure.setYTic(lowerBound, upperBound, stepSize);
+        scheduler.requestRepaint();
     }
 
     /**
@@ -530,13 +415,21 @@ public class SimplePlot extends javax.swing.JPanel implements ClipboardOwner {
 
         // create lambda function as action listener
         // equivalent to new ActionListener() { actionPerformed(ActionEvent ae) {...}};
+        item.addActionListener(ae -> plot.copyToClipboard(plot.screenScale())); // rendered in the background
+
+        menu.add(item);
+
+        item = new JMenuItem("Copy graph for reports"); // the same at a much higher resolution
+        item.addActionListener(ae -> plot.copyToClipboard(REPORT_SCALE));
+
+        menu.add(item);
+
+        item = new JMenuItem("Save graph as PNG...");
         item.addActionListener(ae -> {
-                BufferedImage i = new BufferedImage(plot.getSize().width, plot.getSize().height, BufferedImage.TRANSLUCENT);  // create blank BufferedImage
-                plot.setOpaque(false); // remove the background from the plot
-                plot.paint(i.createGraphics()); // paint the plot
-                TransferableImage trans = new TransferableImage(i); // create wrapped Image we can put in a clipboard
-                Clipboard c = Toolkit.getDefaultToolkit().getSystemClipboard(); // get clipboard
-                c.setContents(trans, plot); // put image in clipboard
+                JFileChooser chooser = new JFileChooser();
+                chooser.setSelectedFile(new File(plotFrame.getTitle() + ".png"));
+                if(chooser.showSaveDialog(plot) == JFileChooser.APPROVE_OPTION)
+                    plot.exportPng(chooser.getSelectedFile(), plot.screenScale());
             }
         );
 
@@ -585,19 +478,38 @@ public class SimplePlot extends javax.swing.JPanel implements ClipboardOwner {
     }
 
     /**
-     * Private class defining the structure of a data series
+     * This inner class zooms with the mouse wheel, pans by dragging and resets the view on double click
      */
-    private class DataSeries {
-        double[] x;
-        double[] y;
-        Color lineColor;
+    class PlotViewListener extends ViewListener {
+        PlotViewListener() {
+            super(scheduler);
+        }
+
+        int figureAt(int x, int y) {
+            return 0; // the figure fills the panel
+        }
+
+        Figure figure(int index) {
+            return figure;
+        }
+    }
 
-        boolean lineMarker;
-        Color markerColor;
+    /**
+     * This inner class moves the hover readout with the mouse, and hides it when the mouse leaves the plot
+     */
+    class HoverListener extends MouseAdapter {
+        public void mouseMoved(MouseEvent event) {
+            figure.setHover(event.getX(), event.getY());
+            scheduler.requestRepaint();
+        }
+
+        public void mouseDragged(MouseEvent event) {
+            mouseMoved(event); // keep reading out while panning
+        }
 
-        public DataSeries() {
-            x = y = null;
-            lineMarker = false;
+        public void mouseExited(MouseEvent event) {
+            figure.clearHover();
+            scheduler.requestRepaint();
         }
     }
 
@@ -0,0 +1,326 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * The state of a {@link Figure} in strip chart mode, where it shows the last stretch of x (the last 10 seconds, say)
+ * and scrolls to follow the newest sample.
+ *
+ * The plot area is split into pixel columns of a fixed width in x, numbered from x = 0, and the window always ends
+ * with the column of the newest sample. Sorted series are rasterized into an image of the plot area which is kept
+ * between frames. When the window moves on, the image is scrolled left by whole columns and only the samples which
+ * arrived since the last frame are drawn, so the cost of a frame depends on how much data arrived rather than how
+ * much is shown. The image is only drawn from scratch when the size, y scale or data is reset.
+ *
+ * The y range shown fits the data in the window with hysteresis. The min and max of each column are kept as samples
+ * arrive, and the range is only widened when data leaves it or narrowed when data fills less than half of it, each
+ * time with a margin. In between the y axis stays still, so its ticks aren't laid out again and don't jitter.
+ */
+class StripChart {
+
+    private static final double MARGIN = 0.1; // fraction of the data's range added above and below when refitting
+    private static final double SHRINK = 0.5; // refit when the data fills less than this fraction of the range shown
+
+    private final double window; // width of the window in x units
+
+    // columns of the window
+    private int columns, rows; // size of the plot area in device pixels
+    private double columnWidth; // x units per column
+    private long right = Long.MIN_VALUE; // number of the column of the newest sample
+    private long[] columnIds = new long[0]; // number of the column whose bounds are held in each slot
+    private double[] columnMin = new double[0], columnMax = new double[0];
+    private long structure = -1; // structure version of the figure when the columns were filled
+
+    private final IdentityHashMap<PlotSeries, Track> tracks = new IdentityHashMap<>(); // progress through each series
+
+    private boolean fitted; // true once a y range has been picked
+    private double shownMin, shownMax; // y range shown
+
+    // the image of the window
+    private final RasterCanvas canvas = new RasterCanvas();
+    private final Decimator decimator = new Decimator(Decimator.Mode.MIN_MAX);
+    private boolean drawn; // true while the image holds the window as of drawnRight
+    private long drawnRight; // column of the newest sample when the image was last drawn
+    private double drawnOffset, drawnScale; // y mapping the image was drawn with
+    private boolean drawnSmooth;
+    private int visited; // samples drawn by the last frame
+
+    /**
+     * How far the strip chart has got through one series
+     */
+    private static final class Track {
+        long scanned; // sequence number after the last sample counted in the column bounds
+        long drawn; // sequence number of the last sample drawn into the image
+    }
+
+    /******************************************************************
+     * Constructor for a strip chart showing a fixed width of x
+     * @param window the width of x shown
+     */
+    StripChart(double window) {
+        if(!(window > 0) || Double.isInfinite(window))
+            throw new Error("Strip chart window must be positive");
+
+        this.window = window;
+    }
+
+    /**
+     * @return the width of x shown
+     */
+    double window() {
+        return window;
+    }
+
+    /**
+     * @param data the samples of a series this frame
+     * @return true if the series is drawn into the scrolling image, false if the figure draws it itself each frame
+     */
+    static boolean handles(PlotSeries series, SeriesData data) {
+        return !(series instanceof DensitySeries) && data.hasX() && data.isXSorted();
+    }
+
+    /**
+     * Move the window up to the newest sample and work out the y range to show, counting the samples which arrived
+     * since the last frame into the column bounds
+     * @param series every series of the frame
+     * @param frame the samples of each series this frame
+     * @param structure the figure's structure version, which changes whenever series are added or removed
+     * @param newest largest x of any series
+     * @param columns width of the plot area in device pixels
+     * @param rows height of the plot area in device pixels
+     */
+    void fit(List<PlotSeries> series, List<SeriesData> frame, long structure, double newest, int columns, int rows) {
+        columns = Math.max(columns, 1);
+        this.rows = Math.max(rows, 1);
+        if(columns != this.columns) {
+            this.columns = columns;
+            columnWidth = window / columns;
+            columnIds = new long[columns];
+            columnMin = new double[columns];
+            columnMax = new double[columns];
+            reset();
+        }
+
+        long newRight = (long) Math.floor(newest / columnWidth);
+        if(structure != this.structure || newRight < right) { // series came or went, or the data went back in x
+            this.structure = structure;
+            tracks.keySet().retainAll(series);
+            reset();
+        }
+        right = newRight;
+        double left = lowerX();
+
+        // count every sample which arrived since the last frame, and any series seen for the first time
+        double dataMin = Double.MAX_VALUE, dataMax = -Double.MAX_VALUE;
+        for(int k = 0; k < frame.size(); k++) {
+            SeriesData data = frame.get(k);
+            if(!handles(series.get(k), data)) { // drawn whole each frame, so fit all of it
+                if(data.size() > 0) {
+                    dataMin = Math.min(dataMin, data.getMinY());
+                    dataMax = Math.max(dataMax, data.getMaxY());
+                }
+                continue;
+            }
+
+            Track track = track(series.get(k));
+            long start = Figure.firstSequence(data);
+            boolean counted = track.scanned != Long.MIN_VALUE; // false until the series is first counted
+            // samples it never counted were dropped: the series was cleared, or lapped its ring since the last frame
+            if(counted && (track.scanned > start + data.size() || track.scanned < start)) {
+                reset();
+                fit(series, frame, structure, newest, columns, rows);
+                return;
+            }
+
+            int from = data.lowerBound(left);
+            if(counted && track.scanned > start) // carry on after the samples already counted
+                from = Math.max(from, (int) (track.scanned - start));
+            for(int i = from; i < data.size(); i++)
+                count(data.getX(i), data.getY(i));
+            track.scanned = start + data.size();
+        }
+
+        for(int c = 0; c < columns; c++) { // bounds of the columns in the window
+            if(columnIds[c] >= right - columns + 1 && columnIds[c] <= right) {
+                dataMin = Math.min(dataMin, columnMin[c]);
+                dataMax = Math.max(dataMax, columnMax[c]);
+            }
+        }
+
+        if(dataMin > dataMax) { // nothing in the window
+            if(!fitted) {
+                shownMin = 0;
+                shownMax = 1;
+            }
+            return;
+        }
+
+        double range = dataMax - dataMin;
+        if(!fitted || dataMin < shownMin || dataMax > shownMax || range < SHRINK * (shownMax - shownMin)) {
+            double margin = range > 0 ? range * MARGIN : Math.max(Math.abs(dataMax) * MARGIN, 1);
+            shownMin = dataMin - margin;
+            shownMax = dataMax + margin;
+            fitted = true;
+        }
+    }
+
+    /**
+     * Add a sample to the bounds of its column
+     */
+    private void count(double x, double y) {
+        long column = (long) Math.floor(x / columnWidth);
+        if(column <= right - columns) // scrolled out already
+            return;
+
+        int slot = (int) Math.floorMod(column, (long) columns);
+        if(columnIds[slot] != column) { // the slot held a column which has scrolled out
+            columnIds[slot] = column;
+            columnMin[slot] = Double.MAX_VALUE;
+            columnMax[slot] = -Double.MAX_VALUE;
+        }
+        if(y < columnMin[slot]) // NaNs never widen the bounds
+            columnMin[slot] = y;
+        if(y > columnMax[slot])
+            columnMax[slot] = y;
+    }
+
+    /**
+     * Forget the column bounds and the image, so both are worked out again from the whole window
+     */
+    private void reset() {
+        Arrays.fill(columnIds, Long.MIN_VALUE);
+        for(Track track : tracks.values())
+            track.scanned = track.drawn = Long.MIN_VALUE;
+        right = Long.MIN_VALUE;
+        drawn = false;
+    }
+
+    private Track track(PlotSeries series) {
+        Track track = tracks.get(series);
+        if(track == null) {
+            track = new Track();
+            track.scanned = track.drawn = Long.MIN_VALUE;
+            tracks.put(series, track);
+        }
+        return track;
+    }
+
+    /**
+     * Bring the image of the window up to date, scrolling it and drawing only new samples where possible
+     * @param series every series of the frame
+     * @param frame the samples of each series this frame
+     * @param yOffset device pixel y, from the top of the plot area, of a value of 0
+     * @param yScale device pixels per unit of y
+     * @param smooth true to antialias lines
+     */
+    void draw(List<PlotSeries> series, List<SeriesData> frame, double yOffset, double yScale, boolean smooth) {
+        boolean scroll = drawn && yOffset == drawnOffset && yScale == drawnScale && smooth == drawnSmooth
+                && right - drawnRight < columns;
+        if(scroll) {
+            canvas.scroll((int) (right - drawnRight));
+        } else {
+            canvas.reset(columns + 1, rows); // a spare column for lines reaching the newest sample, scrolled in later
+            for(Track track : tracks.values())
+                track.drawn = Long.MIN_VALUE;
+        }
+
+        drawn = true;
+        drawnRight = right;
+        drawnOffset = yOffset;
+        drawnScale = yScale;
+        drawnSmooth = smooth;
+
+        double xOffset = -(right - columns + 1); // pixel x = x / columnWidth - number of the leftmost column
+        double xScale = 1 / columnWidth;
+        double left = lowerX();
+
+        visited = 0;
+        for(int k = 0; k < frame.size(); k++) {
+            PlotSeries node = series.get(k);
+            SeriesData data = frame.get(k);
+            if(!handles(node, data) || data.size() == 0)
+                continue;
+
+            // carry on from the last sample drawn, or start just before the window
+            Track track = track(node);
+            long start = Figure.firstSequence(data);
+            int from = Math.max(data.lowerBound(left) - 1, 0);
+            if(track.drawn >= start && track.drawn < start + data.size())
+                from = Math.max(from, (int) (track.drawn - start));
+            track.drawn = start + data.size() - 1;
+
+            decimator.decimate(data, from, data.size(), xOffset, xScale, yOffset, yScale, columns);
+            visited += data.size() - from;
+            rasterize(node, smooth);
+        }
+    }
+
+    /**
+     * Draw the points the decimator kept
+     */
+    private void rasterize(PlotSeries series, boolean smooth) {
+        if(series.lineColor != null) {
+            int argb = series.lineColor.getRGB();
+            for(int j = 1; j < decimator.size(); j++)
+                canvas.line(decimator.getX(j - 1), decimator.getY(j - 1), decimator.getX(j), decimator.getY(j),
+                        argb, smooth);
+        }
+
+        if(series.lineMarker) {
+            for(int j = 0; j < decimator.size(); j++)
+                canvas.stamp(series.markerSprite, decimator.getX(j), decimator.getY(j));
+        }
+    }
+
+    /**
+     * Draw the image of the window
+     * @param g2 the graphics to draw into
+     * @param x left edge of the plot area
+     * @param y top edge of the plot area
+     * @param width width of the plot area
+     * @param height height of the plot area
+     */
+    void paint(Graphics2D g2, int x, int y, int width, int height) {
+        BufferedImage image = canvas.getImage();
+        g2.drawImage(image, x, y, x + width, y + height, 0, 0, columns, rows, null); // without the spare column
+    }
+
+    /**
+     * @return the number of samples drawn into the image by the last frame
+     */
+    int visited() {
+        return visited;
+    }
+
+    /**
+     * @return the lowest x of the window
+     */
+    double lowerX() {
+        return (right - columns + 1) * columnWidth;
+    }
+
+    /**
+     * @return the highest x of the window
+     */
+    double upperX() {
+        return (right + 1) * columnWidth;
+    }
+
+    /**
+     * @return the lowest y shown
+     */
+    double minY() {
+        return shownMin;
+    }
+
+    /**
+     * @return the highest y shown
+     */
+    double maxY() {
+        return shownMax;
+    }
+}
@@ -0,0 +1,143 @@
+package com.m3rcuriel.frc.swerve.util;
+
+/**
+ * A hierarchy of min/max summaries over the y values of a {@link DataSeries}, so the bounds of any range of samples can
+ * be found by reading a handful of summaries rather than every sample.
+ *
+ * Level 0 holds the bounds of each aligned block of samples, and each level above covers blocks {@link #FANOUT} times
+ * larger. Blocks are aligned on sample sequence numbers, and each level is a ring with just enough blocks to cover the
+ * series' capacity, so summaries are updated in at most O(levels) per appended sample (usually only the finest level
+ * changes) and never need rebuilding when samples are overwritten.
+ */
+class SummaryPyramid {
+
+    static final int FANOUT_BITS = 3; // each level's blocks are 8 times larger than the one below
+    static final int FANOUT = 1 << FANOUT_BITS;
+
+    private final int[] shift; // log2 of the block size of each level
+    private final double[][] min; // ring of block minimums for each level
+    private final double[][] max;
+    private final int[] slot; // slot of the block each level is filling
+
+    /******************************************************************
+     * Constructor for an empty pyramid
+     * @param capacity the capacity of the series being summarized
+     * @param baseBits log2 of the block size of the finest level
+     */
+    SummaryPyramid(int capacity, int baseBits) {
+        int levels = levels(capacity, baseBits);
+
+        shift = new int[levels];
+        min = new double[levels][];
+        max = new double[levels][];
+        slot = new int[levels];
+        for(int l = 0; l < levels; l++) {
+            shift[l] = baseBits + l * FANOUT_BITS;
+            min[l] = new double[blocks(capacity, shift[l])];
+            max[l] = new double[blocks(capacity, shift[l])];
+        }
+    }
+
+    /**
+     * @return the number of levels needed until one block spans the whole capacity
+     */
+    private static int levels(int capacity, int baseBits) {
+        int levels = 1;
+        for(long size = 1L << baseBits; size < capacity; size <<= FANOUT_BITS)
+            levels++;
+        return levels;
+    }
+
+    /**
+     * @return the number of blocks a level needs, covering the capacity plus the block being written
+     */
+    private static int blocks(int capacity, int bits) {
+        return (int) ((capacity + (1L << bits) - 1) >> bits) + 1;
+    }
+
+    /**
+     * Work out the memory a pyramid would use
+     * @param capacity the capacity of the series being summarized
+     * @param baseBits log2 of the block size of the finest level
+     * @return the size of the summaries in bytes
+     */
+    static long bytes(int capacity, int baseBits) {
+        long bytes = 0;
+        for(int l = 0; l < levels(capacity, baseBits); l++)
+            bytes += 2L * Double.BYTES * blocks(capacity, baseBits + l * FANOUT_BITS);
+        return bytes;
+    }
+
+    /**
+     * @return the memory used by the summaries in bytes
+     */
+    long bytes() {
+        long bytes = 0;
+        for(double[] level : min)
+            bytes += 2L * Double.BYTES * level.length;
+        return bytes;
+    }
+
+    /**
+     * Add a sample to the summaries. Samples must be added in sequence.
+     * @param seq the sequence number of the sample
+     * @param y its y value
+     * @param first true if the sample doesn't follow the last one added, such as after the series is cleared
+     */
+    void add(long seq, double y, boolean first) {
+        for(int l = 0; l < shift.length; l++) {
+            int s = slot[l];
+
+            if(first || (seq & ((1L << shift[l]) - 1)) == 0) { // a new block, forget what its slot held before
+                s = slot[l] = first ? (int) ((seq >>> shift[l]) % min[l].length) : (s + 1 == min[l].length ? 0 : s + 1);
+                min[l][s] = y;
+                max[l][s] = y;
+            } else if(y < min[l][s]) {
+                min[l][s] = y;
+            } else if(y > max[l][s]) {
+                max[l][s] = y;
+            } else { // inside this block's bounds, so inside those of every block above too
+                break;
+            }
+        }
+    }
+
+    /**
+     * Find the bounds of a range of samples, using the coarsest whole blocks that fit in the range and reading the
+     * samples left over at its edges
+     * @param series the series being summarized
+     * @param from sequence number of the first sample
+     * @param to sequence number after the last sample
+     * @param out receives the minimum in out[0] and the maximum in out[1]
+     */
+    void range(DataSeries series, long from, long to, double[] out) {
+        double lo = Double.MAX_VALUE, hi = -Double.MAX_VALUE;
+
+        long seq = from;
+        while(seq < to) {
+            int level = -1; // the coarsest block starting here which fits in the range
+            for(int l = shift.length - 1; l >= 0; l--) {
+                long size = 1L << shift[l];
+                if((seq & (size - 1)) == 0 && seq + size <= to) {
+                    level = l;
+                    break;
+                }
+            }
+
+            if(level < 0) { // no whole block fits, read the sample itself
+                double y = series.yAt(seq);
+                lo = Math.min(lo, y);
+                hi = Math.max(hi, y);
+                seq++;
+            } else {
+                int slot = (int) ((seq >>> shift[level]) % min[level].length);
+                lo = Math.min(lo, min[level][slot]);
+                hi = Math.max(hi, max[level][slot]);
+                seq += 1L << shift[level];
+            }
+        }
+
+        out[0] = lo;
+        out[1] = hi;
+    }
+}
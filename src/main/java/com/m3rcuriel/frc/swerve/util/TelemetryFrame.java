@@ -0,0 +1,64 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binary frame format read by {@link TelemetryReceiver}. All values are big endian (network order).
+ *
+ * A frame is a 6 byte header followed by a number of 14 byte sample records:
+ * <pre>
+ * header: int    magic    always {@link #MAGIC}
+ *         ushort count    number of records that follow
+ * record: ushort channel  which series the sample belongs to
+ *         double x        time of the sample (ignored by series without x values)
+ *         float  y        value of the sample
+ * </pre>
+ * Over UDP each datagram holds exactly one frame. Over TCP frames are simply sent back to back.
+ */
+public final class TelemetryFrame {
+
+    public static final int MAGIC = 0x53575631; // "SWV1"
+
+    public static final int HEADER_BYTES = 6;
+    public static final int RECORD_BYTES = 14;
+
+    public static final int MAX_RECORDS = 0xFFFF; // largest count the header can hold
+    public static final int MAX_DATAGRAM_RECORDS = (65507 - HEADER_BYTES) / RECORD_BYTES; // to fit in one UDP packet
+
+    private TelemetryFrame() {
+    }
+
+    /**
+     * @param records number of records in a frame
+     * @return the size of the frame in bytes
+     */
+    public static int frameBytes(int records) {
+        return HEADER_BYTES + records * RECORD_BYTES;
+    }
+
+    /**
+     * Write a frame header
+     * @param buffer the buffer to write into
+     * @param records number of records that will follow
+     */
+    public static void writeHeader(ByteBuffer buffer, int records) {
+        if(records < 0 || records > MAX_RECORDS)
+            throw new Error("A frame holds at most " + MAX_RECORDS + " records");
+
+        buffer.putInt(MAGIC);
+        buffer.putShort((short) records);
+    }
+
+    /**
+     * Write a sample record
+     * @param buffer the buffer to write into
+     * @param channel the channel id of the sample
+     * @param x the time of the sample
+     * @param y the value of the sample
+     */
+    public static void writeRecord(ByteBuffer buffer, int channel, double x, float y) {
+        buffer.putShort((short) channel);
+        buffer.putDouble(x);
+        buffer.putFloat(y);
+    }
+}
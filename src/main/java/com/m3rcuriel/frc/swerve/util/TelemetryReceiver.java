@@ -0,0 +1,374 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+
+/**
+ * Receives telemetry over local UDP or TCP sockets and appends it straight into {@link DataSeries}, so robot data can
+ * be plotted without any glue code.
+ *
+ * Samples arrive in {@link TelemetryFrame}s, and each one is routed to a series by its channel id. A single thread
+ * services every socket through one NIO selector, decoding frames out of reused direct buffers. Samples are staged in
+ * preallocated arrays per channel and appended in one batch per channel each time the sockets are drained, so
+ * receiving doesn't allocate per sample and each series publishes once per batch rather than once per sample.
+ *
+ * The receiver thread becomes the only writer of every routed series. Routes and sockets must be set up before
+ * {@link #start()} is called.
+ */
+public class TelemetryReceiver implements Closeable {
+
+    private static final int STAGE = 1024; // samples staged per channel before they are appended early
+    private static final int TCP_BUFFER = TelemetryFrame.frameBytes(TelemetryFrame.MAX_RECORDS); // fits any frame
+
+    private final Selector selector;
+    private final ByteBuffer datagram; // every datagram is read into this
+
+    private final DataSeries[] routes; // series for each channel id (null if the channel is ignored)
+    private final double[][] stagedX; // samples waiting to be appended to each channel
+    private final double[][] stagedY;
+    private final int[] staged; // number of samples waiting in each channel
+    private final int[] dirty; // channels with samples waiting
+    private final boolean[] queued; // true for channels already in the dirty list
+    private int dirtyCount;
+
+    private Thread thread;
+    private volatile boolean running;
+
+    private volatile long samples; // samples appended to series
+    private volatile long frames; // frames decoded
+    private volatile long dropped; // samples for unrouted channels, and bad frames
+    private volatile long failed; // sockets which failed, such as connections reset by their sender
+
+    /******************************************************************
+     * Constructor for a receiver with no sockets or routes
+     * @param channels number of channel ids, which run from 0 to channels - 1
+     * @throws IOException if the selector couldn't be opened
+     */
+    public TelemetryReceiver(int channels) throws IOException {
+        if(channels <= 0 || channels > 0x10000)
+            throw new Error("Channel ids must fit in 16 bits");
+
+        selector = Selector.open();
+        datagram = ByteBuffer.allocateDirect(TelemetryFrame.frameBytes(TelemetryFrame.MAX_DATAGRAM_RECORDS));
+
+        routes = new DataSeries[channels];
+        stagedX = new double[channels][];
+        stagedY = new double[channels][];
+        staged = new int[channels];
+        dirty = new int[channels];
+        queued = new boolean[channels];
+    }
+
+    /**
+     * Send the samples of a channel to a series
+     * @param channel the channel id
+     * @param series the series to append to, which nothing else may append to while the receiver runs
+     */
+    public void route(int channel, DataSeries series) {
+        if(running)
+            throw new Error("Routes must be set before the receiver starts");
+
+        routes[channel] = series;
+        if(stagedY[channel] == null) {
+            stagedX[channel] = new double[STAGE];
+            stagedY[channel] = new double[STAGE];
+        }
+    }
+
+    /**
+     * Listen for frames in UDP datagrams on the loopback interface
+     * @param port the port to listen on, or 0 for any free port
+     * @return the port being listened on
+     * @throws IOException if the port couldn't be bound
+     */
+    public int bindUdp(int port) throws IOException {
+        return bindUdp(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Listen for frames in UDP datagrams
+     * @param address the address to listen on
+     * @return the port being listened on
+     * @throws IOException if the address couldn't be bound
+     */
+    public int bindUdp(InetSocketAddress address) throws IOException {
+        if(running)
+            throw new Error("Sockets must be bound before the receiver starts");
+
+        DatagramChannel channel = DatagramChannel.open();
+        channel.bind(address);
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ);
+        return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Accept TCP connections sending frames on the loopback interface
+     * @param port the port to listen on, or 0 for any free port
+     * @return the port being listened on
+     * @throws IOException if the port couldn't be bound
+     */
+    public int bindTcp(int port) throws IOException {
+        return bindTcp(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    /**
+     * Accept TCP connections sending frames
+     * @param address the address to listen on
+     * @return the port being listened on
+     * @throws IOException if the address couldn't be bound
+     */
+    public int bindTcp(InetSocketAddress address) throws IOException {
+        if(running)
+            throw new Error("Sockets must be bound before the receiver starts");
+
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(address);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Start receiving on a background thread
+     */
+    public synchronized void start() {
+        if(thread != null)
+            throw new Error("Receiver already started");
+
+        running = true;
+        thread = new Thread(this::run, "Telemetry receiver");
+        thread.setDaemon(true); // don't keep the program open just to listen
+        thread.start();
+    }
+
+    /**
+     * Stop receiving and close every socket
+     * @throws IOException if a socket couldn't be closed
+     */
+    public synchronized void close() throws IOException {
+        running = false;
+        selector.wakeup();
+
+        if(thread != null) {
+            try {
+                thread.join();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        for(SelectionKey key : selector.keys())
+            key.channel().close();
+        selector.close();
+    }
+
+    /**
+     * The receiver thread, which drains every ready socket and then appends what it decoded
+     */
+    private void run() {
+        try {
+            while(running) {
+                selector.select();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while(keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if(!key.isValid())
+                        continue;
+                    try {
+                        if(key.isAcceptable())
+                            accept(key);
+                        else if(key.channel() instanceof DatagramChannel)
+                            receive((DatagramChannel) key.channel());
+                        else
+                            read(key);
+                    } catch(IOException e) { // only this socket failed, every other one carries on
+                        failed++;
+                        if(key.channel() instanceof SocketChannel) // a connection reset when the robot reboots, say
+                            disconnect(key);
+                    }
+                }
+
+                flush(); // one batch per channel for everything that arrived
+            }
+        } catch(IOException e) {
+            if(running) // closing the selector underneath us is how we stop
+                e.printStackTrace();
+        }
+    }
+
+    private void accept(SelectionKey key) throws IOException {
+        SocketChannel client = ((ServerSocketChannel) key.channel()).accept();
+        if(client == null)
+            return;
+
+        client.configureBlocking(false);
+        client.register(selector, SelectionKey.OP_READ, ByteBuffer.allocateDirect(TCP_BUFFER)); // one per connection
+    }
+
+    /**
+     * Decode every datagram waiting on a channel
+     */
+    private void receive(DatagramChannel channel) throws IOException {
+        while(true) {
+            datagram.clear();
+            if(channel.receive(datagram) == null) // nothing left to read
+                return;
+
+            datagram.flip();
+            if(decode(datagram) <= 0) // a datagram must hold exactly one whole frame
+                dropped++;
+        }
+    }
+
+    /**
+     * Decode every whole frame that has arrived on a connection, keeping any partial frame for the next read
+     */
+    private void read(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        ByteBuffer buffer = (ByteBuffer) key.attachment();
+
+        int read = channel.read(buffer);
+
+        buffer.flip();
+        int used;
+        while((used = decode(buffer)) > 0)
+            buffer.position(buffer.position() + used);
+        buffer.compact();
+
+        if(used < 0 || read < 0) { // a corrupt stream can't be resynchronized, and -1 means the sender hung up
+            if(used < 0)
+                dropped++;
+            disconnect(key);
+        }
+    }
+
+    /**
+     * Stop reading a connection and close it
+     */
+    private void disconnect(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch(IOException e) {
+            failed++; // nothing more can be done with it
+        }
+    }
+
+    /**
+     * Decode one frame from the start of a buffer, staging its samples. The buffer's position is left unchanged.
+     * @param buffer the buffer holding the frame
+     * @return the size of the frame in bytes, 0 if the whole frame hasn't arrived yet, or -1 if it isn't a frame
+     */
+    private int decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        if(buffer.remaining() < TelemetryFrame.HEADER_BYTES)
+            return 0;
+        if(buffer.getInt(start) != TelemetryFrame.MAGIC)
+            return -1;
+
+        int records = buffer.getShort(start + 4) & 0xFFFF;
+        int bytes = TelemetryFrame.frameBytes(records);
+        if(buffer.remaining() < bytes)
+            return 0;
+
+        int position = start + TelemetryFrame.HEADER_BYTES;
+        for(int i = 0; i < records; i++) {
+            int channel = buffer.getShort(position) & 0xFFFF;
+            double x = buffer.getDouble(position + 2);
+            double y = buffer.getFloat(position + 10);
+            stage(channel, x, y);
+            position += TelemetryFrame.RECORD_BYTES;
+        }
+
+        frames++;
+        return bytes;
+    }
+
+    /**
+     * Hold a sample until its channel is next appended to
+     */
+    private void stage(int channel, double x, double y) {
+        if(channel >= routes.length || routes[channel] == null) {
+            dropped++;
+            return;
+        }
+
+        if(!queued[channel]) {
+            queued[channel] = true;
+            dirty[dirtyCount++] = channel;
+        }
+
+        int n = staged[channel];
+        stagedX[channel][n] = x;
+        stagedY[channel][n] = y;
+        staged[channel] = ++n;
+
+        if(n == STAGE) // append early rather than grow
+            append(channel);
+    }
+
+    /**
+     * Append every staged sample to its series
+     */
+    private void flush() {
+        for(int i = 0; i < dirtyCount; i++) {
+            append(dirty[i]);
+            queued[dirty[i]] = false;
+        }
+        dirtyCount = 0;
+    }
+
+    private void append(int channel) {
+        int n = staged[channel];
+        if(n == 0)
+            return;
+
+        DataSeries series = routes[channel];
+        series.appendBatch(series.storesX() ? stagedX[channel] : null, stagedY[channel], 0, n);
+
+        staged[channel] = 0;
+        samples += n;
+    }
+
+    /**
+     * @return the number of samples appended to series so far
+     */
+    public long getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return the number of frames decoded so far
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return the number of samples for unrouted channels plus the number of corrupt frames received so far
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return the number of times a socket failed so far, such as a connection reset by its sender. Failed connections
+     * are closed and the sender can connect again.
+     */
+    public long getFailed() {
+        return failed;
+    }
+}
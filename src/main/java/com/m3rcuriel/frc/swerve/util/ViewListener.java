@@ -0,0 +1,125 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import javax.swing.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+
+/**
+ * Zooms with the mouse wheel, pans by dragging and resets the view on double click, for a panel showing one or more
+ * figures. The panel says which figure is under the mouse and where its cell starts, and this does the rest, so every
+ * panel handles the mouse the same way.
+ */
+abstract class ViewListener extends MouseAdapter {
+
+    private static final double ZOOM_STEP = 0.8; // fraction of the range shown after one wheel notch in
+
+    private final RepaintScheduler scheduler;
+
+    private int lastX, lastY; // where the last drag event was
+    private int dragged = -1; // index of the figure the drag started in, -1 when not dragging
+
+    /******************************************************************
+     * Constructor for the mouse handling of a panel
+     * @param scheduler repaints the panel after the view changes
+     */
+    ViewListener(RepaintScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @param x x position in the panel
+     * @param y y position in the panel
+     * @return index of the figure at a point, or -1 if there is none
+     */
+    abstract int figureAt(int x, int y);
+
+    /**
+     * @param index index of a figure
+     * @return the figure, or null if it is no longer shown
+     */
+    abstract Figure figure(int index);
+
+    /**
+     * @param index index of a figure
+     * @return x position in the panel of the left edge of the figure
+     */
+    int cellX(int index) {
+        return 0;
+    }
+
+    /**
+     * @param index index of a figure
+     * @return y position in the panel of the top edge of the figure
+     */
+    int cellY(int index) {
+        return 0;
+    }
+
+    /**
+     * Called after a figure is zoomed or panned, before the repaint is requested
+     * @param figure the figure whose view changed
+     */
+    void viewChanged(Figure figure) {
+    }
+
+    /**
+     * Go back to showing all the data, after a double click on a figure
+     * @param index index of the figure clicked
+     */
+    void resetView(int index) {
+        figure(index).resetView();
+    }
+
+    public void mousePressed(MouseEvent event) {
+        lastX = event.getX();
+        lastY = event.getY();
+        dragged = figureAt(lastX, lastY);
+    }
+
+    public void mouseReleased(MouseEvent event) {
+        dragged = -1;
+    }
+
+    public void mouseDragged(MouseEvent event) {
+        // the figure the drag started in pans for the whole drag, even once the mouse has left its cell
+        if(!SwingUtilities.isLeftMouseButton(event) || dragged < 0)
+            return;
+
+        Figure figure = figure(dragged);
+        if(figure == null)
+            return;
+
+        figure.pan(event.getX() - lastX, event.getY() - lastY);
+        viewChanged(figure);
+
+        lastX = event.getX();
+        lastY = event.getY();
+        scheduler.requestRepaint();
+    }
+
+    public void mouseWheelMoved(MouseWheelEvent event) {
+        int index = figureAt(event.getX(), event.getY());
+        Figure figure = index < 0 ? null : figure(index);
+        if(figure == null)
+            return;
+
+        // figures are zoomed in their own pixels, relative to their cell
+        double factor = Math.pow(ZOOM_STEP, -event.getPreciseWheelRotation()); // rolling forward zooms in
+        figure.zoom(factor, event.getX() - cellX(index), event.getY() - cellY(index));
+        viewChanged(figure);
+        scheduler.requestRepaint();
+    }
+
+    public void mouseClicked(MouseEvent event) {
+        if(event.getClickCount() != 2 || !SwingUtilities.isLeftMouseButton(event))
+            return;
+
+        int index = figureAt(event.getX(), event.getY());
+        if(index < 0 || figure(index) == null)
+            return;
+
+        resetView(index);
+        scheduler.requestRepaint();
+    }
+}
@@ -0,0 +1,97 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks what the renderer reads of a series while nothing is appending to it
+ */
+public class DataSeriesTest {
+
+    /**
+     * A full ring isn't being overwritten unless something appends to it, so frames of it aren't torn
+     */
+    @Test
+    public void fullSeriesIsNotTorn() {
+        Figure figure = new Figure("Full");
+        figure.addData(null, new double[] {1, 2, 3, 4}, Color.BLUE, null);
+        figure.renderImage(400, 300);
+        long version = figure.version();
+        figure.renderImage(400, 300);
+
+        assertFalse(figure.wasLastFrameTorn());
+        assertEquals(version, figure.version());
+    }
+
+    /**
+     * Removing a series while another publishes must still change the version, so the removed trace is painted over
+     */
+    @Test
+    public void removingSeriesChangesVersion() {
+        Figure figure = new Figure("Remove");
+        DataSeries kept = figure.addSeries(10, false, Color.BLUE, null);
+        DataSeries removed = figure.addSeries(10, false, Color.RED, null);
+        removed.append(1);
+        long version = figure.version();
+
+        figure.removeSeries(removed);
+        kept.append(1);
+        assertNotEquals(version, figure.version());
+    }
+
+    /**
+     * Clearing a series and appending as many samples again must be drawn, and found by the hover readout, as new data
+     */
+    @Test
+    public void clearedSeriesIsRedrawn() {
+        Figure figure = new Figure("Cleared");
+        DataSeries series = figure.addSeries(100, true, Color.BLUE, null);
+        for(int i = 0; i < 10; i++)
+            series.append(i, 1);
+        figure.setYTic(0, 10, 1);
+        BufferedImage before = figure.renderImage(400, 300);
+        assertNotNull(figure.nearest(200, 300 - 60 - 180 * 1 / 10.0, 4));
+        long version = figure.version();
+
+        series.clear();
+        for(int i = 0; i < 10; i++)
+            series.append(i, 5);
+        assertNotEquals(version, figure.version());
+
+        BufferedImage after = figure.renderImage(400, 300);
+        assertNull(figure.nearest(200, 300 - 60 - 180 * 1 / 10.0, 4));
+        NearestSample sample = figure.nearest(200, 300 - 60 - 180 * 5 / 10.0, 4);
+        assertNotNull(sample);
+        assertEquals(5, sample.getY(), 0);
+
+        boolean changed = false;
+        for(int y = 0; y < 300 && !changed; y++)
+            for(int x = 0; x < 400 && !changed; x++)
+                changed = before.getRGB(x, y) != after.getRGB(x, y);
+        assertTrue(changed);
+    }
+
+    @Test
+    public void wrappedSeriesIsNotTorn() {
+        DataSeries series = new DataSeries(100, true);
+        for(int i = 0; i < 250; i++)
+            series.append(i, i % 7);
+
+        SeriesSnapshot snapshot = series.snapshot();
+        assertEquals(100, snapshot.size());
+        assertEquals(150, snapshot.getX(0), 0);
+        assertTrue(snapshot.isConsistent());
+
+        series.append(250, 0); // overwrites the oldest sample of the snapshot
+        assertFalse(snapshot.isConsistent());
+    }
+}
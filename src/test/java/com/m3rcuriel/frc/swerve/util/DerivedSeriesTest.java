@@ -0,0 +1,211 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the values derived series compute against the same values computed directly from the source samples
+ */
+public class DerivedSeriesTest {
+
+    private static final double TOLERANCE = 1e-9;
+
+    /**
+     * A moving average of a source whose ring has wrapped is the mean of the window ending at each sample
+     */
+    @Test
+    public void movingAverage() {
+        DataSeries source = new DataSeries(100, true);
+        DerivedSeries average = DerivedSeries.movingAverage(source, 7);
+        double[] x = time(350);
+        double[] y = signal(350);
+        append(source, x, y);
+
+        check(average, x, mean(y, 0, 7, false));
+    }
+
+    /**
+     * A rolling RMS is the square root of the mean square of the window ending at each sample
+     */
+    @Test
+    public void rollingRms() {
+        DataSeries source = new DataSeries(100, true);
+        DerivedSeries rms = DerivedSeries.rollingRms(source, 12);
+        double[] x = time(260);
+        double[] y = signal(260);
+        append(source, x, y);
+
+        check(rms, x, mean(y, 0, 12, true));
+    }
+
+    /**
+     * A derivative is the slope from each sample to the one before it, with the first sample getting 0
+     */
+    @Test
+    public void derivative() {
+        DataSeries source = new DataSeries(100, true);
+        DerivedSeries slope = DerivedSeries.derivative(source);
+        double[] x = time(230);
+        double[] y = signal(230);
+        append(source, x, y);
+
+        double[] expected = new double[y.length];
+        for(int i = 1; i < y.length; i++)
+            expected[i] = (y[i] - y[i - 1]) / (x[i] - x[i - 1]);
+        check(slope, x, expected);
+    }
+
+    /**
+     * A series without x values is differentiated against the sample number
+     */
+    @Test
+    public void indexedDerivative() {
+        DataSeries source = new DataSeries(50, false);
+        DerivedSeries slope = DerivedSeries.derivative(source);
+        double[] y = signal(120);
+        for(double value : y)
+            source.append(value);
+
+        double[] expected = new double[y.length];
+        for(int i = 1; i < y.length; i++)
+            expected[i] = y[i] - y[i - 1];
+        check(slope, null, expected);
+    }
+
+    /**
+     * A difference of two sources appended to together is the difference of each pair of samples
+     */
+    @Test
+    public void difference() {
+        DataSeries a = new DataSeries(100, true);
+        DataSeries b = new DataSeries(100, true);
+        DerivedSeries error = DerivedSeries.difference(a, b);
+        double[] x = time(275);
+        double[] setpoint = signal(275);
+        for(int i = 0; i < x.length; i++) {
+            a.append(x[i], setpoint[i]);
+            b.append(x[i], setpoint[i] * 0.9 + 0.05);
+        }
+
+        double[] expected = new double[x.length];
+        for(int i = 0; i < x.length; i++)
+            expected[i] = setpoint[i] - (setpoint[i] * 0.9 + 0.05);
+        check(error, x, expected);
+    }
+
+    /**
+     * A series derived from a source which has already wrapped starts from the oldest sample the source still holds
+     */
+    @Test
+    public void attachToWrappedSource() {
+        DataSeries source = new DataSeries(40, true);
+        double[] x = time(150);
+        double[] y = signal(150);
+        append(source, x, y);
+        DerivedSeries average = DerivedSeries.movingAverage(source, 5);
+
+        check(average, x, mean(y, 110, 5, false));
+    }
+
+    /**
+     * When one source runs so far ahead of the other that the samples it would pair with are overwritten, the
+     * difference carries on from the oldest sample both still hold
+     */
+    @Test
+    public void sourceOverrunsRing() {
+        DataSeries a = new DataSeries(10, true);
+        DataSeries b = new DataSeries(10, true);
+        DerivedSeries error = DerivedSeries.difference(a, b);
+        double[] x = time(25);
+        double[] y = signal(25);
+        append(a, x, y);
+        for(int i = 0; i < x.length; i++)
+            b.append(x[i], 1);
+
+        assertEquals(25, error.count());
+        double[] expected = new double[y.length];
+        for(int i = 0; i < y.length; i++)
+            expected[i] = y[i] - 1;
+        check(error, x, expected);
+    }
+
+    /**
+     * Clearing the source clears the derived series, which then starts over from the samples appended after
+     */
+    @Test
+    public void sourceCleared() {
+        DataSeries source = new DataSeries(100, true);
+        DerivedSeries average = DerivedSeries.movingAverage(source, 6);
+        append(source, time(80), signal(80));
+
+        source.clear();
+        assertEquals(0, average.size());
+
+        double[] x = time(30);
+        double[] y = new double[30];
+        for(int i = 0; i < y.length; i++)
+            y[i] = i % 4;
+        append(source, x, y);
+
+        check(average, x, mean(y, 0, 6, false));
+    }
+
+    private static double[] time(int n) {
+        double[] x = new double[n];
+        for(int i = 0; i < n; i++)
+            x[i] = i * 0.02 + (i % 3) * 0.001; // uneven steps, so slopes depend on x
+        return x;
+    }
+
+    private static double[] signal(int n) {
+        double[] y = new double[n];
+        for(int i = 0; i < n; i++)
+            y[i] = Math.sin(i * 0.13) * 4 + (i % 5) * 0.3;
+        return y;
+    }
+
+    private static void append(DataSeries series, double[] x, double[] y) {
+        for(int i = 0; i < x.length; i++)
+            series.append(x[i], y[i]);
+    }
+
+    /**
+     * The mean, or root mean square, of the window of samples ending at each sample
+     * @param y every sample appended
+     * @param from the first sample the window may reach back to
+     * @param window number of samples in a full window
+     * @param rms true for the root mean square rather than the mean
+     * @return the value for each sample, 0 before from
+     */
+    private static double[] mean(double[] y, int from, int window, boolean rms) {
+        double[] out = new double[y.length];
+        for(int i = from; i < y.length; i++) {
+            double sum = 0;
+            int first = Math.max(from, i - window + 1);
+            for(int j = first; j <= i; j++)
+                sum += rms ? y[j] * y[j] : y[j];
+            double mean = sum / (i - first + 1);
+            out[i] = rms ? Math.sqrt(mean) : mean;
+        }
+        return out;
+    }
+
+    /**
+     * Check the samples a derived series holds against values computed for every sample appended to its source
+     * @param series the derived series
+     * @param x the x value of every source sample, or null if x is the sample number
+     * @param expected the derived value of every source sample
+     */
+    private static void check(DataSeries series, double[] x, double[] expected) {
+        int size = Math.min(expected.length, series.capacity());
+        assertEquals(size, series.size());
+
+        long oldest = series.count() - series.size();
+        for(int i = 0; i < size; i++) {
+            int seq = (int) oldest + i;
+            assertEquals("x of sample " + seq, x == null ? seq : x[seq], series.getX(i), 0);
+            assertEquals("y of sample " + seq, expected[seq], series.getY(i), TOLERANCE);
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Renders canonical figures headlessly and compares them against golden images, so changes to how figures are laid
+ * out or drawn can't change the output without the golden images being updated on purpose. SimplePlot paints with
+ * {@link Figure#render}, so these cover what it shows without needing a display.
+ */
+public class FigureRenderingTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final Font FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+
+    /**
+     * @return an empty figure with the same font and colors on every machine
+     */
+    static Figure figure(String title) {
+        Figure figure = new Figure(title);
+        figure.setFont(FONT);
+        figure.setForeground(Color.BLACK);
+        figure.setBackground(Color.WHITE);
+        figure.setXLabel("time (s)");
+        figure.setYLabel("velocity (m/s)");
+        return figure;
+    }
+
+    /**
+     * @param n number of samples
+     * @return a noisy wheel encoder velocity with occasional spikes, the same every run
+     */
+    static double[] encoder(int n) {
+        Random random = new Random(254);
+        double[] y = new double[n];
+        for(int i = 0; i < n; i++) {
+            y[i] = 10 * Math.sin(i * 0.001) + random.nextGaussian() * 0.2;
+            if(random.nextInt(10000) == 0)
+                y[i] += 30;
+        }
+        return y;
+    }
+
+    /**
+     * @param n number of samples
+     * @param period x between samples
+     * @return evenly spaced x values from 0
+     */
+    static double[] time(int n, double period) {
+        double[] t = new double[n];
+        for(int i = 0; i < n; i++)
+            t[i] = i * period;
+        return t;
+    }
+
+    private static double[] wave(double[] t, double amplitude, double frequency, double phase) {
+        double[] y = new double[t.length];
+        for(int i = 0; i < t.length; i++)
+            y[i] = amplitude * Math.sin(2 * Math.PI * frequency * t[i] + phase);
+        return y;
+    }
+
+    private static void check(String name, Figure figure) throws IOException {
+        GoldenImages.check(name, figure.renderImage(WIDTH, HEIGHT), 1);
+    }
+
+    @Test
+    public void lineWithMarkers() throws IOException {
+        Figure figure = figure("Line with markers");
+        double[] t = time(40, 0.05);
+        figure.addData(t, wave(t, 3, 0.5, 0), Color.BLUE, Color.RED);
+        check("line-markers", figure);
+    }
+
+    @Test
+    public void millionPointsRaster() throws IOException {
+        Figure figure = figure("Million points");
+        figure.setRendering(Figure.Rendering.RASTER);
+        figure.addData(null, encoder(1000000), Color.BLUE, null);
+        check("million-raster", figure);
+    }
+
+    @Test
+    public void millionPointsSmooth() throws IOException {
+        Figure figure = figure("Million points, smoothed");
+        figure.setRendering(Figure.Rendering.RASTER_SMOOTH);
+        figure.addData(null, encoder(1000000), Color.BLUE, null);
+        check("million-smooth", figure);
+    }
+
+    @Test
+    public void manySeries() throws IOException {
+        Figure figure = figure("Many series");
+        double[] t = time(2000, 0.005);
+        for(int k = 0; k < 16; k++) {
+            Color color = Color.getHSBColor(k / 16f, 0.8f, 0.8f);
+            figure.addData(t, wave(t, 1 + k * 0.25, 0.5 + k * 0.1, k), color, null);
+        }
+        check("many-series", figure);
+    }
+
+    @Test
+    public void densityUnderSeries() throws IOException {
+        Figure figure = figure("Density");
+        DensitySeries density = figure.addDensity(64, 48, -4, 4, -3, 3);
+        Random random = new Random(254);
+        for(int i = 0; i < 100000; i++)
+            density.append(random.nextGaussian(), random.nextGaussian() * 0.75);
+
+        double[] t = time(81, 0.1);
+        for(int i = 0; i < t.length; i++)
+            t[i] -= 4;
+        figure.addData(t, wave(t, 2, 0.25, 0), Color.BLACK, null);
+        check("density", figure);
+    }
+
+    @Test
+    public void functions() throws IOException {
+        Figure figure = figure("Functions");
+        figure.addFunction(x -> Math.sin(x) / x, -20, 20, Color.BLUE);
+        figure.addCurve(t -> 0.5 * Math.cos(t), t -> 0.5 * Math.sin(t), 0, 2 * Math.PI, Color.RED);
+        check("functions", figure);
+    }
+
+    @Test
+    public void zoomedView() throws IOException {
+        Figure figure = figure("Zoomed");
+        double[] t = time(5000, 0.002);
+        figure.addData(t, wave(t, 5, 1, 0), Color.BLUE, Color.RED);
+        figure.setView(2.1, 2.6, -1, 6);
+        check("zoomed", figure);
+    }
+
+    @Test
+    public void manualTicks() throws IOException {
+        Figure figure = figure("Manual ticks");
+        double[] t = time(200, 0.05);
+        figure.addData(t, wave(t, 4, 0.2, 0), Color.BLUE, null);
+        figure.setXTic(-2, 12, 2);
+        figure.setYTic(-5, 5, 2.5);
+        check("manual-ticks", figure);
+    }
+
+    @Test
+    public void stripChart() throws IOException {
+        Figure figure = figure("Strip chart");
+        DataSeries series = figure.addSeries(100000, true, Color.BLUE, null);
+        figure.setStripChart(5);
+
+        double[] y = encoder(20000);
+        for(int i = 0; i < y.length; i++) {
+            series.append(i * 0.001, y[i]);
+            if(i % 200 == 199) // a frame every fifth of a second of data
+                figure.renderImage(WIDTH, HEIGHT);
+        }
+        check("strip-chart", figure);
+    }
+
+    /**
+     * A strip chart must draw the same once sequence numbers no longer fit in an int, as they do after a few days of
+     * telemetry at a kilohertz
+     */
+    @Test
+    public void stripChartLongRunning() {
+        BufferedImage[] images = new BufferedImage[2];
+        long[] starts = {0, 3000000000L};
+        for(int k = 0; k < starts.length; k++) {
+            Figure figure = figure("Long running");
+            DataSeries series = figure.addSeries(100000, true, Color.BLUE, null);
+            series.startAt(starts[k]);
+            figure.setStripChart(5);
+
+            double[] y = encoder(2000);
+            for(int i = 0; i < y.length; i++) {
+                series.append(i * 0.001, y[i]);
+                if(i % 200 == 199)
+                    figure.renderImage(WIDTH, HEIGHT);
+            }
+            images[k] = figure.renderImage(WIDTH, HEIGHT);
+        }
+
+        for(int y = 0; y < HEIGHT; y++) {
+            for(int x = 0; x < WIDTH; x++)
+                assertEquals("pixel " + x + ", " + y, images[0].getRGB(x, y), images[1].getRGB(x, y));
+        }
+    }
+
+    @Test
+    public void highResolution() throws IOException {
+        Figure figure = figure("High resolution");
+        double[] t = time(400, 0.01);
+        figure.addData(t, wave(t, 1, 1, 0), Color.BLUE, null);
+        GoldenImages.check("high-resolution", figure.renderImage(WIDTH, HEIGHT, 2), 2);
+    }
+
+    @Test
+    public void frozenCopyRendersTheSame() {
+        Figure figure = figure("Frozen");
+        DataSeries series = figure.addSeries(10000, true, Color.BLUE, Color.RED);
+        for(int i = 0; i < 500; i++)
+            series.append(i * 0.01, Math.sin(i * 0.03));
+        BufferedImage live = figure.renderImage(WIDTH, HEIGHT);
+        BufferedImage frozen = figure.freeze().renderImage(WIDTH, HEIGHT);
+
+        for(int y = 0; y < HEIGHT; y++) {
+            for(int x = 0; x < WIDTH; x++)
+                assertEquals("pixel " + x + ", " + y, live.getRGB(x, y), frozen.getRGB(x, y));
+        }
+    }
+
+    /**
+     * Samples must land where the ticks say they are, whatever the lowest tick is. Checked without images so the
+     * mapping from data to pixels can't be changed by updating the golden images.
+     */
+    @Test
+    public void samplesMapToTheirPixels() {
+        Figure figure = figure("Mapping");
+        figure.addData(new double[] {3, 5}, new double[] {2, -1}, Color.BLUE, null);
+        figure.setXTic(2, 6, 1);
+        figure.setYTic(-2, 4, 1);
+        figure.renderImage(800, 600);
+
+        // the plot area is 660 x 480 pixels inside 70 and 60 pixels of padding
+        NearestSample sample = figure.nearest(70 + 660 * (3 - 2) / 4.0, 600 - 60 - 480 * (2 + 2) / 6.0, 1);
+        assertNotNull(sample);
+        assertEquals(3, sample.getX(), 0);
+        assertEquals(235, sample.getPixelX(), 1e-9);
+        assertEquals(220, sample.getPixelY(), 1e-9);
+
+        sample = figure.nearest(70 + 660 * (5 - 2) / 4.0, 600 - 60 - 480 * (-1 + 2) / 6.0, 1);
+        assertNotNull(sample);
+        assertEquals(5, sample.getX(), 0);
+        assertEquals(565, sample.getPixelX(), 1e-9);
+        assertEquals(460, sample.getPixelY(), 1e-9);
+    }
+}
@@ -0,0 +1,106 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Compares rendered figures against the golden PNGs in src/test/resources/golden.
+ *
+ * Text is drawn with whatever fonts the machine has, so a little difference is allowed around the chrome while the
+ * plot area, where the data is drawn, must match closely. When a comparison fails the image rendered and a map of the
+ * pixels which differed are written to build/golden so they can be looked at.
+ *
+ * Run the tests with -Dgolden.update=true to write the golden images again after an intended change to the output.
+ */
+final class GoldenImages {
+
+    static final File GOLDEN = new File("src/test/resources/golden");
+    static final File FAILURES = new File("build/golden");
+
+    static final int CHANNEL_TOLERANCE = 32; // largest difference of any channel of a pixel which still matches
+    static final double PLOT_TOLERANCE = 0.002; // fraction of the plot area's pixels which may differ
+    static final double IMAGE_TOLERANCE = 0.02; // fraction of all pixels which may differ, mostly text
+
+    // padding around the plot area, as laid out by Figure
+    static final int X_PAD = 70;
+    static final int Y_PAD = 60;
+
+    private GoldenImages() {
+    }
+
+    /**
+     * @return true if the golden images are being written rather than checked
+     */
+    static boolean updating() {
+        return Boolean.getBoolean("golden.update");
+    }
+
+    /**
+     * Check an image against its golden image, or write it as the golden image when updating
+     * @param name name of the golden image, without the extension
+     * @param actual the image rendered
+     * @param scale image pixels per figure pixel the image was rendered with
+     * @throws IOException if an image couldn't be read or written
+     */
+    static void check(String name, BufferedImage actual, double scale) throws IOException {
+        File file = new File(GOLDEN, name + ".png");
+        if(updating()) {
+            GOLDEN.mkdirs();
+            ImageIO.write(actual, "png", file);
+            return;
+        }
+
+        assertTrue("No golden image " + file + ", run the tests with -Dgolden.update=true to make it", file.isFile());
+        BufferedImage expected = ImageIO.read(file);
+        assertEquals(name + " width", expected.getWidth(), actual.getWidth());
+        assertEquals(name + " height", expected.getHeight(), actual.getHeight());
+
+        int width = actual.getWidth();
+        int height = actual.getHeight();
+        int left = (int) Math.ceil(X_PAD * scale), right = width - left;
+        int top = (int) Math.ceil(Y_PAD * scale), bottom = height - top;
+
+        BufferedImage diff = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int differ = 0, plotDiffer = 0;
+        for(int y = 0; y < height; y++) {
+            for(int x = 0; x < width; x++) {
+                if(matches(expected.getRGB(x, y), actual.getRGB(x, y))) {
+                    diff.setRGB(x, y, 0xffffff);
+                    continue;
+                }
+
+                diff.setRGB(x, y, 0xff0000);
+                differ++;
+                if(x > left && x < right && y > top && y < bottom) // inside the axes, away from the tick labels
+                    plotDiffer++;
+            }
+        }
+
+        double plotFraction = (double) plotDiffer / Math.max((right - left) * (bottom - top), 1);
+        double imageFraction = (double) differ / (width * height);
+        if(plotFraction > PLOT_TOLERANCE || imageFraction > IMAGE_TOLERANCE) {
+            FAILURES.mkdirs();
+            ImageIO.write(actual, "png", new File(FAILURES, name + "-actual.png"));
+            ImageIO.write(diff, "png", new File(FAILURES, name + "-diff.png"));
+            fail(String.format("%s differs from its golden image in %.3f%% of the plot area and %.3f%% of the image, "
+                    + "see %s", name, plotFraction * 100, imageFraction * 100, FAILURES));
+        }
+    }
+
+    /**
+     * @return true if no channel of two pixels differs by more than the tolerance
+     */
+    private static boolean matches(int a, int b) {
+        for(int shift = 0; shift < 32; shift += 8) {
+            if(Math.abs((a >>> shift & 0xff) - (b >>> shift & 0xff)) > CHANNEL_TOLERANCE)
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,202 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that rendering stays within a budget of time and garbage per frame for the workloads the plots are built
+ * for, so a change which makes painting slower or start allocating per sample fails the build rather than being
+ * noticed as a stutter on the driver station.
+ *
+ * Times are the median of many frames after a warmup, and the budgets leave several times the headroom a typical
+ * laptop needs so they hold on a shared CI machine. Run with -Dbudget.scale=2 (say) on a machine known to be slower.
+ * The JMH benchmarks in src/jmh measure the same work more precisely.
+ */
+public class PerformanceBudgetTest {
+
+    private static final double SCALE = Double.parseDouble(System.getProperty("budget.scale", "1"));
+    private static final int WARMUP = 30; // frames drawn before measuring, so the JIT has compiled the hot loops
+    private static final int FRAMES = 30; // frames measured
+
+    private static final int WIDTH = 800;
+    private static final int HEIGHT = 600;
+
+    private BufferedImage image;
+    private Graphics2D g2;
+    private final AllocationCounter allocation = new AllocationCounter();
+
+    /**
+     * The work of one frame
+     */
+    private interface Frame {
+        void run();
+    }
+
+    @Before
+    public void setUp() {
+        image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        g2 = image.createGraphics();
+    }
+
+    @After
+    public void tearDown() {
+        g2.dispose();
+    }
+
+    /**
+     * Run a frame many times and check the median time and allocation of one frame against a budget
+     * @param name name of the scenario, for the report
+     * @param frame the work of one frame
+     * @param millis most milliseconds the median frame may take, before scaling
+     * @param bytes most bytes the median frame may allocate
+     */
+    private void budget(String name, Frame frame, double millis, long bytes) {
+        for(int i = 0; i < WARMUP; i++)
+            frame.run();
+
+        long[] times = new long[FRAMES];
+        long[] allocated = new long[FRAMES];
+        for(int i = 0; i < FRAMES; i++) {
+            allocation.start();
+            long start = System.nanoTime();
+            frame.run();
+            times[i] = System.nanoTime() - start;
+            allocated[i] = allocation.stop();
+        }
+
+        double time = median(times) / 1e6;
+        long garbage = median(allocated);
+        System.out.printf("%-24s %8.3f ms (budget %.1f)  %9d bytes (budget %d)%n", name, time, millis * SCALE,
+                garbage, bytes);
+
+        assertTrue(String.format("%s took %.3f ms per frame, over its budget of %.1f ms", name, time,
+                millis * SCALE), time <= millis * SCALE);
+        if(garbage >= 0) // allocation can't be measured on every JVM
+            assertTrue(name + " allocated " + garbage + " bytes per frame, over its budget of " + bytes,
+                    garbage <= bytes);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private Figure million(Figure.Rendering rendering) {
+        Figure figure = FigureRenderingTest.figure("Million points");
+        figure.setRendering(rendering);
+        figure.addData(null, FigureRenderingTest.encoder(1000000), Color.BLUE, null);
+        return figure;
+    }
+
+    @Test
+    public void millionPointsRepaint() {
+        Figure figure = million(Figure.Rendering.RASTER);
+        budget("million repaint", () -> figure.render(g2, WIDTH, HEIGHT), 10, 16 * 1024);
+    }
+
+    @Test
+    public void millionPointsRedraw() {
+        Figure figure = million(Figure.Rendering.RASTER);
+        budget("million redraw", () -> {
+            figure.invalidatePaths(); // as if every sample had changed
+            figure.render(g2, WIDTH, HEIGHT);
+        }, 40, 16 * 1024);
+    }
+
+    @Test
+    public void millionPointsShapes() {
+        Figure figure = million(Figure.Rendering.SHAPES);
+        budget("million shapes redraw", () -> {
+            figure.invalidatePaths();
+            figure.render(g2, WIDTH, HEIGHT);
+        }, 60, 16 * 1024);
+    }
+
+    @Test
+    public void manySeries() {
+        Figure figure = FigureRenderingTest.figure("Many series");
+        figure.setRendering(Figure.Rendering.RASTER);
+        double[] t = FigureRenderingTest.time(10000, 0.005);
+        double[] y = FigureRenderingTest.encoder(10000);
+        for(int k = 0; k < 100; k++) {
+            double[] shifted = new double[y.length];
+            for(int i = 0; i < y.length; i++)
+                shifted[i] = y[i] + k;
+            figure.addData(t, shifted, Color.getHSBColor(k / 100f, 0.8f, 0.8f), null);
+        }
+
+        budget("many series redraw", () -> {
+            figure.invalidatePaths();
+            figure.render(g2, WIDTH, HEIGHT);
+        }, 60, 64 * 1024);
+    }
+
+    /**
+     * A 10kHz signal drawn at 20 frames a second, so each frame has 500 new samples
+     */
+    @Test
+    public void liveAppend() {
+        Figure figure = FigureRenderingTest.figure("Live");
+        figure.setRendering(Figure.Rendering.RASTER);
+        DataSeries series = figure.addSeries(1000000, SeriesStorage.DOUBLE, true, Color.BLUE, null);
+        double[] y = FigureRenderingTest.encoder(1000000);
+        int[] next = new int[1];
+        for(; next[0] < 100000; next[0]++)
+            series.append(next[0] * 1e-4, y[next[0]]);
+
+        budget("live append", () -> {
+            for(int i = 0; i < 500; i++, next[0]++)
+                series.append(next[0] * 1e-4, y[next[0] % y.length]);
+            figure.render(g2, WIDTH, HEIGHT);
+        }, 20, 64 * 1024);
+    }
+
+    /**
+     * The same live signal in a ten second strip chart, where a frame only draws the samples which arrived since the
+     * last
+     */
+    @Test
+    public void liveStripChart() {
+        Figure figure = FigureRenderingTest.figure("Strip chart");
+        DataSeries series = figure.addSeries(1000000, SeriesStorage.DOUBLE, true, Color.BLUE, null);
+        figure.setStripChart(10);
+        double[] y = FigureRenderingTest.encoder(1000000);
+        int[] next = new int[1];
+        for(; next[0] < 100000; next[0]++)
+            series.append(next[0] * 1e-4, y[next[0]]);
+
+        budget("live strip chart", () -> {
+            for(int i = 0; i < 500; i++, next[0]++)
+                series.append(next[0] * 1e-4, y[next[0] % y.length]);
+            figure.render(g2, WIDTH, HEIGHT);
+        }, 10, 64 * 1024);
+    }
+
+    /**
+     * Appending is done by the robot's control loop, so must never allocate per sample
+     */
+    @Test
+    public void appendAllocatesNothing() {
+        DataSeries series = new DataSeries(100000, SeriesStorage.DOUBLE, true);
+        DerivedSeries.movingAverage(series, 50);
+        for(int i = 0; i < 200000; i++) // past the capacity, so the ring wraps
+            series.append(i * 0.005, Math.sin(i * 0.01));
+
+        Assume.assumeTrue(AllocationCounter.allocatedBytes() >= 0);
+        allocation.start();
+        for(int i = 200000; i < 300000; i++)
+            series.append(i * 0.005, Math.sin(i * 0.01));
+        long garbage = allocation.stop();
+        // any allocation per sample would be at least 16 bytes each, so allow a little for the JVM itself
+        assertTrue("appending allocated " + garbage + " bytes", garbage < 100000);
+    }
+}
@@ -0,0 +1,168 @@
+package com.m3rcuriel.frc.swerve.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.*;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that a saved session loads back as the figure it was saved from
+ */
+public class PlotSessionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Series with their own x values, including a ring which has wrapped, a uniform series stored as floats, a
+     * density and a mapped log, come back with the same samples, styles and figure settings
+     */
+    @Test
+    public void seriesWithXRoundTrip() throws IOException {
+        Figure figure = new Figure("Session");
+        figure.setXLabel("Time (s)");
+        figure.setYLabel("Position (m)");
+        figure.setXTic(0, 300, 50);
+        figure.setYTic(-2, 2, 0.5);
+
+        DataSeries stored = figure.addSeries(100, true, Color.BLUE, Color.RED);
+        for(int i = 0; i < 250; i++) // laps the ring twice and a half, so it is saved rotated
+            stored.append(i, Math.sin(i * 0.1));
+
+        DataSeries uniform = figure.addUniformSeries(64, SeriesStorage.FLOAT, 10, 0.25, Color.GREEN, null);
+        for(int i = 0; i < 40; i++)
+            uniform.append(Math.cos(i * 0.3));
+
+        DensitySeries density = figure.addDensity(8, 4, 0, 10, -1, 1);
+        for(int i = 0; i < 500; i++)
+            density.append(i * 0.03, Math.sin(i * 0.05));
+        density.append(50, 0); // outside the grid
+        density.setColorMap(ColorMap.HEAT);
+
+        File log = folder.newFile("log.bin");
+        writeLog(log, 300);
+        try(MappedSeries mapped = new MappedSeries(log, 16, 0, true, 8, false, ByteOrder.LITTLE_ENDIAN)) {
+            figure.add(mapped, Color.MAGENTA, Color.BLACK);
+
+            Figure loaded = saveAndLoad(figure);
+
+            assertEquals("Session", loaded.getTitle());
+            assertEquals("Time (s)", loaded.getXLabel());
+            assertEquals("Position (m)", loaded.getYLabel());
+            assertArrayEquals(new double[] {0, 300, 50}, loaded.getXTic(), 0);
+            assertArrayEquals(new double[] {-2, 2, 0.5}, loaded.getYTic(), 0);
+
+            List<PlotSeries> series = loaded.getSeries();
+            assertEquals(4, series.size());
+            checkSamples(stored, series.get(0));
+            checkSamples(uniform, series.get(1));
+            checkDensity(density, (DensitySeries) series.get(2));
+            checkSamples(mapped, series.get(3));
+        }
+    }
+
+    /**
+     * A series drawn against its sample numbers, whose ring has wrapped, keeps its sample numbers, and a figure
+     * whose ticks follow the data still does after loading
+     */
+    @Test
+    public void indexedSeriesRoundTrip() throws IOException {
+        Figure figure = new Figure("Indexed");
+        DataSeries indexed = figure.addSeries(50, SeriesStorage.FLOAT, false, Color.ORANGE, null);
+        for(int i = 0; i < 173; i++)
+            indexed.append(i % 7);
+        DataSeries empty = figure.addSeries(10, false, Color.CYAN, null);
+
+        Figure loaded = saveAndLoad(figure);
+
+        assertNull(loaded.getXTic());
+        assertNull(loaded.getYTic());
+        List<PlotSeries> series = loaded.getSeries();
+        assertEquals(2, series.size());
+        checkSamples(indexed, series.get(0));
+        checkSamples(empty, series.get(1));
+    }
+
+    private Figure saveAndLoad(Figure figure) throws IOException {
+        File file = folder.newFile();
+        PlotSession.save(figure, file);
+        return PlotSession.load(file);
+    }
+
+    /**
+     * Write a log of records holding a double timestamp followed by a double value
+     */
+    private static void writeLog(File file, int records) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(records * 16).order(ByteOrder.LITTLE_ENDIAN);
+        for(int i = 0; i < records; i++) {
+            buffer.putDouble(i * 0.01);
+            buffer.putDouble(Math.sin(i * 0.2) * 3);
+        }
+        try(FileOutputStream out = new FileOutputStream(file)) {
+            out.write(buffer.array());
+        }
+    }
+
+    /**
+     * Check a loaded series has the style, bounds and samples of the one saved
+     */
+    private static void checkSamples(PlotSeries saved, PlotSeries loaded) {
+        checkStyle(saved, loaded);
+
+        SeriesData expected = saved.snapshot();
+        SeriesData actual = loaded.snapshot();
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.hasX(), actual.hasX());
+        assertEquals(expected.isXSorted(), actual.isXSorted());
+        if(expected.size() == 0)
+            return;
+
+        assertEquals(expected.getMinX(), actual.getMinX(), 0);
+        assertEquals(expected.getMaxX(), actual.getMaxX(), 0);
+        assertEquals(expected.getMinY(), actual.getMinY(), 0);
+        assertEquals(expected.getMaxY(), actual.getMaxY(), 0);
+        for(int i = 0; i < expected.size(); i++) {
+            assertEquals("x of sample " + i, expected.getX(i), actual.getX(i), 0);
+            assertEquals("y of sample " + i, expected.getY(i), actual.getY(i), 0);
+        }
+    }
+
+    /**
+     * Check a loaded density has the style, grid, colors and counts of the one saved
+     */
+    private static void checkDensity(DensitySeries saved, DensitySeries loaded) {
+        checkStyle(saved, loaded);
+
+        assertEquals(saved.getColumns(), loaded.getColumns());
+        assertEquals(saved.getRows(), loaded.getRows());
+        assertEquals(saved.getGridMinX(), loaded.getGridMinX(), 0);
+        assertEquals(saved.getGridMaxX(), loaded.getGridMaxX(), 0);
+        assertEquals(saved.getGridMinY(), loaded.getGridMinY(), 0);
+        assertEquals(saved.getGridMaxY(), loaded.getGridMaxY(), 0);
+        assertEquals(saved.getOutside(), loaded.getOutside());
+        assertEquals(saved.getMinX(), loaded.getMinX(), 0);
+        assertEquals(saved.getMaxX(), loaded.getMaxX(), 0);
+        assertEquals(saved.getMinY(), loaded.getMinY(), 0);
+        assertEquals(saved.getMaxY(), loaded.getMaxY(), 0);
+        assertArrayEquals(saved.getColorMap().table(), loaded.getColorMap().table());
+        for(int row = 0; row < saved.getRows(); row++)
+            for(int column = 0; column < saved.getColumns(); column++)
+                assertEquals(saved.getCount(column, row), loaded.getCount(column, row));
+    }
+
+    private static void checkStyle(PlotSeries saved, PlotSeries loaded) {
+        assertEquals(saved.lineColor, loaded.lineColor);
+        assertEquals(saved.markerColor, loaded.markerColor);
+    }
+}